@@ -0,0 +1,116 @@
+package net.sourceforge.jwbf.core;
+
+/**
+ * Encodes text for <code>application/x-www-form-urlencoded</code> with UTF-8, like
+ * {@link java.net.URLEncoder#encode(String, String)}, without looking up the charset and without
+ * an intermediate byte array. Text which needs no encoding is returned as it is; short encoded
+ * values, like the constant <code>rvprop</code> of an action, are kept in a small cache.
+ *
+ * @author Thomas Stock
+ */
+public final class PercentEncoder {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private static final int CACHE_SIZE = 256;
+  private static final int MAX_CACHED_LENGTH = 64;
+
+  /** Replaces a lone surrogate, like the charset encoder of {@link java.net.URLEncoder}. */
+  private static final int REPLACEMENT = '?';
+
+  private static final Entry[] CACHE = new Entry[CACHE_SIZE];
+
+  private PercentEncoder() {
+    // no instances
+  }
+
+  /**
+   * @param s
+   *          text to encode
+   * @return the encoded text, equal to <code>URLEncoder.encode(s, "UTF-8")</code>
+   */
+  public static String encode(String s) {
+    int i = 0;
+    int length = s.length();
+    while (i < length && isUnreserved(s.charAt(i))) {
+      i++;
+    }
+    if (i == length) {
+      return s;
+    }
+    if (length > MAX_CACHED_LENGTH) {
+      return encode(s, i);
+    }
+    int slot = s.hashCode() & (CACHE_SIZE - 1);
+    Entry entry = CACHE[slot];
+    if (entry != null && entry.text.equals(s)) {
+      return entry.encoded;
+    }
+    String encoded = encode(s, i);
+    CACHE[slot] = new Entry(s, encoded);
+    return encoded;
+  }
+
+  /**
+   * @param start
+   *          position of the first char to encode
+   */
+  private static String encode(String s, int start) {
+    int length = s.length();
+    StringBuilder out = new StringBuilder(length + 16);
+    out.append(s, 0, start);
+    for (int i = start; i < length; i++) {
+      char c = s.charAt(i);
+      if (isUnreserved(c)) {
+        out.append(c);
+      } else if (c == ' ') {
+        out.append('+');
+      } else if (c < 0x80) {
+        appendByte(out, c);
+      } else if (c < 0x800) {
+        appendByte(out, 0xC0 | (c >> 6));
+        appendByte(out, 0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, s.charAt(++i));
+        appendByte(out, 0xF0 | (codePoint >> 18));
+        appendByte(out, 0x80 | ((codePoint >> 12) & 0x3F));
+        appendByte(out, 0x80 | ((codePoint >> 6) & 0x3F));
+        appendByte(out, 0x80 | (codePoint & 0x3F));
+      } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+        appendByte(out, REPLACEMENT);
+      } else {
+        appendByte(out, 0xE0 | (c >> 12));
+        appendByte(out, 0x80 | ((c >> 6) & 0x3F));
+        appendByte(out, 0x80 | (c & 0x3F));
+      }
+    }
+    return out.toString();
+  }
+
+  private static void appendByte(StringBuilder out, int b) {
+    out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+  }
+
+  /**
+   * @return true for the chars which {@link java.net.URLEncoder} keeps
+   */
+  private static boolean isUnreserved(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.'
+        || c == '-' || c == '*' || c == '_';
+  }
+
+  /**
+   * Immutable, so that the cache can be shared without locks.
+   */
+  private static final class Entry {
+    private final String text;
+    private final String encoded;
+
+    Entry(String text, String encoded) {
+      this.text = text;
+      this.encoded = encoded;
+    }
+  }
+
+}
@@ -1,28 +1,32 @@
 package net.sourceforge.jwbf.core;
 
-import java.util.List;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.Post;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 
+/**
+ * Builds a request path with params. The params are kept in the order they were added; an equal
+ * key and value pair is added once. Values are expected to be encoded, e.g. with
+ * {@link PercentEncoder#encode(String)}.
+ */
 public class RequestBuilder {
 
-  private final Multimap<String, String> params = ArrayListMultimap.create();
+  private static final int INITIAL_CAPACITY = 8;
+
   private final String path;
+  private String[] keys = new String[INITIAL_CAPACITY];
+  private String[] values = new String[INITIAL_CAPACITY];
+  private int size = 0;
 
   public RequestBuilder(String path) {
     this.path = path;
   }
 
   public RequestBuilder param(String key, int value) {
-    param(key, value + "");
+    param(key, String.valueOf(value));
     return this;
   }
 
@@ -31,13 +35,28 @@ public class RequestBuilder {
       if (Strings.isNullOrEmpty(value)) {
         value = "None";
       }
-      if (!params.containsEntry(key, value)) {
-        params.put(key, value);
+      if (!contains(key, value)) {
+        if (size == keys.length) {
+          keys = Arrays.copyOf(keys, size * 2);
+          values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
       }
     }
     return this;
   }
 
+  private boolean contains(String key, String value) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i].equals(key) && values[i].equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public Post buildPost() {
     return new Post(build());
   }
@@ -47,16 +66,24 @@ public class RequestBuilder {
   }
 
   public String build() {
-
-    String paramString = "";
-    if (!params.isEmpty()) {
-      List<String> values = Lists.newArrayList();
-      for (Entry<String, String> entry : params.entries()) {
-        values.add(entry.getKey() + "=" + entry.getValue());
+    if (size == 0) {
+      return path;
+    }
+    int length = path.length() + size * 2;
+    for (int i = 0; i < size; i++) {
+      length += keys[i].length() + values[i].length();
+    }
+    StringBuilder sb = new StringBuilder(length);
+    sb.append(path);
+    for (int i = 0; i < size; i++) {
+      if (i == 0) {
+        sb.append('?');
+      } else {
+        sb.append('&');
       }
-      paramString = "?" + Joiner.on("&").join(values);
+      sb.append(keys[i]).append('=').append(values[i]);
     }
-    return path + paramString;
+    return sb.toString();
   }
 
 }
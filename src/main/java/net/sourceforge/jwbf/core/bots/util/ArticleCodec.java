@@ -0,0 +1,145 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+import javax.annotation.CheckForNull;
+
+import net.sourceforge.jwbf.core.contentRep.CompressedArticle;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.core.contentRep.TextCompressor;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Writes the fields of a {@link SimpleArticle} as length prefixed UTF-8, which unlike
+ * {@link DataOutput#writeUTF(String)} allows texts of more than 64 KiB. The text is compressed
+ * with {@link TextCompressor}; articles with a deflated text are read as {@link CompressedArticle},
+ * which decompress it when it is needed.
+ *
+ * @author Thomas Stock
+ */
+final class ArticleCodec {
+
+  /** Chars and fields of an article in memory, roughly. */
+  private static final int OVERHEAD_BYTES = 200;
+
+  private ArticleCodec() {
+    // no instances
+  }
+
+  static void write(DataOutput out, SimpleArticle article) throws IOException {
+    writeString(out, article.getTitle());
+    writeBytes(out, compressedText(article));
+    writeString(out, article.getEditSummary());
+    writeString(out, article.getEditor());
+    writeString(out, article.getRevisionId());
+    out.writeBoolean(article.isMinorEdit());
+    Date timestamp = article.getEditTimestamp();
+    if (timestamp == null) {
+      out.writeLong(Long.MIN_VALUE);
+    } else {
+      out.writeLong(timestamp.getTime());
+    }
+  }
+
+  static SimpleArticle read(DataInput in) throws IOException {
+    String title = readString(in);
+    byte[] text = readBytes(in);
+    SimpleArticle article;
+    if (text != null && TextCompressor.isDeflated(text)) {
+      CompressedArticle compressed = new CompressedArticle(title);
+      compressed.setCompressedText(text);
+      article = compressed;
+    } else {
+      article = new SimpleArticle(title);
+      try {
+        article.setText(TextCompressor.decompress(text));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("invalid text of " + title, e);
+      }
+    }
+    article.setEditSummary(readString(in));
+    article.setEditor(readString(in));
+    article.setRevisionId(readString(in));
+    article.setMinorEdit(in.readBoolean());
+    long timestamp = in.readLong();
+    if (timestamp == Long.MIN_VALUE) {
+      article.setEditTimestamp((Date) null);
+    } else {
+      article.setEditTimestamp(new Date(timestamp));
+    }
+    return article;
+  }
+
+  /**
+   * @return the estimated size of the article in memory
+   */
+  static int weigh(SimpleArticle article) {
+    int chars = length(article.getTitle()) + length(article.getEditSummary())
+        + length(article.getEditor()) + length(article.getRevisionId());
+    if (article instanceof CompressedArticle) {
+      byte[] text = ((CompressedArticle) article).getCompressedText();
+      if (text != null) {
+        return OVERHEAD_BYTES + 2 * chars + text.length;
+      }
+      return OVERHEAD_BYTES + 2 * chars;
+    }
+    return OVERHEAD_BYTES + 2 * (chars + length(article.getText()));
+  }
+
+  @CheckForNull
+  private static byte[] compressedText(SimpleArticle article) {
+    if (article instanceof CompressedArticle) {
+      return ((CompressedArticle) article).getCompressedText();
+    }
+    return TextCompressor.compress(article.getText());
+  }
+
+  private static int length(@CheckForNull String s) {
+    if (s == null) {
+      return 0;
+    }
+    return s.length();
+  }
+
+  static void writeString(DataOutput out, @CheckForNull String s) throws IOException {
+    if (s == null) {
+      writeBytes(out, null);
+    } else {
+      writeBytes(out, s.getBytes(Charsets.UTF_8));
+    }
+  }
+
+  @CheckForNull
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = readBytes(in);
+    if (bytes == null) {
+      return null;
+    }
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutput out, @CheckForNull byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,58 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import javax.annotation.CheckForNull;
+
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+/**
+ * Persistent tier of a {@link TieredCache}. Like the cache, a store does not fail on I/O errors;
+ * they are logged, and an entry which cannot be read is missing. Implementations are thread safe.
+ *
+ * @author Thomas Stock
+ */
+public interface ArticleStore {
+
+  /**
+   * @param savedAt
+   *          time in milliseconds, see {@link System#currentTimeMillis()}
+   */
+  void put(SimpleArticle article, long savedAt);
+
+  /**
+   * @return the stored article or null
+   */
+  @CheckForNull
+  Entry get(String title);
+
+  void remove(String title);
+
+  /**
+   * Removes the entries which were saved before the given time.
+   */
+  void removeOlderThan(long savedAt);
+
+  void clear();
+
+  /**
+   * An article with the time it was saved.
+   */
+  final class Entry {
+
+    private final SimpleArticle article;
+    private final long savedAt;
+
+    public Entry(SimpleArticle article, long savedAt) {
+      this.article = article;
+      this.savedAt = savedAt;
+    }
+
+    public SimpleArticle getArticle() {
+      return article;
+    }
+
+    public long getSavedAt() {
+      return savedAt;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * A {@link TitleSet} which needs a few bits per title, but may report an unseen title as seen with
+ * a configured probability. Use it if rarely skipping a title is acceptable, e.g. to avoid
+ * processing a page twice in a long running job. It never reports a seen title as unseen.
+ *
+ * @author Thomas Stock
+ */
+public class BloomTitleSet implements TitleSet {
+
+  public static final double DEFAULT_FPP = 0.001;
+
+  private final BloomFilter<CharSequence> filter;
+  private int size = 0;
+
+  /**
+   * @param expectedTitles
+   *          number of titles which will be added
+   */
+  public BloomTitleSet(int expectedTitles) {
+    this(expectedTitles, DEFAULT_FPP);
+  }
+
+  /**
+   * @param expectedTitles
+   *          number of titles which will be added
+   * @param fpp
+   *          probability that a new title is reported as seen
+   */
+  public BloomTitleSet(int expectedTitles, double fpp) {
+    filter = BloomFilter.create(Funnels.stringFunnel(), expectedTitles, fpp);
+  }
+
+  /**
+   * {@inheritDoc} May return false for a new title, see {@link #BloomTitleSet(int, double)}.
+   */
+  public synchronized boolean add(String title) {
+    if (filter.put(title)) {
+      size++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc} May return true for a title which was never added.
+   */
+  public synchronized boolean contains(String title) {
+    return filter.mightContain(title);
+  }
+
+  /**
+   * @return number of titles which were reported as new
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return the current probability that a new title is reported as seen
+   */
+  public synchronized double expectedFpp() {
+    return filter.expectedFpp();
+  }
+
+}
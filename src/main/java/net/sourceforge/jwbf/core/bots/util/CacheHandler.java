@@ -1,16 +1,35 @@
 package net.sourceforge.jwbf.core.bots.util;
 
+import javax.annotation.CheckForNull;
+
 import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 
 /**
- * @deprecated use a map
+ * Keeps articles by their title, see {@link TieredCache}. The interface does not require thread
+ * safety: {@link TieredCache} is thread safe, {@link SimpleCache} is not and must not be shared by
+ * bots used in several threads.
+ * <p>
+ * Implementations written against JWBF 1 must add {@link #getIfPresent(String)} and
+ * {@link #remove(String)}, which are abstract methods of this interface since JWBF 2.
  */
-@Deprecated
 public interface CacheHandler {
 
   void put(SimpleArticle sa);
 
   SimpleArticle get(String title);
 
+  /**
+   * @return the cached article or null; unlike {@link #containsKey(String)} followed by
+   *         {@link #get(String)} a single lookup
+   * @since JWBF 2
+   */
+  @CheckForNull
+  SimpleArticle getIfPresent(String title);
+
   boolean containsKey(String title);
+
+  /**
+   * @since JWBF 2
+   */
+  void remove(String title);
 }
@@ -0,0 +1,171 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+
+/**
+ * Keeps one file per article in a folder, named by the SHA-1 of the title. A file is written to a
+ * temporary file first and then renamed, so readers never see a partly written article.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class FileArticleStore implements ArticleStore {
+
+  /** Changed with the format, older files are removed when they are read. */
+  private static final int MAGIC = 0x4A415232;
+  private static final String EXT = ".article";
+
+  private final File folder;
+
+  /**
+   * @param folder
+   *          for the files, created if missing
+   */
+  public FileArticleStore(File folder) {
+    if (!folder.isDirectory() && !folder.mkdirs()) {
+      throw new IllegalArgumentException("cannot create " + folder);
+    }
+    this.folder = folder;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void put(SimpleArticle article, long savedAt) {
+    File file = fileOf(article.getTitle());
+    File temp = null;
+    try {
+      temp = File.createTempFile(file.getName(), ".tmp", folder);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+          temp)));
+      boolean threw = true;
+      try {
+        out.writeInt(MAGIC);
+        out.writeLong(savedAt);
+        ArticleCodec.write(out, article);
+        threw = false;
+      } finally {
+        // a failed close must not be renamed to a stored article
+        Closeables.close(out, threw);
+      }
+      if (!temp.renameTo(file)) {
+        // some platforms do not replace existing files
+        file.delete();
+        if (!temp.renameTo(file)) {
+          throw new IOException("cannot rename " + temp + " to " + file);
+        }
+      }
+      temp = null;
+    } catch (IOException e) {
+      log.warn("cannot store " + article.getTitle(), e);
+    } finally {
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @CheckForNull
+  public Entry get(String title) {
+    File file = fileOf(title);
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IOException("not an article file");
+        }
+        long savedAt = in.readLong();
+        SimpleArticle article = ArticleCodec.read(in);
+        if (!title.equals(article.getTitle())) {
+          return null;
+        }
+        return new Entry(article, savedAt);
+      } finally {
+        Closeables.close(in, true);
+      }
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      log.warn("cannot read " + file + ", removing it", e);
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void remove(String title) {
+    fileOf(title).delete();
+  }
+
+  /**
+   * {@inheritDoc} Reads only the header of each file.
+   */
+  public void removeOlderThan(long savedAt) {
+    for (File file : listFiles()) {
+      boolean expired = true;
+      try {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+          expired = in.readInt() != MAGIC || in.readLong() < savedAt;
+        } finally {
+          Closeables.close(in, true);
+        }
+      } catch (IOException e) {
+        log.debug("cannot read " + file, e);
+      }
+      if (expired) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void clear() {
+    for (File file : listFiles()) {
+      file.delete();
+    }
+  }
+
+  private File[] listFiles() {
+    File[] files = folder.listFiles(new FilenameFilter() {
+
+      public boolean accept(File dir, String name) {
+        return name.endsWith(EXT);
+      }
+    });
+    if (files == null) {
+      return new File[0];
+    }
+    return files;
+  }
+
+  private File fileOf(String title) {
+    return new File(folder, Hashing.sha1().hashString(title, Charsets.UTF_8) + EXT);
+  }
+
+}
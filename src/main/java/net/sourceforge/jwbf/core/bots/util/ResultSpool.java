@@ -0,0 +1,421 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Collects query results in an append only file instead of the heap. Each item is written as a
+ * record of its length and the bytes of its {@link Codec}. The spool can be iterated any number of
+ * times, sorted with a bounded number of items in memory and compared with another spool.
+ *
+ * <pre>
+ * ResultSpool&lt;String&gt; titles = ResultSpool.ofStrings(new File(&quot;allpages.spool&quot;));
+ * titles.addAll(new AllPageTitles(bot, MediaWiki.NS_MAIN));
+ * ResultSpool&lt;String&gt; sorted = titles.sort(Ordering.natural(), true, new File(
+ *     &quot;sorted.spool&quot;));
+ * // sorted by the previous run
+ * ResultSpool&lt;String&gt; lastRun = ResultSpool.open(new File(&quot;last.spool&quot;),
+ *     ResultSpool.STRINGS);
+ * ResultSpool&lt;String&gt; created = sorted.difference(lastRun, Ordering.natural(), new File(
+ *     &quot;created.spool&quot;));
+ * </pre>
+ *
+ * Iterators return the items added before they were created. An iterator which is not exhausted
+ * keeps its file open until {@link #close()}. Instances are not thread safe.
+ *
+ * @author Thomas Stock
+ * @param <T>
+ *          of items
+ */
+@Slf4j
+public class ResultSpool<T> implements Iterable<T>, Closeable {
+
+  /** items per sorted run of {@link #sort(Comparator, boolean, File)}. */
+  public static final int DEFAULT_RUN_SIZE = 100000;
+
+  /**
+   * Writes and reads the items of a spool.
+   *
+   * @param <T>
+   *          of items
+   */
+  public interface Codec<T> {
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+  }
+
+  /** Strings with modified UTF-8, up to 65535 bytes. */
+  public static final Codec<String> STRINGS = new Codec<String>() {
+
+    public void write(String value, DataOutput out) throws IOException {
+      out.writeUTF(value);
+    }
+
+    public String read(DataInput in) throws IOException {
+      return in.readUTF();
+    }
+  };
+
+  private final File file;
+  private final Codec<T> codec;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private final DataOutputStream recordOut = new DataOutputStream(record);
+  private final List<SpoolIterator> readers = Lists.newArrayList();
+  private DataOutputStream out;
+  private long size = 0;
+
+  /**
+   * @param file
+   *          which is replaced by an empty spool
+   */
+  public ResultSpool(File file, Codec<T> codec) {
+    this(file, codec, 0);
+  }
+
+  private ResultSpool(File file, Codec<T> codec, long size) {
+    this.file = file;
+    this.codec = codec;
+    this.size = size;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, size > 0)));
+    } catch (IOException e) {
+      throw new JwbfException("could not create " + file, e);
+    }
+  }
+
+  /**
+   * Reopens a spool, e.g. of a previous run; added items are appended. A record which was not
+   * completely written, because the writing process died, is cut off with everything after it,
+   * like a record with a negative length.
+   *
+   * @param file
+   *          of the spool; an empty spool is created if it does not exist
+   * @return the spool with the items of the file
+   */
+  public static <T> ResultSpool<T> open(File file, Codec<T> codec) {
+    if (!file.exists()) {
+      return new ResultSpool<T>(file, codec);
+    }
+    long count = 0;
+    long valid = 0;
+    try {
+      RandomAccessFile in = new RandomAccessFile(file, "rw");
+      try {
+        long length = in.length();
+        while (valid + 4 <= length) {
+          in.seek(valid);
+          int recordLength = in.readInt();
+          long end = valid + 4 + recordLength;
+          // a corrupt length is cut off like an incomplete record
+          if (recordLength < 0 || end > length) {
+            break;
+          }
+          valid = end;
+          count++;
+        }
+        if (valid < length) {
+          log.warn("cutting {} bytes of an incomplete record off {}", length - valid, file);
+          in.setLength(valid);
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new JwbfException("could not read " + file, e);
+    }
+    return new ResultSpool<T>(file, codec, count);
+  }
+
+  /**
+   * @param file
+   *          which is replaced by an empty spool
+   * @return a spool of strings
+   */
+  public static ResultSpool<String> ofStrings(File file) {
+    return new ResultSpool<String>(file, STRINGS);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return number of items
+   */
+  public long size() {
+    return size;
+  }
+
+  public void add(T value) {
+    try {
+      record.reset();
+      codec.write(value, recordOut);
+      out.writeInt(record.size());
+      record.writeTo(out);
+      size++;
+    } catch (IOException e) {
+      throw new JwbfException("could not write to " + file, e);
+    }
+  }
+
+  /**
+   * @return this spool
+   */
+  public ResultSpool<T> addAll(Iterable<? extends T> values) {
+    for (T value : values) {
+      add(value);
+    }
+    return this;
+  }
+
+  /**
+   * Writes buffered items to the file.
+   */
+  public void flush() {
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new JwbfException("could not write to " + file, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Iterator<T> iterator() {
+    return new SpoolIterator();
+  }
+
+  /**
+   * Sorts the items with {@link #DEFAULT_RUN_SIZE} items in memory.
+   *
+   * @see #sort(Comparator, boolean, int, File)
+   */
+  public ResultSpool<T> sort(Comparator<? super T> comparator, boolean distinct, File target) {
+    return sort(comparator, distinct, DEFAULT_RUN_SIZE, target);
+  }
+
+  /**
+   * Sorts the items by an external merge sort: runs of at most <code>runSize</code> items are
+   * sorted in memory and written to temporary files next to the target, then all runs are merged.
+   *
+   * @param distinct
+   *          if only the first of equal items is kept
+   * @param runSize
+   *          maximum number of items in memory
+   * @param target
+   *          file of the sorted spool
+   * @return a new spool of the sorted items
+   */
+  public ResultSpool<T> sort(Comparator<? super T> comparator, boolean distinct, int runSize,
+      File target) {
+    List<ResultSpool<T>> runs = Lists.newArrayList();
+    try {
+      List<T> buffer = Lists.newArrayListWithCapacity((int) Math.min(size, runSize));
+      for (T value : this) {
+        buffer.add(value);
+        if (buffer.size() == runSize) {
+          runs.add(writeRun(buffer, comparator, target));
+          buffer.clear();
+        }
+      }
+      if (!buffer.isEmpty() || runs.isEmpty()) {
+        runs.add(writeRun(buffer, comparator, target));
+      }
+      log.debug("merging {} runs of {}", runs.size(), file);
+      ResultSpool<T> sorted = new ResultSpool<T>(target, codec);
+      T last = null;
+      for (T value : merge(runs, comparator)) {
+        if (!distinct || sorted.size() == 0 || comparator.compare(last, value) != 0) {
+          sorted.add(value);
+        }
+        last = value;
+      }
+      sorted.flush();
+      return sorted;
+    } finally {
+      for (ResultSpool<T> run : runs) {
+        run.delete();
+      }
+    }
+  }
+
+  private ResultSpool<T> writeRun(List<T> buffer, Comparator<? super T> comparator, File target) {
+    Collections.sort(buffer, comparator);
+    File runFile;
+    try {
+      runFile = File.createTempFile("run", ".spool", target.getAbsoluteFile().getParentFile());
+    } catch (IOException e) {
+      throw new JwbfException("could not create a run for " + target, e);
+    }
+    return new ResultSpool<T>(runFile, codec).addAll(buffer);
+  }
+
+  private Iterable<T> merge(final List<ResultSpool<T>> runs,
+      final Comparator<? super T> comparator) {
+    return new Iterable<T>() {
+
+      public Iterator<T> iterator() {
+        final PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<PeekingIterator<T>>(
+            Math.max(1, runs.size()), new Comparator<PeekingIterator<T>>() {
+
+              public int compare(PeekingIterator<T> a, PeekingIterator<T> b) {
+                return comparator.compare(a.peek(), b.peek());
+              }
+            });
+        for (ResultSpool<T> run : runs) {
+          PeekingIterator<T> head = Iterators.peekingIterator(run.iterator());
+          if (head.hasNext()) {
+            heads.add(head);
+          }
+        }
+        return new AbstractIterator<T>() {
+
+          @Override
+          protected T computeNext() {
+            PeekingIterator<T> head = heads.poll();
+            if (head == null) {
+              return endOfData();
+            }
+            T value = head.next();
+            if (head.hasNext()) {
+              heads.add(head);
+            }
+            return value;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Finds the items of this spool which are not in the other one. Both spools must be sorted by the
+   * comparator, see {@link #sort(Comparator, boolean, File)}.
+   *
+   * @param target
+   *          file of the result
+   * @return a new sorted spool of the items only in this spool
+   */
+  public ResultSpool<T> difference(ResultSpool<T> other, Comparator<? super T> comparator,
+      File target) {
+    ResultSpool<T> result = new ResultSpool<T>(target, codec);
+    SpoolIterator otherIterator = other.new SpoolIterator();
+    PeekingIterator<T> others = Iterators.peekingIterator(otherIterator);
+    for (T value : this) {
+      while (others.hasNext() && comparator.compare(others.peek(), value) < 0) {
+        others.next();
+      }
+      if (!others.hasNext() || comparator.compare(others.peek(), value) != 0) {
+        result.add(value);
+      }
+    }
+    otherIterator.close();
+    result.flush();
+    return result;
+  }
+
+  /**
+   * @return true if the items are in the order of the comparator
+   */
+  public boolean isSorted(Comparator<? super T> comparator) {
+    return Ordering.from(comparator).isOrdered(this);
+  }
+
+  /**
+   * Closes the file and all open iterators; the items can still be read by new iterators.
+   */
+  public void close() {
+    for (SpoolIterator reader : Lists.newArrayList(readers)) {
+      reader.close();
+    }
+    try {
+      out.close();
+    } catch (IOException e) {
+      throw new JwbfException("could not close " + file, e);
+    }
+  }
+
+  /**
+   * Closes and deletes the file.
+   */
+  public void delete() {
+    close();
+    if (!file.delete()) {
+      log.warn("could not delete {}", file);
+    }
+  }
+
+  /**
+   * Reads the items added before its creation.
+   */
+  private class SpoolIterator extends AbstractIterator<T> implements Closeable {
+
+    private final long count = size;
+    private final DataInputStream in;
+    private long read = 0;
+
+    SpoolIterator() {
+      flush();
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      } catch (IOException e) {
+        throw new JwbfException("could not read " + file, e);
+      }
+      readers.add(this);
+    }
+
+    @Override
+    protected T computeNext() {
+      if (read == count) {
+        close();
+        return endOfData();
+      }
+      try {
+        in.readInt();
+        read++;
+        return codec.read(in);
+      } catch (EOFException e) {
+        throw new JwbfException(file + " is truncated after " + read + " items", e);
+      } catch (IOException e) {
+        throw new JwbfException("could not read " + file, e);
+      }
+    }
+
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // all items which were read are complete
+        log.debug("could not close " + file, e);
+      }
+      readers.remove(this);
+    }
+  }
+
+}
@@ -0,0 +1,691 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps all articles in a few large, append-only segment files, so that it can hold the current
+ * revisions of a whole wiki. Every {@link #put(SimpleArticle, long)} and
+ * {@link #remove(String)} appends a record to the active segment; a record has a length, a CRC32
+ * and the article in the format of {@link ArticleCodec}. Once a segment is larger than the
+ * segment size, it is sealed, memory mapped for reads and a hint file with the titles and offsets
+ * of its records is written next to it.
+ * <p>
+ * The index from the full title to the latest record is kept in memory and built from the hint
+ * files when the store is opened; segments without a hint file are scanned, and a partly written
+ * record at the end of the last segment is cut off. Sealed segments in which at least half of the
+ * bytes belong to replaced or removed articles are compacted by a background thread, which copies
+ * the live records to the active segment and deletes the old files.
+ * </p>
+ *
+ * <pre>
+ * SegmentArticleStore store = new SegmentArticleStore(new File(&quot;cache&quot;));
+ * TieredCache cache = new TieredCache(store, 1000, 64 * 1024 * 1024, 7, TimeUnit.DAYS);
+ * ...
+ * store.close();
+ * </pre>
+ *
+ * Only one store may use a folder at a time.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class SegmentArticleStore implements ArticleStore, Closeable {
+
+  public static final long DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+  private static final String DATA_EXT = ".seg";
+  private static final String HINT_EXT = ".hint";
+  private static final int HINT_MAGIC = 0x4A414831;
+  private static final int HEADER_BYTES = 8;
+  private static final byte PUT = 0;
+  private static final byte TOMBSTONE = 1;
+
+  private final File folder;
+  private final long segmentBytes;
+  private final Map<String, Slot> index = Maps.newConcurrentMap();
+  /** Sealed segments, oldest first; guarded by this. */
+  private final List<Segment> sealed = Lists.newArrayList();
+  private Segment active;
+  private int nextId;
+
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(//
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jwbf-compaction-%d").build());
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  /** Held while compacting, so that background and direct compactions do not overlap. */
+  private final Object compactionLock = new Object();
+  private volatile boolean closed = false;
+
+  /**
+   * A store with segments of {@link #DEFAULT_SEGMENT_BYTES}.
+   *
+   * @param folder
+   *          for the segments, created if missing
+   * @throws IOException
+   *           if the existing segments cannot be read
+   */
+  public SegmentArticleStore(File folder) throws IOException {
+    this(folder, DEFAULT_SEGMENT_BYTES);
+  }
+
+  /**
+   * @param folder
+   *          for the segments, created if missing
+   * @param segmentBytes
+   *          size after which a segment is sealed, at most {@link Integer#MAX_VALUE}
+   * @throws IOException
+   *           if the existing segments cannot be read
+   */
+  public SegmentArticleStore(File folder, long segmentBytes) throws IOException {
+    if (segmentBytes < 1 || segmentBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("segment size must be between 1 and "
+          + Integer.MAX_VALUE);
+    }
+    if (!folder.isDirectory() && !folder.mkdirs()) {
+      throw new IllegalArgumentException("cannot create " + folder);
+    }
+    this.folder = folder;
+    this.segmentBytes = segmentBytes;
+    open();
+  }
+
+  private synchronized void open() throws IOException {
+    File[] files = listFiles(DATA_EXT);
+    for (int i = 0; i < files.length; i++) {
+      int id = idOf(files[i]);
+      Segment segment = new Segment(files[i]);
+      List<Slot> slots = readHints(segment);
+      if (slots == null) {
+        // usually the active segment of the last run, which may end with a partly written record
+        slots = scan(segment, true);
+      }
+      segment.map();
+      for (Slot slot : slots) {
+        apply(slot);
+      }
+      if (!segment.hint.exists()) {
+        writeHints(segment, slots);
+      }
+      sealed.add(segment);
+      nextId = id + 1;
+    }
+    active = new Segment(dataFile(nextId++));
+    log.debug("opened {} articles in {} segments", index.size(), sealed.size());
+    scheduleCompaction();
+  }
+
+  /**
+   * Updates the index with a record read from a segment or appended to it.
+   */
+  private void apply(Slot slot) {
+    Slot old;
+    if (slot.type == PUT) {
+      old = index.put(slot.title, slot);
+    } else {
+      old = index.remove(slot.title);
+      slot.segment.deadBytes.addAndGet(slot.length);
+    }
+    if (old != null) {
+      old.segment.deadBytes.addAndGet(old.length);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void put(SimpleArticle article, long savedAt) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(ArticleCodec.weigh(article));
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(savedAt);
+      out.writeByte(PUT);
+      ArticleCodec.write(out, article);
+      append(article.getTitle(), PUT, savedAt, bytes.toByteArray());
+    } catch (IOException e) {
+      log.warn("cannot store " + article.getTitle(), e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @CheckForNull
+  public Entry get(String title) {
+    Slot slot = index.get(title);
+    if (slot == null) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(slot.readBody());
+      long savedAt = in.readLong();
+      in.readByte();
+      SimpleArticle article = ArticleCodec.read(in);
+      if (!title.equals(article.getTitle())) {
+        throw new IOException("found " + article.getTitle());
+      }
+      return new Entry(article, savedAt);
+    } catch (IOException e) {
+      if (index.get(title) != slot) {
+        // moved by the compaction or replaced meanwhile
+        return get(title);
+      }
+      log.warn("cannot read " + title + " from " + slot.segment.data + ", removing it", e);
+      remove(title);
+      return null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void remove(String title) {
+    if (!index.containsKey(title)) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(0);
+      out.writeByte(TOMBSTONE);
+      ArticleCodec.writeString(out, title);
+      append(title, TOMBSTONE, 0, bytes.toByteArray());
+    } catch (IOException e) {
+      log.warn("cannot remove " + title, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void removeOlderThan(long savedAt) {
+    for (Slot slot : index.values()) {
+      if (slot.savedAt < savedAt) {
+        remove(slot.title);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void clear() {
+    for (Segment segment : sealed) {
+      segment.delete();
+    }
+    sealed.clear();
+    active.delete();
+    index.clear();
+    active = new Segment(dataFile(nextId++));
+  }
+
+  /**
+   * @return the number of articles
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * @return the number of segment files, including the active one
+   */
+  public synchronized int getSegmentCount() {
+    return sealed.size() + 1;
+  }
+
+  /**
+   * Stops the compaction and closes the files; the store cannot be used anymore.
+   *
+   * @throws JwbfException
+   *           if a segment could not be closed, e.g. because the written data could not be flushed
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    compactor.shutdown();
+    IOException failure = null;
+    for (Segment segment : Iterables.concat(sealed, Collections.singleton(active))) {
+      try {
+        segment.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw new JwbfException("could not close the segments in " + folder, failure);
+    }
+  }
+
+  /**
+   * Appends a record, whose body starts with savedAt and type, to the active segment.
+   */
+  private synchronized void append(String title, byte type, long savedAt, byte[] body)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("store is closed");
+    }
+    CRC32 crc = new CRC32();
+    crc.update(body, 0, body.length);
+    byte[] record = new byte[HEADER_BYTES + body.length];
+    ByteBuffer.wrap(record).putInt(body.length).putInt((int) crc.getValue()).put(body);
+    appendRecord(new Slot(title, type, savedAt), record);
+  }
+
+  /**
+   * Appends a complete record and makes it the latest of its title.
+   */
+  private void appendRecord(Slot slot, byte[] record) throws IOException {
+    slot.segment = active;
+    slot.offset = active.append(record);
+    slot.length = record.length;
+    apply(slot);
+    if (active.size >= segmentBytes) {
+      seal();
+    }
+  }
+
+  private void seal() throws IOException {
+    Segment segment = active;
+    segment.map();
+    writeHints(segment, scan(segment, false));
+    sealed.add(segment);
+    active = new Segment(dataFile(nextId++));
+    scheduleCompaction();
+  }
+
+  private void scheduleCompaction() {
+    if (!closed && compactionScheduled.compareAndSet(false, true)) {
+      compactor.execute(new Runnable() {
+
+        public void run() {
+          compactionScheduled.set(false);
+          try {
+            compact();
+          } catch (IOException e) {
+            log.warn("compaction failed", e);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Rewrites the sealed segments in which at least half of the bytes are no longer used. This is
+   * done in the background after a segment has been sealed, but may also be called directly.
+   *
+   * @throws IOException
+   *           if a segment cannot be read or written
+   */
+  public void compact() throws IOException {
+    synchronized (compactionLock) {
+      List<Segment> candidates = Lists.newArrayList();
+      synchronized (this) {
+        for (Segment segment : sealed) {
+          if (segment.deadBytes.get() * 2 >= segment.size) {
+            candidates.add(segment);
+          }
+        }
+      }
+      for (Segment segment : candidates) {
+        compact(segment);
+      }
+    }
+  }
+
+  private void compact(Segment segment) throws IOException {
+    List<Slot> slots = readHints(segment);
+    if (slots == null) {
+      slots = scan(segment, false);
+    }
+    int copied = 0;
+    for (Slot slot : slots) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        if (isLive(slot) || isNeededTombstone(slot, segment)) {
+          appendRecord(new Slot(slot.title, slot.type, slot.savedAt), slot.readRecord());
+          copied++;
+        }
+      }
+    }
+    synchronized (this) {
+      sealed.remove(segment);
+      segment.delete();
+    }
+    log.debug("compacted {}, kept {} of {} records", new Object[] { segment.data, copied,
+        slots.size() });
+  }
+
+  private boolean isLive(Slot slot) {
+    Slot latest = index.get(slot.title);
+    return slot.type == PUT && latest != null && latest.segment == slot.segment
+        && latest.offset == slot.offset;
+  }
+
+  /**
+   * A tombstone hides the records of its title in older segments.
+   */
+  private boolean isNeededTombstone(Slot slot, Segment segment) {
+    return slot.type == TOMBSTONE && !index.containsKey(slot.title) && !sealed.isEmpty()
+        && sealed.get(0) != segment;
+  }
+
+  /**
+   * Reads the records of a mapped segment.
+   *
+   * @param truncate
+   *          true to cut off invalid records at the end, false to fail on them
+   */
+  private List<Slot> scan(Segment segment, boolean truncate) throws IOException {
+    List<Slot> slots = Lists.newArrayList();
+    if (segment.mapped == null) {
+      segment.map();
+    }
+    ByteBuffer buffer = segment.mapped.duplicate();
+    long end = 0;
+    while (end < segment.size) {
+      Slot slot = readSlot(segment, buffer, (int) end);
+      if (slot == null) {
+        if (!truncate) {
+          throw new IOException("invalid record at " + end + " in " + segment.data);
+        }
+        log.warn("cutting off {} bytes of {}", segment.size - end, segment.data);
+        segment.truncate(end);
+        break;
+      }
+      slots.add(slot);
+      end += slot.length;
+    }
+    return slots;
+  }
+
+  @CheckForNull
+  private static Slot readSlot(Segment segment, ByteBuffer buffer, int offset) {
+    if (segment.size - offset < HEADER_BYTES) {
+      return null;
+    }
+    buffer.position(offset);
+    int bodyLength = buffer.getInt();
+    int crc = buffer.getInt();
+    if (bodyLength < 0 || bodyLength > segment.size - offset - HEADER_BYTES) {
+      return null;
+    }
+    byte[] body = new byte[bodyLength];
+    buffer.get(body);
+    CRC32 actual = new CRC32();
+    actual.update(body, 0, bodyLength);
+    if ((int) actual.getValue() != crc) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+      long savedAt = in.readLong();
+      byte type = in.readByte();
+      Slot slot = new Slot(ArticleCodec.readString(in), type, savedAt);
+      slot.segment = segment;
+      slot.offset = offset;
+      slot.length = HEADER_BYTES + bodyLength;
+      return slot;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the records listed in the hint file of the segment, or null if there is no valid one
+   */
+  @CheckForNull
+  private static List<Slot> readHints(Segment segment) {
+    if (!segment.hint.exists()) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+          segment.hint)));
+      try {
+        if (in.readInt() != HINT_MAGIC) {
+          throw new IOException("not a hint file");
+        }
+        int count = in.readInt();
+        List<Slot> slots = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+          Slot slot = new Slot(ArticleCodec.readString(in), in.readByte(), in.readLong());
+          slot.segment = segment;
+          slot.offset = in.readLong();
+          slot.length = in.readInt();
+          slots.add(slot);
+        }
+        return slots;
+      } finally {
+        Closeables.close(in, true);
+      }
+    } catch (IOException e) {
+      log.warn("cannot read " + segment.hint + ", scanning the segment", e);
+      return null;
+    }
+  }
+
+  private static void writeHints(Segment segment, List<Slot> slots) throws IOException {
+    File temp = new File(segment.hint.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+        temp)));
+    try {
+      out.writeInt(HINT_MAGIC);
+      out.writeInt(slots.size());
+      for (Slot slot : slots) {
+        ArticleCodec.writeString(out, slot.title);
+        out.writeByte(slot.type);
+        out.writeLong(slot.savedAt);
+        out.writeLong(slot.offset);
+        out.writeInt(slot.length);
+      }
+    } finally {
+      out.close();
+    }
+    if (!temp.renameTo(segment.hint)) {
+      temp.delete();
+      throw new IOException("cannot rename " + temp);
+    }
+  }
+
+  private File[] listFiles(final String ext) {
+    File[] files = folder.listFiles(new FilenameFilter() {
+
+      public boolean accept(File dir, String name) {
+        return name.endsWith(ext);
+      }
+    });
+    if (files == null) {
+      return new File[0];
+    }
+    // the names have a fixed width, so they sort by id
+    Arrays.sort(files);
+    return files;
+  }
+
+  private File dataFile(int id) {
+    return new File(folder, String.format("%010d", Integer.valueOf(id)) + DATA_EXT);
+  }
+
+  private static int idOf(File data) {
+    String name = data.getName();
+    return Integer.parseInt(name.substring(0, name.length() - DATA_EXT.length()));
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + folder + ", " + size() + " articles]";
+  }
+
+  /**
+   * A data file with its hint file. Reads and writes use the {@link RandomAccessFile}, because an
+   * interrupted thread would close a shared {@link FileChannel}.
+   */
+  private static class Segment {
+
+    private final File data;
+    private final File hint;
+    private final RandomAccessFile file;
+    /**
+     * Set when sealed; reads of sealed segments use the mapping, which stays valid after the file
+     * has been closed or deleted by the compaction.
+     */
+    private volatile MappedByteBuffer mapped;
+    private volatile long size;
+    private final AtomicLong deadBytes = new AtomicLong();
+
+    Segment(File data) {
+      this.data = data;
+      String name = data.getName();
+      hint = new File(data.getParentFile(), name.substring(0, name.length() - DATA_EXT.length())
+          + HINT_EXT);
+      try {
+        file = new RandomAccessFile(data, "rw");
+        size = file.length();
+      } catch (IOException e) {
+        throw new IllegalStateException("cannot open " + data, e);
+      }
+    }
+
+    void map() throws IOException {
+      mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    void truncate(long length) throws IOException {
+      // a mapping cannot be shrunk; the old one is released by the garbage collector
+      mapped = null;
+      synchronized (file) {
+        file.setLength(length);
+      }
+      size = length;
+      map();
+    }
+
+    /**
+     * @return the offset of the record
+     */
+    long append(byte[] record) throws IOException {
+      synchronized (file) {
+        long offset = size;
+        file.seek(offset);
+        file.write(record);
+        size = offset + record.length;
+        return offset;
+      }
+    }
+
+    byte[] read(long offset, int length) throws IOException {
+      byte[] bytes = new byte[length];
+      MappedByteBuffer buffer = mapped;
+      if (buffer != null) {
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) offset);
+        view.get(bytes);
+        return bytes;
+      }
+      synchronized (file) {
+        file.seek(offset);
+        file.readFully(bytes);
+      }
+      return bytes;
+    }
+
+    void close() throws IOException {
+      file.close();
+    }
+
+    void delete() {
+      try {
+        close();
+      } catch (IOException e) {
+        // the data is deleted anyway
+        log.debug("cannot close " + data, e);
+      }
+      if (!data.delete()) {
+        log.warn("cannot delete {}", data);
+      }
+      hint.delete();
+    }
+  }
+
+  /**
+   * The position of a record; the index keeps the latest of each title.
+   */
+  private static class Slot {
+
+    private final String title;
+    private final byte type;
+    private final long savedAt;
+    private Segment segment;
+    private long offset;
+    private int length;
+
+    Slot(String title, byte type, long savedAt) {
+      this.title = title;
+      this.type = type;
+      this.savedAt = savedAt;
+    }
+
+    byte[] readRecord() throws IOException {
+      return segment.read(offset, length);
+    }
+
+    /**
+     * @return the body of the record after checking its CRC
+     */
+    ByteArrayInputStream readBody() throws IOException {
+      byte[] record = readRecord();
+      ByteBuffer buffer = ByteBuffer.wrap(record);
+      int bodyLength = buffer.getInt();
+      int crc = buffer.getInt();
+      if (bodyLength != length - HEADER_BYTES) {
+        throw new IOException("invalid record at " + offset);
+      }
+      CRC32 actual = new CRC32();
+      actual.update(record, HEADER_BYTES, bodyLength);
+      if ((int) actual.getValue() != crc) {
+        throw new IOException("invalid checksum at " + offset);
+      }
+      return new ByteArrayInputStream(record, HEADER_BYTES, bodyLength);
+    }
+  }
+
+}
@@ -12,11 +12,17 @@ import java.util.Map;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
+import javax.annotation.CheckForNull;
+
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 
 import com.google.common.collect.Maps;
 
+/**
+ * @deprecated not thread safe and reads the file on every check; use {@link TieredCache}
+ */
+@Deprecated
 @Slf4j
 public class SimpleCache implements CacheHandler {
 
@@ -48,7 +54,7 @@ public class SimpleCache implements CacheHandler {
       CachArticle it = read(title);
 
       long dif = it.getSaveDate().getTime() - System.currentTimeMillis() + maxSaveTimeMils;
-      System.out.println("maintain: timedif file " + dif); // TODO RM
+      log.trace("maintain: timedif file {}", dif);
       if (dif < 0) {
 
         log.debug("maintain: delete: " + fx.getAbsolutePath()); // TODO RM
@@ -60,7 +66,7 @@ public class SimpleCache implements CacheHandler {
     if (dynStore.containsKey(title)) {
       CachArticle it = dynStore.get(title);
       long dif = it.getSaveDate().getTime() - System.currentTimeMillis() + objectLiveTimeMilis;
-      System.out.println("maintain: timedif dyn  " + dif); // TODO RM
+      log.trace("maintain: timedif dyn {}", dif);
       if (dif < 0) {
 
         log.debug("maintain: remove: " + it.getTitle()); // TODO RM
@@ -80,6 +86,17 @@ public class SimpleCache implements CacheHandler {
     return new SimpleArticle(title);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @CheckForNull
+  public SimpleArticle getIfPresent(String title) {
+    if (containsKey(title)) {
+      return read(title);
+    }
+    return null;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -89,6 +106,14 @@ public class SimpleCache implements CacheHandler {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public void remove(String title) {
+    dynStore.remove(title);
+    new File(folder, getChecksum(title) + ext).delete();
+  }
+
   protected void write2File(CachArticle ca) {
     OutputStream fos = null;
 
@@ -0,0 +1,373 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import net.sourceforge.jwbf.core.contentRep.CompressedArticle;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * A {@link CacheHandler} with a bounded memory tier and an optional {@link ArticleStore} on disk.
+ * Articles are written to both tiers; an article which has been evicted from memory is read from
+ * the store and kept in memory again. Memory hits do no I/O.
+ *
+ * <pre>
+ * TieredCache cache = new TieredCache(new FileArticleStore(new File(&quot;cache&quot;)), 1000,
+ *     64 * 1024 * 1024, 1, TimeUnit.HOURS);
+ * bot.setCacheHandler(cache);
+ * </pre>
+ *
+ * The memory tier is a Guava {@link Cache}, whose segments are locked independently, and evicts
+ * the least recently used articles. Its bounds are approximate. Entries expire after the time to
+ * live in both tiers, counted from the last {@link #put(SimpleArticle)} of the article.
+ *
+ * @author Thomas Stock
+ */
+public class TieredCache implements CacheHandler {
+
+  /** Disables a bound. */
+  public static final long UNLIMITED = -1;
+
+  private static final Ticker WALL_CLOCK = new Ticker() {
+    @Override
+    public long read() {
+      return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+  };
+
+  @Nullable
+  private final ArticleStore store;
+  private final long ttlMillis;
+  private final Ticker ticker;
+  private final Cache<String, ArticleStore.Entry> memory;
+
+  private volatile boolean compressText = false;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong storeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  /**
+   * A cache without disk tier.
+   *
+   * @param maxEntries
+   *          in memory, or {@link #UNLIMITED}
+   * @param maxBytes
+   *          estimated size of the articles in memory, or {@link #UNLIMITED}
+   * @param ttl
+   *          time to live
+   */
+  public TieredCache(long maxEntries, long maxBytes, long ttl, TimeUnit unit) {
+    this((ArticleStore) null, maxEntries, maxBytes, ttl, unit);
+  }
+
+  /**
+   * A cache with one file per article in the folder, see {@link FileArticleStore}.
+   */
+  public TieredCache(File folder, long maxEntries, long maxBytes, long ttl, TimeUnit unit) {
+    this(new FileArticleStore(folder), maxEntries, maxBytes, ttl, unit);
+  }
+
+  /**
+   * @param store
+   *          disk tier, may be null
+   * @param maxEntries
+   *          in memory, or {@link #UNLIMITED}
+   * @param maxBytes
+   *          estimated size of the articles in memory, or {@link #UNLIMITED}
+   * @param ttl
+   *          time to live
+   */
+  public TieredCache(@Nullable ArticleStore store, long maxEntries, long maxBytes, long ttl,
+      TimeUnit unit) {
+    this(store, maxEntries, maxBytes, ttl, unit, WALL_CLOCK);
+  }
+
+  TieredCache(@Nullable ArticleStore store, long maxEntries, long maxBytes, long ttl,
+      TimeUnit unit, Ticker ticker) {
+    this.store = store;
+    this.ttlMillis = unit.toMillis(ttl);
+    this.ticker = ticker;
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder() //
+        .ticker(ticker) //
+        .expireAfterWrite(ttl, unit);
+    if (maxEntries >= 0 || maxBytes >= 0) {
+      builder.maximumWeight(maxWeight(maxEntries, maxBytes)) //
+          .weigher(new ArticleWeigher(minWeight(maxEntries, maxBytes), maxBytes >= 0));
+    }
+    memory = builder.removalListener(new RemovalListener<String, ArticleStore.Entry>() {
+
+      public void onRemoval(RemovalNotification<String, ArticleStore.Entry> notification) {
+        if (notification.wasEvicted()) {
+          evictions.incrementAndGet();
+        }
+      }
+    }).build();
+  }
+
+  private static long maxWeight(long maxEntries, long maxBytes) {
+    if (maxBytes >= 0) {
+      return maxBytes;
+    }
+    return maxEntries;
+  }
+
+  /**
+   * If both bounds are set, every entry weighs at least <code>maxBytes / maxEntries</code>, so that
+   * no more than maxEntries fit.
+   */
+  private static int minWeight(long maxEntries, long maxBytes) {
+    if (maxEntries > 0 && maxBytes >= 0) {
+      return (int) Math.min(Integer.MAX_VALUE, (maxBytes + maxEntries - 1) / maxEntries);
+    }
+    return 1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void put(SimpleArticle sa) {
+    SimpleArticle copy;
+    if (compressText) {
+      copy = new CompressedArticle(sa);
+    } else {
+      copy = new SimpleArticle(sa);
+    }
+    ArticleStore.Entry entry = new ArticleStore.Entry(copy, now());
+    memory.put(sa.getTitle(), entry);
+    if (store != null) {
+      store.put(entry.getArticle(), entry.getSavedAt());
+    }
+  }
+
+  /**
+   * {@inheritDoc} Returns an empty article with the title if there is none.
+   */
+  public SimpleArticle get(String title) {
+    SimpleArticle article = getIfPresent(title);
+    if (article == null) {
+      return new SimpleArticle(title);
+    }
+    return article;
+  }
+
+  /**
+   * {@inheritDoc} Returns a copy.
+   */
+  @CheckForNull
+  public SimpleArticle getIfPresent(String title) {
+    ArticleStore.Entry entry = lookup(title);
+    if (entry == null) {
+      return null;
+    }
+    return new SimpleArticle(entry.getArticle());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean containsKey(String title) {
+    return lookup(title) != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void remove(String title) {
+    memory.invalidate(title);
+    if (store != null) {
+      store.remove(title);
+    }
+  }
+
+  /**
+   * Removes all articles from both tiers.
+   */
+  public void clear() {
+    memory.invalidateAll();
+    if (store != null) {
+      store.clear();
+    }
+  }
+
+  /**
+   * Removes the expired articles from both tiers; the disk tier is otherwise cleaned only when an
+   * expired article is read.
+   */
+  public void cleanUp() {
+    memory.cleanUp();
+    if (store != null) {
+      store.removeOlderThan(now() - ttlMillis);
+    }
+  }
+
+  @CheckForNull
+  private ArticleStore.Entry lookup(String title) {
+    ArticleStore.Entry entry = memory.getIfPresent(title);
+    if (entry != null) {
+      if (!isExpired(entry)) {
+        memoryHits.incrementAndGet();
+        return entry;
+      }
+      memory.invalidate(title);
+    }
+    if (store != null) {
+      entry = store.get(title);
+      if (entry != null) {
+        if (!isExpired(entry)) {
+          storeHits.incrementAndGet();
+          memory.put(title, entry);
+          return entry;
+        }
+        expirations.incrementAndGet();
+        store.remove(title);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Entries read from the store keep their original age, although the memory tier counts from
+   * their promotion.
+   */
+  private boolean isExpired(ArticleStore.Entry entry) {
+    return now() - entry.getSavedAt() >= ttlMillis;
+  }
+
+  private long now() {
+    return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+  }
+
+  /**
+   * @param compressText
+   *          true to keep the texts of the following articles compressed in memory, see
+   *          {@link CompressedArticle}; about four times more articles fit into the byte bound,
+   *          but every read decompresses the text. Articles read from the disk tier stay compressed
+   *          anyway, because they are stored compressed.
+   */
+  public void setCompressText(boolean compressText) {
+    this.compressText = compressText;
+  }
+
+  /**
+   * @return the number of articles in memory
+   */
+  public long getMemorySize() {
+    return memory.size();
+  }
+
+  /**
+   * @return a snapshot of the counters
+   */
+  public Stats getStats() {
+    return new Stats(memoryHits.get(), storeHits.get(), misses.get(), evictions.get(),
+        expirations.get());
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + getStats();
+  }
+
+  /**
+   * Counters of a {@link TieredCache}.
+   */
+  public static final class Stats {
+
+    private final long memoryHits;
+    private final long storeHits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+
+    Stats(long memoryHits, long storeHits, long misses, long evictions, long expirations) {
+      this.memoryHits = memoryHits;
+      this.storeHits = storeHits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.expirations = expirations;
+    }
+
+    /**
+     * @return lookups answered from memory
+     */
+    public long getMemoryHits() {
+      return memoryHits;
+    }
+
+    /**
+     * @return lookups answered from the disk tier
+     */
+    public long getStoreHits() {
+      return storeHits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * @return articles evicted from memory because of its bounds or their age
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * @return expired articles found in the disk tier
+     */
+    public long getExpirations() {
+      return expirations;
+    }
+
+    /**
+     * @return hits of both tiers per lookup, or 0 without lookups
+     */
+    public double getHitRate() {
+      long lookups = memoryHits + storeHits + misses;
+      if (lookups == 0) {
+        return 0;
+      }
+      return (double) (memoryHits + storeHits) / lookups;
+    }
+
+    @Override
+    public String toString() {
+      return "[memoryHits=" + memoryHits + ", storeHits=" + storeHits + ", misses=" + misses
+          + ", evictions=" + evictions + ", expirations=" + expirations + "]";
+    }
+  }
+
+  private static class ArticleWeigher implements Weigher<String, ArticleStore.Entry> {
+
+    private final int minWeight;
+    private final boolean bySize;
+
+    ArticleWeigher(int minWeight, boolean bySize) {
+      this.minWeight = minWeight;
+      this.bySize = bySize;
+    }
+
+    public int weigh(String title, ArticleStore.Entry entry) {
+      if (bySize) {
+        return Math.max(minWeight, ArticleCodec.weigh(entry.getArticle()));
+      }
+      return minWeight;
+    }
+  }
+
+}
@@ -0,0 +1,310 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+/**
+ * Numbers titles from 0 on and stores them as UTF-8 in a few large buffers instead of one
+ * <code>String</code> per title. The index is an open addressing hash table of primitive ints, so
+ * a title needs its encoded length plus about 25 bytes, where a <code>HashSet&lt;String&gt;</code>
+ * needs about 80 bytes plus two bytes per char.
+ *
+ * <pre>
+ * TitleDictionary titles = new TitleDictionary();
+ * for (String title : new AllPageTitles(bot, MediaWiki.NS_MAIN)) {
+ *   titles.add(title);
+ * }
+ * </pre>
+ *
+ * The buffers can be allocated outside of the heap, see {@link #TitleDictionary(int, boolean)}.
+ * Titles can only be added, not removed. Adding is not thread safe; once all titles are added,
+ * any number of threads may look them up.
+ *
+ * @author Thomas Stock
+ */
+public class TitleDictionary implements TitleSet {
+
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final int DEFAULT_EXPECTED_SIZE = 1024;
+  /** a table with more used slots than this fraction is doubled. */
+  private static final double MAX_LOAD = 0.5;
+
+  private final boolean direct;
+  private final List<ByteBuffer> chunks = Lists.newArrayList();
+  private ByteBuffer current;
+  /** chunk in the upper, position in the lower 32 bits, by id. */
+  private long[] addresses;
+  /** hash of the encoded title, by id. */
+  private int[] hashes;
+  /** id + 1 of the title in a slot, 0 for an empty slot. */
+  private int[] table;
+  private int size = 0;
+
+  /** Encoded title; one per thread, so that concurrent lookups do not share a buffer. */
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
+  private static final class Scratch {
+    private byte[] bytes = new byte[256];
+    private int length;
+  }
+
+  public TitleDictionary() {
+    this(DEFAULT_EXPECTED_SIZE, false);
+  }
+
+  /**
+   * @param expectedSize
+   *          number of titles, so that the index is not resized before
+   * @param direct
+   *          if the titles are stored in direct buffers outside of the heap
+   */
+  public TitleDictionary(int expectedSize, boolean direct) {
+    this.direct = direct;
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+    table = new int[capacity];
+    addresses = new long[Math.max(16, expectedSize)];
+    hashes = new int[addresses.length];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean add(String title) {
+    int before = size;
+    intern(title);
+    return size > before;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean contains(String title) {
+    return getId(title) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the id of the title, which is added if necessary
+   */
+  public int intern(String title) {
+    Scratch scratch = encode(title);
+    int hash = hash(scratch.bytes, scratch.length);
+    int slot = find(hash, scratch);
+    if (table[slot] != 0) {
+      return table[slot] - 1;
+    }
+    int id = size++;
+    if (id == addresses.length) {
+      addresses = Arrays.copyOf(addresses, id * 2);
+      hashes = Arrays.copyOf(hashes, id * 2);
+    }
+    addresses[id] = store(scratch);
+    hashes[id] = hash;
+    table[slot] = id + 1;
+    if (size > table.length * MAX_LOAD) {
+      rehash();
+    }
+    return id;
+  }
+
+  /**
+   * @return the id of the title or -1 if it was not added
+   */
+  public int getId(String title) {
+    Scratch scratch = encode(title);
+    int slot = find(hash(scratch.bytes, scratch.length), scratch);
+    return table[slot] - 1;
+  }
+
+  /**
+   * @param id
+   *          between 0 and {@link #size()} - 1
+   */
+  public String getTitle(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("no title with id " + id);
+    }
+    long address = addresses[id];
+    ByteBuffer chunk = chunks.get((int) (address >>> 32));
+    int length = readLength(chunk, (int) address);
+    int position = (int) address + headerSize(length);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = chunk.get(position + i);
+    }
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  /**
+   * @return approximate number of bytes used by the buffers and the index
+   */
+  public long getMemoryUsage() {
+    long bytes = 8L * addresses.length + 4L * hashes.length + 4L * table.length;
+    for (ByteBuffer chunk : chunks) {
+      bytes += chunk.capacity();
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the slot of the encoded title, or the empty slot where it belongs
+   */
+  private int find(int hash, Scratch scratch) {
+    int mask = table.length - 1;
+    int slot = mix(hash) & mask;
+    while (table[slot] != 0) {
+      int id = table[slot] - 1;
+      if (hashes[id] == hash && equalsScratch(addresses[id], scratch)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void rehash() {
+    int[] newTable = new int[table.length * 2];
+    int mask = newTable.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = mix(hashes[id]) & mask;
+      while (newTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      newTable[slot] = id + 1;
+    }
+    table = newTable;
+  }
+
+  private boolean equalsScratch(long address, Scratch scratch) {
+    ByteBuffer chunk = chunks.get((int) (address >>> 32));
+    int length = readLength(chunk, (int) address);
+    if (length != scratch.length) {
+      return false;
+    }
+    int position = (int) address + headerSize(length);
+    for (int i = 0; i < length; i++) {
+      if (chunk.get(position + i) != scratch.bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Appends the encoded title as length (7 bits per byte) and bytes.
+   *
+   * @return the address of the title
+   */
+  private long store(Scratch scratch) {
+    int needed = scratch.length + 5;
+    if (current == null || current.remaining() < needed) {
+      int capacity = Math.max(DEFAULT_CHUNK_SIZE, needed);
+      if (direct) {
+        current = ByteBuffer.allocateDirect(capacity);
+      } else {
+        current = ByteBuffer.allocate(capacity);
+      }
+      chunks.add(current);
+    }
+    long address = ((long) (chunks.size() - 1) << 32) | current.position();
+    int length = scratch.length;
+    while (length > 0x7F) {
+      current.put((byte) ((length & 0x7F) | 0x80));
+      length >>>= 7;
+    }
+    current.put((byte) length);
+    current.put(scratch.bytes, 0, scratch.length);
+    return address;
+  }
+
+  /**
+   * Encodes the title as UTF-8 into the {@link Scratch} of the thread, like
+   * {@link String#getBytes(String)} including the replacement of unpaired surrogates by '?', but
+   * without allocations.
+   */
+  private static Scratch encode(String title) {
+    Scratch buffer = SCRATCH.get();
+    int length = title.length();
+    if (buffer.bytes.length < length * 3) {
+      buffer.bytes = new byte[length * 3];
+    }
+    byte[] scratch = buffer.bytes;
+    int n = 0;
+    for (int i = 0; i < length; i++) {
+      char c = title.charAt(i);
+      if (c < 0x80) {
+        scratch[n++] = (byte) c;
+      } else if (c < 0x800) {
+        scratch[n++] = (byte) (0xC0 | (c >> 6));
+        scratch[n++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(title.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, title.charAt(++i));
+        scratch[n++] = (byte) (0xF0 | (codePoint >> 18));
+        scratch[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        scratch[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        scratch[n++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+        scratch[n++] = '?';
+      } else {
+        scratch[n++] = (byte) (0xE0 | (c >> 12));
+        scratch[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        scratch[n++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    buffer.length = n;
+    return buffer;
+  }
+
+  private static int readLength(ByteBuffer chunk, int position) {
+    int length = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = chunk.get(position++);
+      length |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return length;
+  }
+
+  private static int headerSize(int length) {
+    int size = 1;
+    while (length > 0x7F) {
+      length >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static int hash(byte[] bytes, int length) {
+    int hash = 0x811C9DC5;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ bytes[i]) * 0x01000193;
+    }
+    return hash;
+  }
+
+  private static int mix(int hash) {
+    int h = hash ^ (hash >>> 16);
+    h *= 0x85EBCA6B;
+    return h ^ (h >>> 13);
+  }
+
+}
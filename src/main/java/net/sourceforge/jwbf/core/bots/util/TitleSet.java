@@ -0,0 +1,28 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+/**
+ * A set of titles for membership checks and de-duplication of query results, which needs less
+ * memory than a <code>Set&lt;String&gt;</code>.
+ *
+ * @author Thomas Stock
+ * @see TitleDictionary
+ * @see BloomTitleSet
+ */
+public interface TitleSet {
+
+  /**
+   * @return true if the title was not in this set before
+   */
+  boolean add(String title);
+
+  /**
+   * @return true if the title is in this set
+   */
+  boolean contains(String title);
+
+  /**
+   * @return number of titles added
+   */
+  int size();
+
+}
@@ -0,0 +1,40 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+
+/**
+ * Static helpers for {@link TitleSet}s.
+ *
+ * @author Thomas Stock
+ */
+public final class TitleSets {
+
+  private TitleSets() {
+    // no instances
+  }
+
+  /**
+   * Removes the titles which have been seen before, e.g. by an earlier query with the same set.
+   *
+   * <pre>
+   * TitleSet seen = new TitleDictionary();
+   * for (String title : TitleSets.unseen(new AllPageTitles(bot, MediaWiki.NS_MAIN), seen)) {
+   *   // ...
+   * }
+   * </pre>
+   *
+   * @param seen
+   *          which receives each returned title
+   * @return a lazy view of the titles
+   */
+  public static Iterable<String> unseen(Iterable<String> titles, final TitleSet seen) {
+    return Iterables.filter(titles, new Predicate<String>() {
+
+      public boolean apply(String title) {
+        return seen.add(title);
+      }
+    });
+  }
+
+}
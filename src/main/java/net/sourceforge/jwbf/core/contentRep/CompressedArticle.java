@@ -0,0 +1,70 @@
+package net.sourceforge.jwbf.core.contentRep;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A {@link SimpleArticle} which keeps its text compressed by {@link TextCompressor}, to hold many
+ * articles in memory. Wikitext shrinks to about a quarter. The text is decompressed on every
+ * {@link #getText()}, so callers which read it more than once should keep the result.
+ *
+ * @author Thomas Stock
+ */
+public class CompressedArticle extends SimpleArticle {
+
+  private static final long serialVersionUID = 2927845016735163422L;
+
+  private byte[] compressedText;
+
+  public CompressedArticle(String title) {
+    super(title);
+    setText(super.getText());
+  }
+
+  /**
+   * Copies the article; the text of another compressed article is not compressed again.
+   */
+  public CompressedArticle(ArticleMeta article) {
+    super(article);
+    if (article instanceof CompressedArticle) {
+      setCompressedText(((CompressedArticle) article).compressedText);
+    } else {
+      setText(super.getText());
+    }
+  }
+
+  /**
+   * {@inheritDoc} Decompresses the text.
+   */
+  @Override
+  @CheckForNull
+  public String getText() {
+    return TextCompressor.decompress(compressedText);
+  }
+
+  /**
+   * {@inheritDoc} Compresses the text.
+   */
+  @Override
+  public void setText(@CheckForNull String text) {
+    compressedText = TextCompressor.compress(text);
+    super.setText(null);
+  }
+
+  /**
+   * @return the text in the format of {@link TextCompressor}; must not be modified
+   */
+  @CheckForNull
+  public byte[] getCompressedText() {
+    return compressedText;
+  }
+
+  /**
+   * @param compressedText
+   *          in the format of {@link TextCompressor}; must not be modified afterwards
+   */
+  public void setCompressedText(@CheckForNull byte[] compressedText) {
+    this.compressedText = compressedText;
+    super.setText(null);
+  }
+
+}
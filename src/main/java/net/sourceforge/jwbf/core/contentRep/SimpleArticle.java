@@ -63,8 +63,9 @@ public class SimpleArticle implements ArticleMeta, Serializable, Cloneable, Cont
     if (ca.getTitle() != null) {
       title = ca.getTitle();
     }
-    if (ca.getText() != null) {
-      text = ca.getText();
+    String caText = ca.getText();
+    if (caText != null) {
+      text = caText;
     }
     if (ca.getEditSummary() != null) {
       editSummary = ca.getEditSummary();
@@ -251,7 +252,7 @@ public class SimpleArticle implements ArticleMeta, Serializable, Cloneable, Cont
    */
   @Deprecated
   public boolean isRedirect() {
-    if (redirectPattern.matcher(text).matches()) {
+    if (redirectPattern.matcher(getText()).matches()) {
       return true;
     }
 
@@ -315,10 +316,13 @@ public class SimpleArticle implements ArticleMeta, Serializable, Cloneable, Cont
         return false;
     } else if (!revId.equals(other.revId))
       return false;
-    if (text == null) {
-      if (other.text != null)
+    // subclasses may keep the text in another form
+    String thisText = getText();
+    String otherText = other.getText();
+    if (thisText == null) {
+      if (otherText != null)
         return false;
-    } else if (!text.equals(other.text))
+    } else if (!thisText.equals(otherText))
       return false;
     if (title == null) {
       if (other.title != null)
@@ -339,7 +343,8 @@ public class SimpleArticle implements ArticleMeta, Serializable, Cloneable, Cont
     int result = 1;
     result = prime * result + ((editTimestamp == null) ? 0 : editTimestamp.hashCode());
     result = prime * result + ((revId == null) ? 0 : revId.hashCode());
-    result = prime * result + ((text == null) ? 0 : text.hashCode());
+    String thisText = getText();
+    result = prime * result + ((thisText == null) ? 0 : thisText.hashCode());
     result = prime * result + ((title == null) ? 0 : title.hashCode());
     return result;
   }
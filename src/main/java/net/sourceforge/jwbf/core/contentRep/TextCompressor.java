@@ -0,0 +1,159 @@
+package net.sourceforge.jwbf.core.contentRep;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compresses wikitext with a {@link Deflater} and a preset dictionary of frequent markup, so that
+ * even short articles shrink. The first byte of the result tells whether it is deflated or plain
+ * UTF-8; texts which are short or do not shrink are kept as UTF-8.
+ *
+ * @author Thomas Stock
+ */
+public final class TextCompressor {
+
+  private static final byte UTF8 = 0;
+  private static final byte DEFLATED = 1;
+  /** Shorter texts are not worth the header of the deflate stream. */
+  private static final int MIN_DEFLATE_BYTES = 64;
+
+  /**
+   * Frequent markup; deflate finds the closest matches first, so the most frequent are last.
+   */
+  private static final byte[] DICTIONARY = ("{{Infobox |image=|caption=|name=|website="
+      + "{{DEFAULTSORT:{{Reflist}}{{reflist}}<references />== External links ==\n"
+      + "== See also ==\n== References ==\n{{cite book|title=|author=|publisher=|isbn="
+      + "{{cite news|{{cite web|url=http://www.|title=|accessdate=|date=|work=|last=|first="
+      + "<ref name=\"</ref><ref>[[File:|thumb|px|right|left|[[Image:[[Category:\n* [http://"
+      + "https://www.\n\n'''''[[]] {{}} the of and in to a is was for").getBytes(Charsets.UTF_8);
+
+  private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+    @Override
+    protected Deflater initialValue() {
+      return new Deflater(Deflater.BEST_SPEED);
+    }
+  };
+
+  private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+    @Override
+    protected Inflater initialValue() {
+      return new Inflater();
+    }
+  };
+
+  private TextCompressor() {
+    // no instances
+  }
+
+  /**
+   * @return the compressed text, or null for null
+   */
+  @CheckForNull
+  public static byte[] compress(@CheckForNull String text) {
+    if (text == null) {
+      return null;
+    }
+    byte[] utf8 = text.getBytes(Charsets.UTF_8);
+    if (utf8.length >= MIN_DEFLATE_BYTES) {
+      byte[] deflated = deflate(utf8);
+      if (deflated != null) {
+        return deflated;
+      }
+    }
+    byte[] plain = new byte[utf8.length + 1];
+    plain[0] = UTF8;
+    System.arraycopy(utf8, 0, plain, 1, utf8.length);
+    return plain;
+  }
+
+  /**
+   * @return the deflated bytes with header, or null if they are not smaller
+   */
+  @CheckForNull
+  private static byte[] deflate(byte[] utf8) {
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setDictionary(DICTIONARY);
+    deflater.setInput(utf8);
+    deflater.finish();
+    // header, length and no more bytes than the plain text
+    byte[] out = new byte[utf8.length];
+    ByteBuffer.wrap(out).put(DEFLATED).putInt(utf8.length);
+    int length = 5;
+    while (!deflater.finished() && length < out.length) {
+      length += deflater.deflate(out, length, out.length - length);
+    }
+    if (!deflater.finished()) {
+      return null;
+    }
+    return Arrays.copyOf(out, length);
+  }
+
+  /**
+   * @param data
+   *          from {@link #compress(String)}
+   * @return the text, or null for null
+   * @throws IllegalArgumentException
+   *           if the data is not compressed text
+   */
+  @CheckForNull
+  public static String decompress(@CheckForNull byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    if (data.length == 0) {
+      throw new IllegalArgumentException("no compressed text");
+    }
+    if (data[0] == UTF8) {
+      return new String(data, 1, data.length - 1, Charsets.UTF_8);
+    }
+    if (data[0] != DEFLATED || data.length < 5) {
+      throw new IllegalArgumentException("unknown format " + data[0]);
+    }
+    int expected = ByteBuffer.wrap(data, 1, 4).getInt();
+    if (expected < 0) {
+      throw new IllegalArgumentException("invalid length " + expected);
+    }
+    // one more byte, so that the end of the stream is always read
+    byte[] utf8 = new byte[expected + 1];
+    Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(data, 5, data.length - 5);
+    int length = 0;
+    try {
+      while (!inflater.finished() && length < utf8.length) {
+        int n = inflater.inflate(utf8, length, utf8.length - length);
+        length += n;
+        if (n == 0) {
+          if (inflater.needsDictionary()) {
+            inflater.setDictionary(DICTIONARY);
+          } else if (inflater.needsInput()) {
+            throw new IllegalArgumentException("truncated compressed text");
+          }
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException(e);
+    }
+    if (!inflater.finished() || length != expected) {
+      throw new IllegalArgumentException("compressed text has " + length + " bytes, expected "
+          + expected);
+    }
+    return new String(utf8, 0, length, Charsets.UTF_8);
+  }
+
+  /**
+   * @return true if the data is deflated, false if it is plain UTF-8
+   */
+  public static boolean isDeflated(byte[] data) {
+    return data.length > 0 && data[0] == DEFLATED;
+  }
+
+}
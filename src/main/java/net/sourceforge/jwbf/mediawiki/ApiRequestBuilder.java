@@ -2,6 +2,7 @@ package net.sourceforge.jwbf.mediawiki;
 
 import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 
 public class ApiRequestBuilder extends RequestBuilder {
 
@@ -15,7 +16,15 @@ public class ApiRequestBuilder extends RequestBuilder {
   }
 
   public ApiRequestBuilder formatXml() {
-    param("format", "xml");
+    return format(ResponseFormat.XML);
+  }
+
+  public ApiRequestBuilder formatJson() {
+    return format(ResponseFormat.JSON);
+  }
+
+  public ApiRequestBuilder format(ResponseFormat format) {
+    param("format", format.getName());
     return this;
   }
 }
@@ -24,7 +24,7 @@ final class HTMLEntities {
    * href="http://www.w3.org/TR/html401/sgml/entities.html"
    * target="_blank">http://www.w3.org/TR/html401/sgml/entities.html</a>].
    */
-  private static final Object[][] HTML_ENTITIES_TABLE = { { ("&Aacute;"), Integer.valueOf(193) },
+  static final Object[][] HTML_ENTITIES_TABLE = { { ("&Aacute;"), Integer.valueOf(193) },
       { ("&aacute;"), Integer.valueOf(225) }, { ("&Acirc;"), Integer.valueOf(194) },
       { ("&acirc;"), Integer.valueOf(226) }, { ("&acute;"), Integer.valueOf(180) },
       { ("&AElig;"), Integer.valueOf(198) }, { ("&aelig;"), Integer.valueOf(230) },
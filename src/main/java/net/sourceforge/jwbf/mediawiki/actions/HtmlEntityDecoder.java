@@ -0,0 +1,193 @@
+package net.sourceforge.jwbf.mediawiki.actions;
+
+/**
+ * Replaces the html entities of {@link HTMLEntities} and <code>&amp;quot;</code> as well as
+ * numeric entities like <code>&amp;#228;</code> or <code>&amp;#xE4;</code> in one pass. Text
+ * without <code>&amp;</code> is returned as it is; otherwise the result is built in a buffer which
+ * is reused by the thread, and the entity names are looked up by their position in the text, so
+ * that only the result is allocated.
+ * <p>
+ * Unknown or malformed entities are kept.
+ *
+ * @author Thomas Stock
+ */
+final class HtmlEntityDecoder {
+
+  /** Buffers which have grown beyond this size are not kept. */
+  private static final int MAX_BUFFER_SIZE = 8192;
+  private static final int MAX_NUMERIC_LENGTH = 8;
+
+  private static final String[] NAMES;
+  private static final char[] VALUES;
+  private static final int MASK;
+  private static final int MAX_NAME_LENGTH;
+
+  static {
+    Object[][] entities = HTMLEntities.HTML_ENTITIES_TABLE;
+    int size = Integer.highestOneBit(entities.length * 4);
+    NAMES = new String[size];
+    VALUES = new char[size];
+    MASK = size - 1;
+    int maxLength = 0;
+    for (Object[] entity : entities) {
+      String name = (String) entity[0];
+      maxLength = Math.max(maxLength, put(name.substring(1, name.length() - 1),
+          ((Integer) entity[1]).intValue()));
+    }
+    MAX_NAME_LENGTH = Math.max(maxLength, put("quot", '"'));
+  }
+
+  private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+    @Override
+    protected StringBuilder initialValue() {
+      return new StringBuilder();
+    }
+  };
+
+  private HtmlEntityDecoder() {
+    // no instances
+  }
+
+  private static int put(String name, int value) {
+    int slot = hash(name, 0, name.length()) & MASK;
+    while (NAMES[slot] != null) {
+      slot = (slot + 1) & MASK;
+    }
+    NAMES[slot] = name;
+    VALUES[slot] = (char) value;
+    return name.length();
+  }
+
+  private static int hash(CharSequence s, int start, int end) {
+    int h = 0;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @param s
+   *          text with entities
+   * @return the text with the entities replaced by their characters
+   */
+  static String decode(String s) {
+    int amp = s.indexOf('&');
+    if (amp < 0) {
+      return s;
+    }
+    StringBuilder out = BUFFER.get();
+    out.setLength(0);
+    out.append(s, 0, amp);
+    int length = s.length();
+    int i = amp;
+    while (i < length) {
+      int end = decodeEntity(s, i, out);
+      if (end < 0) {
+        out.append('&');
+        i++;
+      } else {
+        i = end;
+      }
+      int next = s.indexOf('&', i);
+      if (next < 0) {
+        next = length;
+      }
+      out.append(s, i, next);
+      i = next;
+    }
+    String result = out.toString();
+    if (out.capacity() > MAX_BUFFER_SIZE) {
+      BUFFER.remove();
+    }
+    return result;
+  }
+
+  /**
+   * @param amp
+   *          position of the <code>&amp;</code>
+   * @return the position after the entity, or -1 if there is none
+   */
+  private static int decodeEntity(String s, int amp, StringBuilder out) {
+    int start = amp + 1;
+    if (start < s.length() && s.charAt(start) == '#') {
+      return decodeNumeric(s, start + 1, out);
+    }
+    int limit = Math.min(s.length(), start + MAX_NAME_LENGTH + 1);
+    for (int semi = start; semi < limit; semi++) {
+      char c = s.charAt(semi);
+      if (c == ';') {
+        return lookup(s, start, semi, out);
+      }
+      if (!isNameChar(c)) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private static int lookup(String s, int start, int end, StringBuilder out) {
+    int length = end - start;
+    if (length == 0) {
+      return -1;
+    }
+    int slot = hash(s, start, end) & MASK;
+    String name = NAMES[slot];
+    while (name != null) {
+      if (name.length() == length && s.regionMatches(start, name, 0, length)) {
+        out.append(VALUES[slot]);
+        return end + 1;
+      }
+      slot = (slot + 1) & MASK;
+      name = NAMES[slot];
+    }
+    return -1;
+  }
+
+  /**
+   * @param start
+   *          position after <code>&amp;#</code>
+   */
+  private static int decodeNumeric(String s, int start, StringBuilder out) {
+    int radix = 10;
+    int i = start;
+    if (i < s.length() && (s.charAt(i) == 'x' || s.charAt(i) == 'X')) {
+      radix = 16;
+      i++;
+    }
+    int digits = i;
+    int codePoint = 0;
+    while (i < s.length() && i - digits < MAX_NUMERIC_LENGTH) {
+      int digit = digit(s.charAt(i), radix);
+      if (digit < 0) {
+        break;
+      }
+      codePoint = codePoint * radix + digit;
+      i++;
+    }
+    if (i == digits || i >= s.length() || s.charAt(i) != ';' || codePoint == 0
+        || !Character.isValidCodePoint(codePoint)) {
+      return -1;
+    }
+    out.appendCodePoint(codePoint);
+    return i + 1;
+  }
+
+  private static int digit(char c, int radix) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (radix == 16 && c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (radix == 16 && c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+
+}
@@ -18,11 +18,15 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions;
 
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
-import java.net.URLEncoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.TimeZone;
+
+import net.sourceforge.jwbf.core.PercentEncoder;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -39,6 +43,9 @@ public final class MediaWiki {
   public static final String URL_API = "/api.php";
   public static final String URL_INDEX = "/index.php";
 
+  /** Format of timestamps in api requests and responses, always in UTC. */
+  public static final String TIMESTAMP_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
   public static final int NS_MAIN = 0;
   public static final int NS_MAIN_TALK = 1;
   public static final int NS_USER = 2;
@@ -190,19 +197,41 @@ public final class MediaWiki {
    * @return encoded s
    */
   public static String encode(String s) {
-    try {
-      return URLEncoder.encode(s, MediaWiki.CHARSET);
-    } catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    return PercentEncoder.encode(s);
   }
 
   /**
    * @return decoded s
    */
   public static String decode(final String s) {
-    String out = HTMLEntities.unhtmlentities(s);
-    out = HTMLEntities.unhtmlQuotes(out);
-    return out;
+    return HtmlEntityDecoder.decode(s);
+  }
+
+  /**
+   * @return like "2013-04-01T12:00:00Z"
+   */
+  public static String formatTimestamp(Date date) {
+    return newTimestampFormat().format(date);
+  }
+
+  /**
+   * @param timestamp
+   *          like "2013-04-01T12:00:00Z"
+   * @return the date
+   * @throws IllegalArgumentException
+   *           if the timestamp has another format
+   */
+  public static Date parseTimestamp(String timestamp) {
+    try {
+      return newTimestampFormat().parse(timestamp);
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("invalid timestamp: " + timestamp, e);
+    }
+  }
+
+  private static SimpleDateFormat newTimestampFormat() {
+    SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_PATTERN);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format;
   }
 }
@@ -19,7 +19,10 @@
 package net.sourceforge.jwbf.mediawiki.actions.editing;
 
 import java.text.ParseException;
-import java.util.Iterator;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.Get;
@@ -28,10 +31,12 @@ import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
-import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+import net.sourceforge.jwbf.mediawiki.actions.util.ElementHandler;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 
-import org.jdom.Element;
+import com.google.common.collect.Maps;
 
 /**
  * Reads the content of a given article.
@@ -65,6 +70,15 @@ public class GetRevision extends MWAction {
    * TODO follow redirects. TODO change constructor fild ordering; bot
    */
   public GetRevision(Version v, final String articlename, final int properties) {
+    this(v, articlename, properties, ResponseFormat.XML);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   */
+  public GetRevision(Version v, final String articlename, final int properties,
+      ResponseFormat format) {
     super(v);
     // if (!bot.getUserinfo().getRights().contains("read")) {
     // throw new
@@ -76,7 +90,7 @@ public class GetRevision extends MWAction {
     sa.setTitle(articlename);
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("prop", "revisions") //
         .param("titles", MediaWiki.encode(articlename)) //
         .param("rvprop", getDataProperties(properties) + getReversion(properties)) //
@@ -151,76 +165,77 @@ public class GetRevision extends MWAction {
     return properties;
   }
 
-  private void parse(final String xml) {
-    Element root = getRootElementWithError(xml);
-    Element error = getErrorElement(root);
-    if (error != null) {
-      throw new ApiException(error.getAttributeValue("code") //
-          , error.getAttributeValue("info"));
-    }
-    findContent(root);
-  }
-
-  public SimpleArticle getArticle() {
+  private void parse(final String s) {
+    if (isJson(s)) {
+      parseJson(s, new JsonHandler() {
 
-    return sa;
-  }
-
-  private void findContent(final Element root) {
-
-    @SuppressWarnings("unchecked")
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("rev")) {
-
-        try {
-          sa.setText(element.getText());
-        } catch (NullPointerException e) {
-          if (log.isDebugEnabled()) {
-            log.debug("no text found");
+        @Override
+        public void object(String name, String parent, Map<String, String> values) {
+          if ("revisions".equals(name)) {
+            readRevision(values, values.get("*"));
           }
         }
-        if ((properties & FLAGS) > 0) {
-          if (element.getAttribute("minor") != null) {
-            sa.setMinorEdit(true);
-          } else {
-            sa.setMinorEdit(false);
+      });
+    } else {
+      parseXml(s, new ElementHandler() {
+
+        public void startElement(String parent, XMLStreamReader reader)
+            throws XMLStreamException {
+          if (reader.getLocalName().equalsIgnoreCase("rev")) {
+            readRevision(reader);
           }
         }
+      });
+    }
+  }
 
-        sa.setRevisionId(getAttrValueOf(element, "revid"));
-        sa.setEditSummary(getAttrValueOf(element, "comment"));
-        sa.setEditor(getAttrValueOf(element, "user"));
+  public SimpleArticle getArticle() {
 
-        if ((properties & TIMESTAMP) > 0) {
+    return sa;
+  }
 
-          try {
-            sa.setEditTimestamp(getAttrValueOf(element, "timestamp"));
-          } catch (ParseException e) {
-            log.debug("timestamp could not be parsed");
-          }
-        }
+  /**
+   * Reads the attributes first, because reading the text moves the reader to the end tag.
+   */
+  private void readRevision(XMLStreamReader reader) throws XMLStreamException {
+    Map<String, String> attributes = Maps.newHashMap();
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+    }
+    readRevision(attributes, reader.getElementText());
+  }
 
+  private void readRevision(Map<String, String> values, String text) {
+    if ((properties & FLAGS) > 0) {
+      if (values.containsKey("minor")) {
+        sa.setMinorEdit(true);
       } else {
-        findContent(element);
+        sa.setMinorEdit(false);
       }
-
     }
 
-  }
+    sa.setRevisionId(getValueOf(values, "revid"));
+    sa.setEditSummary(getValueOf(values, "comment"));
+    sa.setEditor(getValueOf(values, "user"));
 
-  private String getAttrValueOf(Element element, String key) {
-    return getAttrValueOf(element, key, "");
-  }
+    if ((properties & TIMESTAMP) > 0) {
 
-  private String getAttrValueOf(Element element, String key, String otherwise) {
-    String value = null;
+      try {
+        sa.setEditTimestamp(getValueOf(values, "timestamp"));
+      } catch (ParseException e) {
+        log.debug("timestamp could not be parsed");
+      }
+    }
+    if (text != null) {
+      sa.setText(text);
+    }
+  }
 
-    value = element.getAttributeValue(key);
+  private String getValueOf(Map<String, String> values, String key) {
+    String value = values.get(key);
     if (value == null) {
       log.trace("no value for {}", key);
-      return otherwise;
+      return "";
     }
 
     log.trace("value for {}= \"{}\"", key, value);
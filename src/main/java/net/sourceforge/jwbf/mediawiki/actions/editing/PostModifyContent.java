@@ -20,6 +20,8 @@ package net.sourceforge.jwbf.mediawiki.actions.editing;
 
 import java.util.Set;
 
+import javax.annotation.CheckForNull;
+
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.Post;
 import net.sourceforge.jwbf.core.actions.util.ActionException;
@@ -29,10 +31,13 @@ import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.core.contentRep.Userinfo;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.actions.util.VersionException;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import org.jdom.Element;
+
 import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
@@ -57,26 +62,47 @@ public class PostModifyContent extends MWAction {
   static final String PARAM_MINOR_NOT = "notminor";
   static final String PARAM_BOTEDIT = "bot";
 
+  private Userinfo userinfo = null;
+  private String token = null;
+  private String result = null;
+  private String newRevisionId = null;
+  private String newTimestamp = null;
+
   public PostModifyContent(MediaWikiBot bot, final SimpleArticle a) {
+    this(bot, a, null);
+  }
+
+  /**
+   * @param editToken
+   *          of an earlier edit in the same session, see {@link #getToken()}; or null to request
+   *          one first
+   */
+  public PostModifyContent(MediaWikiBot bot, final SimpleArticle a,
+      @CheckForNull String editToken) {
     super(bot.getVersion());
     if (Strings.isNullOrEmpty(a.getTitle())) {
       throw new ActionException("imposible request, no title");
     }
     this.a = a;
     this.bot = bot;
+    this.token = editToken;
+    // the token is the same for all pages of a session
+    this.first = editToken == null;
   }
 
   /**
    * {@inheritDoc}
    */
   public HttpAction getNextMessage() {
-
-    Userinfo userinfo = bot.getUserinfo();
-    Set<String> rights = userinfo.getRights();
-    boolean canWrite = (rights.contains(Userinfo.RIGHT_EDIT) && rights
-        .contains(Userinfo.RIGHT_WRITEAPI));
-    if (!(bot.isEditApi() && canWrite)) {
-      throw new VersionException("editing is not allowed");
+    if (userinfo == null) {
+      Userinfo info = bot.getUserinfo();
+      Set<String> rights = info.getRights();
+      boolean canWrite = (rights.contains(Userinfo.RIGHT_EDIT) && rights
+          .contains(Userinfo.RIGHT_WRITEAPI));
+      if (!(bot.isEditApi() && canWrite)) {
+        throw new VersionException("editing is not allowed");
+      }
+      userinfo = info;
     }
     if (first) {
       first = false;
@@ -84,6 +110,9 @@ public class PostModifyContent extends MWAction {
       apiGet = apiReq.getNextMessage();
       return apiGet;
     } else if (second) {
+      if (apiReq != null) {
+        token = apiReq.getToken();
+      }
 
       postModify = new ApiRequestBuilder() //
           .action("edit") //
@@ -103,7 +132,7 @@ public class PostModifyContent extends MWAction {
       } else {
         postModify.addParam(PARAM_MINOR_NOT, "");
       }
-      postModify.addParam("token", apiReq.getToken());
+      postModify.addParam("token", token);
 
       second = false;
 
@@ -127,10 +156,22 @@ public class PostModifyContent extends MWAction {
   @Override
   public String processReturningText(String xml, HttpAction hm) {
     String request = hm.getRequest();
-    if (request.equals(apiGet.getRequest())) {
+    if (apiGet != null && request.equals(apiGet.getRequest())) {
       apiReq.processReturningText(xml, hm);
-    } else if (request.equals(postModify.getRequest())) {
-      getRootElement(xml);
+    } else if (postModify != null && request.equals(postModify.getRequest())) {
+      Element root = getRootElementWithError(xml);
+      Element error = getErrorElement(root);
+      if (error != null) {
+        throw new ApiException(error.getAttributeValue("code"), error.getAttributeValue("info"));
+      }
+      Element edit = root.getChild("edit");
+      if (edit != null) {
+        result = edit.getAttributeValue("result");
+        if ("Success".equals(result)) {
+          newRevisionId = edit.getAttributeValue("newrevid");
+          newTimestamp = edit.getAttributeValue("newtimestamp");
+        }
+      }
     } else {
       log.trace(xml);
       throw new ActionException("unknown response");
@@ -139,6 +180,40 @@ public class PostModifyContent extends MWAction {
     return xml;
   }
 
+  /**
+   * @return the edit token which was sent, for the next edits of the session
+   */
+  @CheckForNull
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * @return the result of the edit like "Success", or null if there was none; other results, like
+   *         "Failure" of a captcha or an abuse filter, mean that nothing was saved
+   */
+  @CheckForNull
+  public String getResult() {
+    return result;
+  }
+
+  /**
+   * @return the revision created by the edit, or null if the text did not change or the edit has
+   *         not been sent yet
+   */
+  @CheckForNull
+  public String getNewRevisionId() {
+    return newRevisionId;
+  }
+
+  /**
+   * @return the timestamp of {@link #getNewRevisionId()}, like "2013-04-01T12:00:00Z"
+   */
+  @CheckForNull
+  public String getNewTimestamp() {
+    return newTimestamp;
+  }
+
   /**
    * @return true if one or both sets are <code>null</code> or the intersection of sets is empty.
    */
@@ -1,6 +1,7 @@
 package net.sourceforge.jwbf.mediawiki.actions.meta;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
@@ -10,7 +11,9 @@ import net.sourceforge.jwbf.core.contentRep.Userinfo;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 
 import org.jdom.Element;
 
@@ -30,12 +33,20 @@ public class GetUserinfo extends MWAction implements Userinfo {
   private final Get msg;
 
   public GetUserinfo(Version v) {
+    this(v, ResponseFormat.XML);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   */
+  public GetUserinfo(Version v, ResponseFormat format) {
     super(v);
     String properties = MediaWiki
         .encode("blockinfo|hasmsg|groups|rights|options|editcount|ratelimits");
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("meta", "userinfo") //
         .param("uiprop", properties) //
         .buildGet();
@@ -45,8 +56,31 @@ public class GetUserinfo extends MWAction implements Userinfo {
     log.debug(xml);
     rights.clear();
     groups.clear();
-    Element root = getRootElement(xml);
-    findContent(root);
+    if (isJson(xml)) {
+      parseJson(xml, new JsonHandler() {
+
+        @Override
+        public void object(String name, String parent, Map<String, String> values) {
+          if ("userinfo".equals(name)) {
+            username = values.get("name");
+          }
+        }
+
+        @Override
+        public void arrayValue(String name, String parent, String value) {
+          if ("userinfo".equals(parent)) {
+            if ("groups".equals(name)) {
+              groups.add(value);
+            } else if ("rights".equals(name)) {
+              rights.add(value);
+            }
+          }
+        }
+      });
+    } else {
+      Element root = getRootElement(xml);
+      findContent(root);
+    }
   }
 
   /**
@@ -19,20 +19,24 @@
 
 package net.sourceforge.jwbf.mediawiki.actions.meta;
 
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.JWBF;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.ElementHandler;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
-import org.jdom.Element;
-
 import com.google.common.collect.Sets;
 
 /**
@@ -62,7 +66,7 @@ public class GetVersion extends MWAction {
    * {@link MediaWikiBot#performAction(net.sourceforge.jwbf.actions.ContentProcessable)}
    */
   public GetVersion(MediaWikiBot bot) {
-    this();
+    this(bot.getResponseFormat());
     bot.performAction(this);
   }
 
@@ -73,18 +77,43 @@ public class GetVersion extends MWAction {
   /**
    * Create the request.
    */
-  @SuppressWarnings("deprecation")
   public GetVersion() {
+    this(ResponseFormat.XML);
+  }
+
+  /**
+   * Create the request.
+   * 
+   * @param format
+   *          of the response
+   */
+  @SuppressWarnings("deprecation")
+  public GetVersion(ResponseFormat format) {
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("meta", "siteinfo") //
         .buildGet();
   }
 
-  private void parse(final String xml) {
-    Element root = getRootElementWithError(xml);
-    findContent(root);
+  private void parse(final String s) {
+    if (isJson(s)) {
+      parseJson(s, new JsonHandler() {
+
+        @Override
+        public void object(String name, String parent, Map<String, String> values) {
+          readJsonObject(name, parent, values);
+        }
+      }, false);
+    } else {
+      parseXml(s, new ElementHandler() {
+
+        public void startElement(String parent, XMLStreamReader reader)
+            throws XMLStreamException {
+          readElement(reader);
+        }
+      }, false);
+    }
   }
 
   /**
@@ -167,23 +196,39 @@ public class GetVersion extends MWAction {
     return mainpage;
   }
 
-  @SuppressWarnings("unchecked")
-  protected void findContent(final Element root) {
-
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("general")) {
-
-        mainpage = element.getAttributeValue("mainpage");
-        base = element.getAttributeValue("base");
-        sitename = element.getAttributeValue("sitename");
-        generator = element.getAttributeValue("generator");
-        theCase = element.getAttributeValue("case");
-      } else {
-        // FIXME recursion is bad
-        findContent(element);
-      }
+  /**
+   * Picks the values of an element of the response.
+   *
+   * @param reader
+   *          positioned at the start tag
+   */
+  protected void readElement(XMLStreamReader reader) throws XMLStreamException {
+    if (reader.getLocalName().equalsIgnoreCase("general")) {
+      mainpage = reader.getAttributeValue(null, "mainpage");
+      base = reader.getAttributeValue(null, "base");
+      sitename = reader.getAttributeValue(null, "sitename");
+      generator = reader.getAttributeValue(null, "generator");
+      theCase = reader.getAttributeValue(null, "case");
+    }
+  }
+
+  /**
+   * Picks the values of an object of a json response.
+   *
+   * @param name
+   *          of the object, or of the array which contains it
+   * @param parent
+   *          name of the enclosing object
+   * @param values
+   *          the scalar members of the object
+   */
+  protected void readJsonObject(String name, String parent, Map<String, String> values) {
+    if ("general".equals(name) && "query".equals(parent)) {
+      mainpage = values.get("mainpage");
+      base = values.get("base");
+      sitename = values.get("sitename");
+      generator = values.get("generator");
+      theCase = values.get("case");
     }
   }
 
@@ -1,16 +1,17 @@
 package net.sourceforge.jwbf.mediawiki.actions.meta;
 
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
-
-import org.jdom.Element;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 
 import com.google.common.collect.Maps;
 
@@ -61,6 +62,26 @@ public class Siteinfo extends GetVersion {
    *          the, see {@link #GENERAL}, {@link #INTERWIKIMAP}, ...
    */
   public Siteinfo(String... types) {
+    this(ResponseFormat.XML, types);
+  }
+
+  /**
+   * inits with parameters {@link #GENERAL}, {@link #NAMESPACES}, {@link #INTERWIKIMAP}.
+   * 
+   * @param format
+   *          of the response
+   */
+  public Siteinfo(ResponseFormat format) {
+    this(format, GENERAL, NAMESPACES, INTERWIKIMAP);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   * @param types
+   *          the, see {@link #GENERAL}, {@link #INTERWIKIMAP}, ...
+   */
+  public Siteinfo(ResponseFormat format, String... types) {
     StringBuffer x = new StringBuffer();
     for (int i = 0; i < types.length; i++) {
       x.append(types[i] + "|");
@@ -68,7 +89,7 @@ public class Siteinfo extends GetVersion {
     String result = x.substring(0, x.length() - 1);
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("meta", "siteinfo") //
         .param("siprop", MediaWiki.encode(result)) //
         .buildGet();
@@ -83,26 +104,37 @@ public class Siteinfo extends GetVersion {
     return msg;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void readElement(XMLStreamReader reader) throws XMLStreamException {
+    super.readElement(reader);
+    if (reader.getLocalName().equalsIgnoreCase("ns")) {
+      Integer id = Integer.parseInt(reader.getAttributeValue(null, "id"));
+      String name = reader.getElementText();
+      addNamespace(id, name);
+
+    } else if (reader.getLocalName().equalsIgnoreCase("iw")) {
+      if (reader.getAttributeValue(null, "prefix") != null) {
+        String prefix = reader.getAttributeValue(null, "prefix");
+        String name = reader.getAttributeValue(null, "url");
+        addInterwiki(prefix, name);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
   @Override
-  @SuppressWarnings("unchecked")
-  protected void findContent(final Element root) {
-    super.findContent(root);
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("ns")) {
-        Integer id = Integer.parseInt(element.getAttributeValue("id"));
-        String name = element.getText();
-        addNamespace(id, name);
-
-      } else if (element.getQualifiedName().equalsIgnoreCase("iw")) {
-        if (element.getAttribute("prefix") != null) {
-          String prefix = element.getAttributeValue("prefix");
-          String name = element.getAttributeValue("url");
-          addInterwiki(prefix, name);
-        }
-      } else {
-        findContent(element);
+  protected void readJsonObject(String name, String parent, Map<String, String> values) {
+    super.readJsonObject(name, parent, values);
+    if ("namespaces".equals(parent)) {
+      addNamespace(Integer.parseInt(values.get("id")), values.get("*"));
+    } else if ("interwikimap".equals(name)) {
+      if (values.get("prefix") != null) {
+        addInterwiki(values.get("prefix"), values.get("url"));
       }
     }
   }
@@ -3,7 +3,8 @@ package net.sourceforge.jwbf.mediawiki.actions.misc;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-import net.sourceforge.jwbf.core.actions.Get;
+import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.Post;
 import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
@@ -24,20 +25,39 @@ import org.jdom.Element;
  */
 public class GetRendering extends MWAction {
 
-  private final Get msg;
+  /** Title of the page as which the wikitext is rendered by default. */
+  public static final String DEFAULT_TITLE = "API";
+  /** Longer encoded wikitext is sent with a POST request, which has no length limit. */
+  static final int MAX_GET_TEXT = 2000;
+
+  private final HttpAction msg;
   private String html = "";
   private final MediaWikiBot bot;
   private boolean isSelfEx = true;
 
   public GetRendering(MediaWikiBot bot, String wikitext) {
+    this(bot, wikitext, DEFAULT_TITLE);
+  }
+
+  /**
+   * @param title
+   *          of the page as which the wikitext is rendered, e.g. for <code>{{PAGENAME}}</code>
+   */
+  public GetRendering(MediaWikiBot bot, String wikitext, String title) {
     this.bot = bot;
-    msg = new ApiRequestBuilder() //
+    String text = MediaWiki.encode(wikitext);
+    RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("parse") //
         .formatXml() //
-        .param("text", MediaWiki.encode(wikitext)) //
-        .param("title", "API") //
-        .buildGet();
-
+        .param("title", MediaWiki.encode(title)) //
+    ;
+    if (text.length() > MAX_GET_TEXT) {
+      Post post = requestBuilder.buildPost();
+      post.addParam("text", wikitext);
+      msg = post;
+    } else {
+      msg = requestBuilder.param("text", text).buildGet();
+    }
   }
 
   /**
@@ -63,13 +83,26 @@ public class GetRendering extends MWAction {
    */
   @Override
   public String processAllReturningText(String s) {
-    html = findElement("text", s).getTextTrim();
-    html = html.replace("\n", "");
-    int last = html.lastIndexOf("<!--");
-    html = html.substring(0, last);
+    html = stripReports(findElement("text", s).getTextTrim()).replace("\n", "");
     return "";
   }
 
+  /**
+   * @return the html without the trailing comments of the parser, like the limit report; comments
+   *         of the wikitext are kept
+   */
+  static String stripReports(String html) {
+    String stripped = html.trim();
+    while (stripped.endsWith("-->")) {
+      int start = stripped.lastIndexOf("<!--");
+      if (start < 0) {
+        break;
+      }
+      stripped = stripped.substring(0, start).trim();
+    }
+    return stripped;
+  }
+
   protected Element findElement(String elementName, String xml) {
     Element root = getRootElement(xml);
     return findContent(root, elementName);
@@ -98,16 +131,27 @@ public class GetRendering extends MWAction {
 
   private void update() {
     try {
-      isSelfEx = false;
-      bot.performAction(this);
-
+      render();
     } catch (ActionException e) {
       e.printStackTrace();
     } catch (ProcessException e) {
       e.printStackTrace();
+    }
+  }
+
+  /**
+   * Performs this action, unlike {@link #getHtml()} without hiding failures.
+   *
+   * @return the html
+   */
+  String render() {
+    try {
+      isSelfEx = false;
+      bot.performAction(this);
     } finally {
       isSelfEx = true;
     }
+    return html;
   }
 
   /**
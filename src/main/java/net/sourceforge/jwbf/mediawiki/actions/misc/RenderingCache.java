@@ -0,0 +1,165 @@
+package net.sourceforge.jwbf.mediawiki.actions.misc;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Renders wikitext with {@link GetRendering} and keeps the html, keyed by a hash of the wikitext
+ * and the title, so that the same snippet is rendered once. Threads which request a snippet that
+ * is being rendered wait for that rendering instead of starting another one. Changes of used
+ * templates are not seen until the html is evicted or {@link #invalidateAll()} is called.
+ *
+ * <pre>
+ * RenderingCache renderer = new RenderingCache(BotPool.create(url, 4), 50 * 1024 * 1024);
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * Map&lt;String, String&gt; htmlByWikitext = renderer.renderAll(snippets, executor);
+ * </pre>
+ *
+ * @author Thomas Stock
+ */
+public class RenderingCache {
+
+  private final BotPool bots;
+  private final Cache<HashCode, String> htmlByHash;
+
+  /**
+   * @param maximumChars
+   *          of the kept html
+   */
+  public RenderingCache(MediaWikiBot bot, long maximumChars) {
+    this(new BotPool(bot), maximumChars);
+  }
+
+  /**
+   * @param bots
+   *          which render in turn; a bot renders one snippet at a time
+   * @param maximumChars
+   *          of the kept html
+   */
+  public RenderingCache(BotPool bots, long maximumChars) {
+    this.bots = bots;
+    htmlByHash = CacheBuilder.newBuilder() //
+        .maximumWeight(maximumChars) //
+        .weigher(new Weigher<HashCode, String>() {
+
+          public int weigh(HashCode key, String html) {
+            return html.length();
+          }
+        }) //
+        .recordStats() //
+        .build();
+  }
+
+  /**
+   * @return the html of the wikitext, rendered as {@link GetRendering#DEFAULT_TITLE}
+   */
+  public String render(String wikitext) {
+    return render(wikitext, GetRendering.DEFAULT_TITLE);
+  }
+
+  /**
+   * @param title
+   *          of the page as which the wikitext is rendered
+   * @return the html of the wikitext
+   */
+  public String render(final String wikitext, final String title) {
+    try {
+      return htmlByHash.get(hash(wikitext, title), new Callable<String>() {
+
+        public String call() {
+          return new GetRendering(bots.next(), wikitext, title).render();
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new JwbfException("could not render", e.getCause());
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new JwbfException("could not render", e.getCause());
+    }
+  }
+
+  /**
+   * Renders the distinct snippets on the executor, each once.
+   *
+   * @return the html by wikitext, in the order of the snippets
+   */
+  public Map<String, String> renderAll(Collection<String> wikitexts, ExecutorService executor) {
+    Set<String> distinct = Sets.newLinkedHashSet(wikitexts);
+    List<Future<String>> futures = Lists.newArrayList();
+    for (final String wikitext : distinct) {
+      futures.add(executor.submit(new Callable<String>() {
+
+        public String call() {
+          return render(wikitext);
+        }
+      }));
+    }
+    Map<String, String> htmlByWikitext = Maps.newLinkedHashMap();
+    int i = 0;
+    for (String wikitext : distinct) {
+      htmlByWikitext.put(wikitext, get(futures.get(i++)));
+    }
+    return htmlByWikitext;
+  }
+
+  private static String get(Future<String> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JwbfException("interrupted while waiting for rendered html", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new JwbfException(e.getCause());
+    }
+  }
+
+  private static HashCode hash(String wikitext, String title) {
+    Hasher hasher = Hashing.sha1().newHasher();
+    hasher.putString(title, Charsets.UTF_8);
+    // titles cannot contain it, so that title and text cannot be shifted
+    hasher.putByte((byte) '|');
+    hasher.putString(wikitext, Charsets.UTF_8);
+    return hasher.hash();
+  }
+
+  public void invalidateAll() {
+    htmlByHash.invalidateAll();
+  }
+
+  public long size() {
+    return htmlByHash.size();
+  }
+
+  public CacheStats stats() {
+    return htmlByHash.stats();
+  }
+
+}
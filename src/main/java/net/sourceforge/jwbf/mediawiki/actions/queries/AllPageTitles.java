@@ -20,6 +20,7 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +35,7 @@ import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -55,9 +57,6 @@ public class AllPageTitles extends TitleQuery<String> {
       Pattern.DOTALL | Pattern.MULTILINE);
   private static final Pattern ARTICLE_TITLES_PATTERN = Pattern
       .compile("<p pageid=\".*?\" ns=\".*?\" title=\"(.*?)\" />");
-  /** Pattern to parse returned page, @see {@link #parseArticleTitles(String)} */
-  /** Constant value for the aplimit-parameter. **/
-  private static final int LIMIT = 50;
 
   /**
    * Information given in the constructor, necessary for creating next action.
@@ -69,6 +68,8 @@ public class AllPageTitles extends TitleQuery<String> {
 
   private final String from;
 
+  private final String to;
+
   private final RedirectFilter rf;
 
   /**
@@ -88,7 +89,25 @@ public class AllPageTitles extends TitleQuery<String> {
    */
   public AllPageTitles(MediaWikiBot bot, String from, String prefix, RedirectFilter rf,
       int... namespaces) {
-    this(bot, from, prefix, rf, MWAction.createNsString(namespaces));
+    this(bot, from, null, prefix, rf, MWAction.createNsString(namespaces));
+
+  }
+
+  /**
+   * @param from
+   *          page title to start from, may be null
+   * @param to
+   *          page title to stop at (inclusive), may be null
+   * @param prefix
+   *          restricts search to titles that begin with this value, may be null
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          the namespace(s) that will be searched for links
+   */
+  public AllPageTitles(MediaWikiBot bot, String from, String to, String prefix,
+      RedirectFilter rf, int... namespaces) {
+    this(bot, from, to, prefix, rf, MWAction.createNsString(namespaces));
 
   }
 
@@ -97,8 +116,8 @@ public class AllPageTitles extends TitleQuery<String> {
 
   }
 
-  protected AllPageTitles(MediaWikiBot bot, String from, String prefix, RedirectFilter rf,
-      String namespaces) {
+  protected AllPageTitles(MediaWikiBot bot, String from, String to, String prefix,
+      RedirectFilter rf, String namespaces) {
     super(bot);
 
     this.bot = bot;
@@ -106,6 +125,7 @@ public class AllPageTitles extends TitleQuery<String> {
     this.prefix = prefix;
     this.namespaces = namespaces;
     this.from = from;
+    this.to = to;
     // generateRequest(from, prefix, rf, namespaces);
 
   }
@@ -115,6 +135,8 @@ public class AllPageTitles extends TitleQuery<String> {
    * 
    * @param from
    *          page title to start from, may be null
+   * @param to
+   *          page title to stop at, may be null
    * @param prefix
    *          restricts search to titles that begin with this value, may be null
    * @param rf
@@ -124,7 +146,8 @@ public class AllPageTitles extends TitleQuery<String> {
    *          '|'; if null, this parameter is omitted
    * @return a
    */
-  private Get generateRequest(String from, String prefix, RedirectFilter rf, String namespace) {
+  private Get generateRequest(String from, String to, String prefix, RedirectFilter rf,
+      String namespace) {
     if (log.isTraceEnabled()) {
       log.trace("enter GetAllPagetitles.generateRequest" + "(String,String,boolean,boolean,String)");
     }
@@ -139,15 +162,18 @@ public class AllPageTitles extends TitleQuery<String> {
     }
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "allpages") //
         .param("apfilterredir", apfilterredir) //
-        .param("aplimit", LIMIT + "") //
+        .param("aplimit", getLimit()) //
     ;
 
     if (!Strings.isNullOrEmpty(from)) {
       requestBuilder.param("apfrom", MediaWiki.encode(from));
     }
+    if (!Strings.isNullOrEmpty(to)) {
+      requestBuilder.param("apto", MediaWiki.encode(to));
+    }
     if (!Strings.isNullOrEmpty(prefix)) {
       requestBuilder.param("apprefix", MediaWiki.encode(prefix));
     }
@@ -169,6 +195,9 @@ public class AllPageTitles extends TitleQuery<String> {
     if (log.isTraceEnabled()) {
       log.trace("enter GetAllPagetitles.parseArticleTitles(String)");
     }
+    if (isJson(s)) {
+      return parseJsonTitles(s);
+    }
     Collection<String> c = Lists.newArrayList();
     Matcher m = ARTICLE_TITLES_PATTERN.matcher(s);
     while (m.find()) {
@@ -194,6 +223,9 @@ public class AllPageTitles extends TitleQuery<String> {
     if (log.isTraceEnabled()) {
       log.trace("enter GetAllPagetitles.parseHasMore(String)");
     }
+    if (isJson(s)) {
+      return parseJsonContinue(s);
+    }
     Pattern hasMorePattern = null;
     switch (bot.getVersion()) {
     case MW1_15:
@@ -217,14 +249,39 @@ public class AllPageTitles extends TitleQuery<String> {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String getModule() {
+    return "allpages";
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   protected HttpAction prepareCollection() {
 
-    return generateRequest(getNextPageInfo(), prefix, rf, namespaces);
+    if (getNextPageInfo().length() > 0) {
+      return generateRequest(getNextPageInfo(), to, prefix, rf, namespaces);
+    }
+    return generateRequest(from, to, prefix, rf, namespaces);
+
+  }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("from", Strings.nullToEmpty(from)) //
+        .put("to", Strings.nullToEmpty(to)) //
+        .put("prefix", Strings.nullToEmpty(prefix)) //
+        .put("filterredir", rf.toString()) //
+        .put("namespace", Strings.nullToEmpty(namespaces)) //
+        .build();
   }
 
   /**
@@ -232,7 +289,7 @@ public class AllPageTitles extends TitleQuery<String> {
    */
   @Override
   protected Object clone() throws CloneNotSupportedException {
-    return new AllPageTitles(bot, from, prefix, rf, namespaces);
+    return new AllPageTitles(bot, from, to, prefix, rf, namespaces);
   }
 
 }
@@ -20,6 +20,7 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,12 +29,13 @@ import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
-import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -56,9 +58,6 @@ public class BacklinkTitles extends TitleQuery<String> {
    * </ul>
    */
 
-  /** constant value for the bllimit-parameter. **/
-  private static final int LIMIT = 50;
-
   /** object creating the requests that are sent to the api. */
   private RequestCreator requestBuilder = null;
 
@@ -101,6 +100,18 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("title", articleName) //
+        .put("filterredir", redirectFilter.toString()) //
+        .put("namespace", MWAction.createNsString(namespaces)) //
+        .build();
+  }
+
   @Override
   protected Object clone() throws CloneNotSupportedException {
     return new BacklinkTitles(bot, articleName, redirectFilter, namespaces);
@@ -116,6 +127,9 @@ public class BacklinkTitles extends TitleQuery<String> {
   @Override
   protected String parseHasMore(final String s) {
     log.trace(s);
+    if (isJson(s)) {
+      return parseJsonContinue(s);
+    }
     // TODO do not use pattern matching
     // get the blcontinue-value
     Pattern p = Pattern.compile("<query-continue>.*?" + "<backlinks *blcontinue=\"([^\"]*)\" */>"
@@ -139,6 +153,9 @@ public class BacklinkTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
+    if (isJson(s)) {
+      return parseJsonTitles(s);
+    }
 
     // get the other backlink titles and add them all to the titleCollection
     Collection<String> titleCollection = Lists.newArrayList();
@@ -198,17 +215,17 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   }
 
-  private static RequestBuilder newRequestBuilder() {
+  private RequestBuilder newRequestBuilder() {
     return new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "backlinks") //
-        .param("bllimit", LIMIT + "") //
+        .param("bllimit", getLimit()) //
     ;
   }
 
   /** request builder for MW versions 1_17 onwards. */
-  private static class RequestCreator1x17 implements RequestCreator {
+  private class RequestCreator1x17 implements RequestCreator {
     /**
      * {@inheritDoc}
      */
@@ -236,7 +253,7 @@ public class BacklinkTitles extends TitleQuery<String> {
   }
 
   /** request builder for MW versions 1_11 to (at least) 1_13. */
-  private static class RequestCreator1x15 implements RequestCreator {
+  private class RequestCreator1x15 implements RequestCreator {
     /**
      * {@inheritDoc}
      */
@@ -262,6 +279,11 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   }
 
+  @Override
+  protected String getModule() {
+    return "backlinks";
+  }
+
   @Override
   protected HttpAction prepareCollection() {
     if (getNextPageInfo().length() > 0) {
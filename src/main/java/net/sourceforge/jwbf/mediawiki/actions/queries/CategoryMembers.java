@@ -39,8 +39,8 @@ import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 @Slf4j
 abstract class CategoryMembers extends MWAction {
 
-  /** constant value for the bllimit-parameter. **/
-  protected static final int LIMIT = 50;
+  /** name of the list module, used to look up the page size. */
+  static final String MODULE = "categorymembers";
 
   protected final MediaWikiBot bot;
   /**
@@ -60,6 +60,10 @@ abstract class CategoryMembers extends MWAction {
   protected final int[] namespace;
   private String namespaceStr = "";
 
+  private int limit = 0;
+  private int currentLimit = 0;
+  private int responseSize = 0;
+
   /**
    * The private constructor, which is used to create follow-up actions.
    * 
@@ -81,13 +85,41 @@ abstract class CategoryMembers extends MWAction {
 
   }
 
+  /**
+   * @param limit
+   *          page size of the following requests; values less than one restore the
+   *          {@link net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy} of the bot
+   */
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  private int resolveLimit() {
+    if (limit > 0) {
+      return limit;
+    }
+    return bot.getQueryLimitPolicy().getLimit(MODULE);
+  }
+
+  /**
+   * performs the current request and adapts the page size of the following ones.
+   */
+  protected final void performRequest() {
+    long start = System.currentTimeMillis();
+    bot.performAction(this);
+    if (limit < 1) {
+      bot.getQueryLimitPolicy().record(MODULE, currentLimit, System.currentTimeMillis() - start,
+          responseSize);
+    }
+  }
+
   /**
    * generates the next MediaWiki-request (GetMethod) and adds it to msgs.
    * 
    * @return a
    */
   protected final Get generateFirstRequest() {
-
+    currentLimit = resolveLimit();
     return new Get(requestBuilder.first(categoryName));
   }
 
@@ -102,7 +134,7 @@ abstract class CategoryMembers extends MWAction {
   protected final Get generateContinueRequest(String cmcontinue) {
 
     try {
-
+      currentLimit = resolveLimit();
       return new Get(requestBuilder.continiue(cmcontinue));
 
     } catch (NullPointerException e) {
@@ -122,6 +154,7 @@ abstract class CategoryMembers extends MWAction {
    */
   @Override
   public String processAllReturningText(final String s) {
+    responseSize = s.length();
     parseArticleTitles(s);
     parseHasMore(s);
     return "";
@@ -209,7 +242,7 @@ abstract class CategoryMembers extends MWAction {
           .action("query") //
           .formatXml() //
           .param("list", "categorymembers") //
-          .param("cmlimit", LIMIT + "") //
+          .param("cmlimit", currentLimit) //
       ;
       return requestBuilder;
     }
@@ -3,6 +3,7 @@ package net.sourceforge.jwbf.mediawiki.actions.queries;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.Get;
@@ -68,6 +69,22 @@ public class CategoryMembersFull extends CategoryMembers implements Iterable<Cat
     return this;
   }
 
+  /**
+   * @return a sequential stream over the items, in pages of the current limit
+   */
+  public QueryStream<CategoryItem> stream() {
+    return QueryStream.of(this, bot.getQueryLimitPolicy().getLimit(MODULE));
+  }
+
+  /**
+   * @param executor
+   *          which maps the items, while the pages are fetched in order by the consuming thread
+   * @return a parallel stream over the items
+   */
+  public QueryStream<CategoryItem> parallelStream(ExecutorService executor) {
+    return stream().parallel(executor);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -91,7 +108,7 @@ public class CategoryMembersFull extends CategoryMembers implements Iterable<Cat
       init = false;
       try {
 
-        bot.performAction(this);
+        performRequest();
         setHasMoreMessages(true);
         log.debug("preparing success");
       } catch (ActionException e) {
@@ -18,34 +18,35 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
-import net.sourceforge.jwbf.core.actions.Get;
-import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
-import net.sourceforge.jwbf.core.actions.util.ProcessException;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
 /**
  * A specialization of {@link CategoryMembers} with contains {@link String}s.
  * 
  * @author Thomas Stock
  */
 @Slf4j
-public class CategoryMembersSimple implements Iterable<String>, Iterator<String> {
+public class CategoryMembersSimple extends TitleQuery<String> {
 
-  private Get msg;
+  private final MediaWikiBot bot;
+  private final String categoryName;
+  private final int[] namespaces;
   private final CategoryMembers cm;
   /**
    * Collection that will contain the result (titles of articles linking to the target) after
    * performing the action has finished.
    */
-  private Collection<String> titleCollection = new ArrayList<String>();
-  private Iterator<String> titleIterator;
+  private final Collection<String> titleCollection = Lists.newArrayList();
 
   /**
    * @param categoryName
@@ -64,16 +65,22 @@ public class CategoryMembersSimple implements Iterable<String>, Iterator<String>
    *          for search
    */
   public CategoryMembersSimple(MediaWikiBot bot, String categoryName, int... namespaces) {
+    super(bot);
+    this.bot = bot;
+    this.categoryName = categoryName;
+    this.namespaces = namespaces;
     cm = new CategoryMembers(bot, categoryName, namespaces) {
 
       public HttpAction getNextMessage() {
-        return msg;
+        // requests are performed by the enclosing query
+        return null;
       }
 
       @Override
       protected void finalizeParse() {
-        titleIterator = titleCollection.iterator();
-
+        if (log.isDebugEnabled()) {
+          log.debug("found: " + titleCollection);
+        }
       }
 
       @Override
@@ -81,68 +88,69 @@ public class CategoryMembersSimple implements Iterable<String>, Iterator<String>
         titleCollection.add(title);
 
       }
-
-      @Override
-      public String processAllReturningText(String s) {
-
-        if (log.isDebugEnabled()) {
-          log.debug("processAllReturningText");
-        }
-        titleCollection.clear();
-        String buff = super.processAllReturningText(s);
-
-        titleIterator = titleCollection.iterator();
-        return buff;
-      }
     };
 
   }
 
-  private synchronized void prepareCollection() {
-
-    if (cm.init || (!titleIterator.hasNext() && cm.hasMoreResults)) {
-      if (cm.init) {
-        cm.setHasMoreMessages(true); // FIXME check if other action should have
-                                     // this too
-        msg = cm.generateFirstRequest();
-      } else {
-        msg = cm.generateContinueRequest(cm.nextPageInfo);
-      }
-      cm.init = false;
-      try {
-
-        cm.bot.performAction(cm);
-        cm.setHasMoreMessages(true);
-        if (log.isDebugEnabled())
-          log.debug("preparing success");
-      } catch (ActionException e) {
-        e.printStackTrace();
-        cm.setHasMoreMessages(false);
-      } catch (ProcessException e) {
-        e.printStackTrace();
-        cm.setHasMoreMessages(false);
-      }
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String getModule() {
+    return CategoryMembers.MODULE;
+  }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected HttpAction prepareCollection() {
+    cm.setLimit(getLimit());
+    if (getNextPageInfo().length() > 0) {
+      return cm.generateContinueRequest(getNextPageInfo());
+    } else {
+      return cm.generateFirstRequest();
     }
   }
 
-  public Iterator<String> iterator() {
-    return this;
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Collection<String> parseArticleTitles(String s) {
+    titleCollection.clear();
+    cm.processAllReturningText(s);
+    return titleCollection;
   }
 
-  public boolean hasNext() {
-    prepareCollection();
-    return titleIterator.hasNext();
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseHasMore(String s) {
+    if (cm.hasMoreResults) {
+      return cm.nextPageInfo;
+    }
+    return "";
   }
 
-  public String next() {
-    prepareCollection();
-    return titleIterator.next();
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("title", categoryName) //
+        .put("namespace", MWAction.createNsString(namespaces)) //
+        .build();
   }
 
-  public void remove() {
-    titleIterator.remove();
-
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Object clone() throws CloneNotSupportedException {
+    return new CategoryMembersSimple(bot, categoryName, namespaces);
   }
 
 }
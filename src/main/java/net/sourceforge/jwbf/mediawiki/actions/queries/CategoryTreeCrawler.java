@@ -0,0 +1,294 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+import net.sourceforge.jwbf.mediawiki.contentRep.CategoryItem;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+/**
+ * Walks a category tree: the members of a category and, recursively, of its subcategories. Each
+ * category is listed with {@link CategoryMembersFull} in its own task on an executor, so the
+ * subcategories of one level are expanded concurrently, breadth first if the executor runs its
+ * tasks in submission order.
+ *
+ * <pre>
+ * BotPool bots = BotPool.create(url, 4);
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * CategoryTreeCrawler crawler = new CategoryTreeCrawler(bots, executor, &quot;Physics&quot;, 3,
+ *     MediaWiki.NS_MAIN);
+ * for (CategoryItem item : crawler) {
+ *   // ...
+ * }
+ * </pre>
+ *
+ * Every category is listed once, even if the tree contains cycles, and every page is returned once,
+ * even if it is a member of several categories. The items are returned as soon as they are found,
+ * at most a fixed number of them is buffered.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class CategoryTreeCrawler implements Iterable<CategoryItem> {
+
+  /** depth for a crawl of the whole tree. */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private static final Object END = new Object();
+  /** How long a task waits for room in a full queue before it checks if it should stop. */
+  private static final long OFFER_MILLIS = 100;
+
+  private final BotPool bots;
+  private final ExecutorService executor;
+  private final String root;
+  private final int maxDepth;
+  private final int[] namespaces;
+  private int capacity = DEFAULT_CAPACITY;
+
+  /**
+   * @param bots
+   *          which list the categories
+   * @param executor
+   *          which runs one task per category
+   * @param root
+   *          name of the category, without namespace
+   * @param maxDepth
+   *          levels of subcategories below the root which are expanded, 0 for the root only; see
+   *          {@link #UNLIMITED}
+   * @param namespaces
+   *          of the returned members, all if empty; subcategories are expanded anyway
+   */
+  public CategoryTreeCrawler(BotPool bots, ExecutorService executor, String root, int maxDepth,
+      int... namespaces) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("depth must not be negative");
+    }
+    this.bots = bots;
+    this.executor = executor;
+    this.root = root;
+    this.maxDepth = maxDepth;
+    this.namespaces = namespaces.clone();
+  }
+
+  /**
+   * @param capacity
+   *          maximum number of found but not yet returned items
+   */
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Crawl iterator() {
+    return new Crawl();
+  }
+
+  /**
+   * @param title
+   *          of a subcategory, like "Category:Physics"
+   * @return the name without namespace, as expected by {@link CategoryMembers}
+   */
+  static String toCategoryName(String title) {
+    return title.substring(title.indexOf(':') + 1);
+  }
+
+  private static String toKey(String categoryName) {
+    return categoryName.replace(' ', '_');
+  }
+
+  private int[] requestNamespaces() {
+    if (namespaces.length == 0 || Ints.contains(namespaces, MediaWiki.NS_CATEGORY)) {
+      return namespaces;
+    }
+    return Ints.concat(namespaces, new int[] { MediaWiki.NS_CATEGORY });
+  }
+
+  private boolean isReturned(CategoryItem item) {
+    return namespaces.length == 0 || Ints.contains(namespaces, item.getNamespace());
+  }
+
+  /**
+   * One run of the crawler. A consumer which stops before the end should {@link #close()} it, which
+   * stops the tasks at once; otherwise they stop when the abandoned crawl is garbage collected.
+   */
+  public final class Crawl extends AbstractIterator<CategoryItem> implements Closeable {
+
+    private final Tree tree = new Tree(this);
+
+    Crawl() {
+      tree.submit(root, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected CategoryItem computeNext() {
+      if (tree.closed) {
+        return endOfData();
+      }
+      Object o;
+      try {
+        o = tree.queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JwbfException("interrupted while waiting for categories", e);
+      }
+      if (o == END) {
+        tree.closed = true;
+        return endOfData();
+      } else if (o instanceof Failure) {
+        close();
+        Throwable cause = ((Failure) o).cause;
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new JwbfException(cause);
+      }
+      return (CategoryItem) o;
+    }
+
+    /**
+     * @return number of categories listed or scheduled so far
+     */
+    public int getCategoryCount() {
+      return tree.visited.size();
+    }
+
+    /**
+     * Stops the crawl; this iterator returns no more items.
+     */
+    public void close() {
+      tree.close();
+    }
+  }
+
+  /**
+   * State of a {@link Crawl}, shared with its tasks; it holds the crawl only weakly, so that an
+   * abandoned crawl can be collected and its tasks stop.
+   */
+  private final class Tree {
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>(capacity);
+    private final Set<String> visited = Collections
+        .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<Integer> returned = Collections
+        .newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<Future<?>> tasks = Collections.synchronizedList(Lists
+        .<Future<?>> newArrayList());
+    private final int[] requestNamespaces = requestNamespaces();
+    private final WeakReference<Crawl> owner;
+    private volatile boolean closed = false;
+
+    Tree(Crawl owner) {
+      this.owner = new WeakReference<Crawl>(owner);
+    }
+
+    private void submit(String category, int depth) {
+      if (isStopped() || !visited.add(toKey(category))) {
+        return;
+      }
+      pending.incrementAndGet();
+      tasks.add(executor.submit(new Expansion(category, depth)));
+    }
+
+    private boolean isStopped() {
+      return closed || owner.get() == null;
+    }
+
+    private void close() {
+      closed = true;
+      synchronized (tasks) {
+        for (Future<?> task : tasks) {
+          task.cancel(true);
+        }
+      }
+    }
+
+    /**
+     * @return false if the crawl was closed or abandoned before the queue had room
+     */
+    private boolean offer(Object item) throws InterruptedException {
+      while (!queue.offer(item, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (isStopped()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private class Expansion implements Runnable {
+
+      private final String category;
+      private final int depth;
+
+      Expansion(String category, int depth) {
+        this.category = category;
+        this.depth = depth;
+      }
+
+      public void run() {
+        try {
+          try {
+            for (CategoryItem item : new CategoryMembersFull(bots.next(), category,
+                requestNamespaces)) {
+              if (isStopped()) {
+                log.debug("crawl stopped");
+                return;
+              }
+              if (item.getNamespace() == MediaWiki.NS_CATEGORY && depth < maxDepth) {
+                submit(toCategoryName(item.getTitle()), depth + 1);
+              }
+              if (isReturned(item) && returned.add(item.getPageid()) && !offer(item)) {
+                log.debug("crawl stopped");
+                return;
+              }
+            }
+          } catch (RuntimeException e) {
+            log.warn("listing category " + category + " failed", e);
+            offer(new Failure(e));
+            return;
+          } catch (Error e) {
+            offer(new Failure(e));
+            throw e;
+          }
+          if (pending.decrementAndGet() == 0) {
+            offer(END);
+          }
+        } catch (InterruptedException e) {
+          log.debug("crawl stopped");
+        }
+      }
+    }
+  }
+
+  private static class Failure {
+    private final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+}
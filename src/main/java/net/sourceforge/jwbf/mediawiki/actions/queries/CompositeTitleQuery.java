@@ -0,0 +1,246 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.Get;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.jdom.Element;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Runs several {@link ListModule}s for the same title in one request, e.g.
+ * <code>list=backlinks|embeddedin|imageusage</code>, and continues each module on its own until all
+ * are exhausted. The results are available per module with {@link #titles(ListModule)}.
+ *
+ * <pre>
+ * CompositeTitleQuery references = new CompositeTitleQuery(bot, &quot;File:Example.jpg&quot;,
+ *     ListModule.values());
+ * for (String title : references.titles(ListModule.IMAGEUSAGE)) {
+ *   // ...
+ * }
+ * </pre>
+ *
+ * A request contains only the modules whose results have been consumed, so at most one page per
+ * module is buffered. Each module can be iterated once.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class CompositeTitleQuery extends MWAction {
+
+  private final MediaWikiBot bot;
+  private final String title;
+  private final RedirectFilter rf;
+  private final String namespaces;
+  private final Map<ListModule, ModuleState> states = Maps.newEnumMap(ListModule.class);
+
+  private Get msg;
+  private final Map<ListModule, Integer> requested = Maps.newEnumMap(ListModule.class);
+  private int responseSize = 0;
+
+  /**
+   * @param title
+   *          the referenced title
+   * @param modules
+   *          which are combined
+   */
+  public CompositeTitleQuery(MediaWikiBot bot, String title, ListModule... modules) {
+    this(bot, title, RedirectFilter.all, null, modules);
+  }
+
+  /**
+   * @param title
+   *          the referenced title
+   * @param rf
+   *          filter for {@link ListModule#BACKLINKS}
+   * @param namespaces
+   *          of the referencing pages, may be null
+   * @param modules
+   *          which are combined
+   */
+  public CompositeTitleQuery(MediaWikiBot bot, String title, RedirectFilter rf, int[] namespaces,
+      ListModule... modules) {
+    this.bot = bot;
+    this.title = title;
+    this.rf = rf;
+    this.namespaces = createNsString(namespaces);
+    for (ListModule module : modules) {
+      states.put(module, new ModuleState());
+    }
+  }
+
+  /**
+   * @param module
+   *          one of the modules of this query
+   * @return the titles found by the module
+   */
+  public Iterable<String> titles(final ListModule module) {
+    final ModuleState state = states.get(module);
+    if (state == null) {
+      throw new IllegalArgumentException(module + " is not part of this query");
+    }
+    return new Iterable<String>() {
+
+      public Iterator<String> iterator() {
+        return new AbstractIterator<String>() {
+
+          @Override
+          protected String computeNext() {
+            synchronized (CompositeTitleQuery.this) {
+              while (state.buffer.isEmpty() && !state.exhausted) {
+                fetch();
+              }
+              if (state.buffer.isEmpty()) {
+                return endOfData();
+              }
+              return state.buffer.removeFirst();
+            }
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Requests the next page of all modules which are not exhausted and whose results have been
+   * consumed.
+   */
+  private void fetch() {
+    requested.clear();
+    for (Map.Entry<ListModule, ModuleState> entry : states.entrySet()) {
+      ModuleState state = entry.getValue();
+      if (!state.exhausted && state.buffer.isEmpty()) {
+        requested.put(entry.getKey(), bot.getQueryLimitPolicy().getLimit(entry.getKey().getName()));
+      }
+    }
+    List<String> names = Lists.newArrayList();
+    for (ListModule module : requested.keySet()) {
+      names.add(module.getName());
+    }
+    RequestBuilder requestBuilder = new ApiRequestBuilder() //
+        .action("query") //
+        .formatXml() //
+        .param("list", MediaWiki.encode(Joiner.on('|').join(names))) //
+    ;
+    for (Map.Entry<ListModule, Integer> entry : requested.entrySet()) {
+      addParams(requestBuilder, entry.getKey(), entry.getValue());
+    }
+    msg = requestBuilder.buildGet();
+    setHasMoreMessages(true);
+    long start = System.currentTimeMillis();
+    bot.performAction(this);
+    long millis = System.currentTimeMillis() - start;
+    // each module is charged with the share of its items, so that a combined response does not
+    // shrink the limits of all modules, which standalone queries of the bot use as well
+    int items = 0;
+    for (ListModule module : requested.keySet()) {
+      items += states.get(module).buffer.size();
+    }
+    for (Map.Entry<ListModule, Integer> entry : requested.entrySet()) {
+      double share = 1.0 / requested.size();
+      if (items > 0) {
+        share = (double) states.get(entry.getKey()).buffer.size() / items;
+      }
+      bot.getQueryLimitPolicy().record(entry.getKey().getName(), entry.getValue(),
+          Math.round(millis * share), (int) Math.round(responseSize * share));
+    }
+  }
+
+  private void addParams(RequestBuilder requestBuilder, ListModule module, int limit) {
+    String prefix = module.getPrefix();
+    String continuation = states.get(module).continuation;
+    requestBuilder.param(prefix + "limit", limit);
+    if (continuation.length() > 0) {
+      requestBuilder.param(prefix + "continue", MediaWiki.encode(continuation));
+      if (isContinuationOnly(module)) {
+        return;
+      }
+    }
+    requestBuilder.param(prefix + "title", MediaWiki.encode(title));
+    if (namespaces.length() > 0) {
+      requestBuilder.param(prefix + "namespace", MediaWiki.encode(namespaces));
+    }
+    if (module == ListModule.BACKLINKS) {
+      requestBuilder.param("blfilterredir", rf.name());
+    }
+  }
+
+  /**
+   * Versions before 1.17 reject a title together with blcontinue or iucontinue, see
+   * {@link BacklinkTitles} and {@link ImageUsageTitles}.
+   */
+  private boolean isContinuationOnly(ListModule module) {
+    Version version = bot.getVersion();
+    return module != ListModule.EMBEDDEDIN
+        && (version == Version.MW1_15 || version == Version.MW1_16);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public HttpAction getNextMessage() {
+    return msg;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String processAllReturningText(String s) {
+    responseSize = s.length();
+    Element root = getRootElement(s);
+    Element query = root.getChild("query");
+    Element queryContinue = root.getChild("query-continue");
+    for (ListModule module : requested.keySet()) {
+      ModuleState state = states.get(module);
+      if (query != null && query.getChild(module.getName()) != null) {
+        for (Object o : query.getChild(module.getName()).getChildren(module.getPrefix())) {
+          state.buffer.add(((Element) o).getAttributeValue("title"));
+        }
+      }
+      state.continuation = "";
+      if (queryContinue != null && queryContinue.getChild(module.getName()) != null) {
+        state.continuation = Strings.nullToEmpty(queryContinue.getChild(module.getName())
+            .getAttributeValue(module.getPrefix() + "continue"));
+      }
+      state.exhausted = state.continuation.length() == 0;
+      if (log.isDebugEnabled()) {
+        log.debug("{} found {}, continue with \"{}\"", new Object[] { module, state.buffer.size(),
+            state.continuation });
+      }
+    }
+    return "";
+  }
+
+  /**
+   * @return the modules of this query
+   */
+  public List<ListModule> getModules() {
+    return ImmutableList.copyOf(states.keySet());
+  }
+
+  private static class ModuleState {
+    private final LinkedList<String> buffer = Lists.newLinkedList();
+    private String continuation = "";
+    private boolean exhausted = false;
+  }
+
+}
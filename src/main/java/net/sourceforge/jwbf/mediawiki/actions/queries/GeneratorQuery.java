@@ -0,0 +1,302 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Uses a list module like "allpages" as a generator for <code>prop=revisions|info</code>, so that
+ * one request returns the titles of a list page together with the latest revision of each page.
+ * Use the static factories, e.g. {@link #allPages(MediaWikiBot, RedirectFilter, int...)}.
+ * <p>
+ * The articles of a page are returned in the order of the api response, which is not the order of
+ * the list module. The page size is limited to {@link QueryLimitPolicy#MAX_CONTENT_LIMIT}, because
+ * the api returns no more content per request.
+ * </p>
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class GeneratorQuery extends TitleQuery<SimpleArticle> {
+
+  private static final String RVPROP = "content|comment|user|timestamp|ids|flags";
+
+  private final MediaWikiBot bot;
+  private final String generator;
+  private final String prefix;
+  private final Map<String, String> params;
+  /** Continuation found by {@link #parseArticleTitles(String)}, so that it parses only once. */
+  private String continuation = "";
+
+  /**
+   * @param generator
+   *          list module like "allpages"
+   * @param prefix
+   *          of the generator params like "gap"
+   * @param params
+   *          of the list module without prefix like "namespace"; empty values are omitted
+   */
+  public GeneratorQuery(MediaWikiBot bot, String generator, String prefix,
+      Map<String, String> params) {
+    super(bot);
+    this.bot = bot;
+    this.generator = generator;
+    this.prefix = prefix;
+    this.params = ImmutableMap.copyOf(params);
+  }
+
+  /**
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          which are searched
+   * @return a query of all articles in the namespaces with their content
+   */
+  public static GeneratorQuery allPages(MediaWikiBot bot, RedirectFilter rf, int... namespaces) {
+    return allPages(bot, null, rf, namespaces);
+  }
+
+  /**
+   * @param prefix
+   *          restricts search to titles that begin with this value, may be null
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          which are searched
+   * @return a query of all matching articles with their content
+   */
+  public static GeneratorQuery allPages(MediaWikiBot bot, String prefix, RedirectFilter rf,
+      int... namespaces) {
+    return new GeneratorQuery(bot, "allpages", "gap", ImmutableMap.of( //
+        "prefix", Strings.nullToEmpty(prefix), //
+        "filterredir", rf.name(), //
+        "namespace", MWAction.createNsString(namespaces)));
+  }
+
+  /**
+   * @param categoryName
+   *          like "Buildings" without prefix "Category:"
+   * @param namespaces
+   *          for search
+   * @return a query of the category members with their content
+   */
+  public static GeneratorQuery categoryMembers(MediaWikiBot bot, String categoryName,
+      int... namespaces) {
+    return new GeneratorQuery(bot, "categorymembers", "gcm", ImmutableMap.of( //
+        "title", "Category:" + categoryName.replace(" ", "_"), //
+        "namespace", MWAction.createNsString(namespaces)));
+  }
+
+  /**
+   * @param articleName
+   *          the title of the linked article
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          for search
+   * @return a query of the linking articles with their content
+   */
+  public static GeneratorQuery backlinks(MediaWikiBot bot, String articleName, RedirectFilter rf,
+      int... namespaces) {
+    return new GeneratorQuery(bot, "backlinks", "gbl", ImmutableMap.of( //
+        "title", articleName, //
+        "filterredir", rf.name(), //
+        "namespace", MWAction.createNsString(namespaces)));
+  }
+
+  /**
+   * @param templateName
+   *          like "Template:Infobox"
+   * @param namespaces
+   *          for search
+   * @return a query of the articles using the template with their content
+   */
+  public static GeneratorQuery embeddedIn(MediaWikiBot bot, String templateName,
+      int... namespaces) {
+    return new GeneratorQuery(bot, "embeddedin", "gei", ImmutableMap.of( //
+        "title", templateName, //
+        "namespace", MWAction.createNsString(namespaces)));
+  }
+
+  /**
+   * @param imageName
+   *          like "File:Example.jpg"
+   * @param namespaces
+   *          for search
+   * @return a query of the articles using the image with their content
+   */
+  public static GeneratorQuery imageUsage(MediaWikiBot bot, String imageName, int... namespaces) {
+    return new GeneratorQuery(bot, "imageusage", "giu", ImmutableMap.of( //
+        "title", imageName, //
+        "namespace", MWAction.createNsString(namespaces)));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String getModule() {
+    return generator + QueryLimitPolicy.CONTENT_SUFFIX;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected HttpAction prepareCollection() {
+    RequestBuilder requestBuilder = new ApiRequestBuilder() //
+        .action("query") //
+        .formatXml() //
+        .param("generator", generator) //
+        .param(prefix + "limit", getLimit()) //
+        .param("prop", MediaWiki.encode("revisions|info")) //
+        .param("rvprop", MediaWiki.encode(RVPROP)) //
+    ;
+    for (Entry<String, String> param : params.entrySet()) {
+      if (param.getValue().length() > 0) {
+        requestBuilder.param(prefix + param.getKey(), MediaWiki.encode(param.getValue()));
+      }
+    }
+    if (getNextPageInfo().length() > 0) {
+      for (Entry<String, String> param : Splitter.on('&').withKeyValueSeparator("=")
+          .split(getNextPageInfo()).entrySet()) {
+        requestBuilder.param(param.getKey(), param.getValue());
+      }
+    }
+    return requestBuilder.buildGet();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Collection<SimpleArticle> parseArticleTitles(String s) {
+    Element root = getRootElementWithError(s);
+    Element error = getErrorElement(root);
+    if (error != null) {
+      throw new ApiException(error.getAttributeValue("code"), error.getAttributeValue("info"));
+    }
+    continuation = parseContinuation(root);
+    List<SimpleArticle> articles = Lists.newArrayList();
+    Element query = root.getChild("query");
+    if (query != null && query.getChild("pages") != null) {
+      for (Object o : query.getChild("pages").getChildren("page")) {
+        Element page = (Element) o;
+        if (page.getAttribute("missing") != null || page.getAttribute("invalid") != null) {
+          continue;
+        }
+        Element revisions = page.getChild("revisions");
+        if (revisions == null || revisions.getChild("rev") == null) {
+          // returned before or after the rvcontinue of an oversized result
+          continue;
+        }
+        articles.add(parseArticle(page, revisions.getChild("rev")));
+      }
+    }
+    return articles;
+  }
+
+  private SimpleArticle parseArticle(Element page, Element rev) {
+    SimpleArticle sa = new SimpleArticle();
+    sa.setTitle(page.getAttributeValue("title"));
+    sa.setText(rev.getText());
+    sa.setRevisionId(Strings.nullToEmpty(rev.getAttributeValue("revid")));
+    sa.setEditor(Strings.nullToEmpty(rev.getAttributeValue("user")));
+    sa.setEditSummary(Strings.nullToEmpty(rev.getAttributeValue("comment")));
+    sa.setMinorEdit(rev.getAttribute("minor") != null);
+    String timestamp = rev.getAttributeValue("timestamp");
+    if (timestamp != null) {
+      try {
+        sa.setEditTimestamp(timestamp);
+      } catch (ParseException e) {
+        log.debug("timestamp could not be parsed");
+      }
+    }
+    return sa;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseHasMore(String s) {
+    return continuation;
+  }
+
+  /**
+   * Collects the generator params of <code>query-continue</code>, which differ by version (e.g.
+   * <code>gapfrom</code> or <code>gapcontinue</code>). If the content of the pages exceeded the
+   * result size of the api, <code>rvcontinue</code> is followed first with the same generator
+   * params, which returns the missing revisions of the same pages.
+   */
+  private String parseContinuation(Element root) {
+    Element queryContinue = root.getChild("query-continue");
+    if (queryContinue == null) {
+      return "";
+    }
+    Map<String, String> continueParams = Maps.newLinkedHashMap();
+    Element revisions = queryContinue.getChild("revisions");
+    if (revisions != null && revisions.getAttributeValue("rvcontinue") != null) {
+      if (getNextPageInfo().length() > 0) {
+        continueParams.putAll(Splitter.on('&').withKeyValueSeparator("=")
+            .split(getNextPageInfo()));
+      }
+      continueParams.put("rvcontinue", MediaWiki.encode(revisions.getAttributeValue("rvcontinue")));
+      return Joiner.on('&').withKeyValueSeparator("=").join(continueParams);
+    }
+    if (queryContinue.getChild(generator) == null) {
+      return "";
+    }
+    for (Object o : queryContinue.getChild(generator).getAttributes()) {
+      Attribute attribute = (Attribute) o;
+      if (attribute.getName().startsWith(prefix)) {
+        continueParams.put(attribute.getName(), MediaWiki.encode(attribute.getValue()));
+      }
+    }
+    return Joiner.on('&').withKeyValueSeparator("=").join(continueParams);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .putAll(params) //
+        .put("generator", generator) //
+        .build();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Object clone() throws CloneNotSupportedException {
+    return new GeneratorQuery(bot, generator, prefix, params);
+  }
+
+}
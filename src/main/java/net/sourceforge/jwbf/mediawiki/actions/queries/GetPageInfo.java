@@ -0,0 +1,176 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamReader;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.actions.Post;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ElementHandler;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.PageInfo;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Reads <code>prop=info</code> of many pages, like their latest revision id, with one request per
+ * {@link #MAX_TITLES} titles ({@link #MAX_TITLES_HIGH} for accounts with
+ * {@link net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy#RIGHT_APIHIGHLIMITS}). The
+ * titles are posted, because so many of them do not fit into an url.
+ *
+ * <pre>
+ * GetPageInfo info = new GetPageInfo(bot, titles);
+ * bot.performAction(info);
+ * long revId = info.getPageInfos().get(&quot;Main Page&quot;).getLastRevisionId();
+ * </pre>
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class GetPageInfo extends MWAction {
+
+  public static final int MAX_TITLES = 50;
+  public static final int MAX_TITLES_HIGH = 500;
+
+  private final List<List<String>> batches;
+  private int next = 0;
+  private final Map<String, PageInfo> pageInfos = Maps.newLinkedHashMap();
+
+  /**
+   * @param titles
+   *          of the pages, duplicates are requested once
+   */
+  public GetPageInfo(MediaWikiBot bot, Collection<String> titles) {
+    this(titles, batchSize(bot));
+  }
+
+  /**
+   * @param titles
+   *          of the pages, duplicates are requested once
+   * @param batchSize
+   *          titles per request, at most {@link #MAX_TITLES_HIGH}
+   */
+  public GetPageInfo(Collection<String> titles, int batchSize) {
+    if (batchSize < 1 || batchSize > MAX_TITLES_HIGH) {
+      throw new IllegalArgumentException("batch size must be between 1 and " + MAX_TITLES_HIGH);
+    }
+    List<String> distinct = ImmutableList.copyOf(Sets.newLinkedHashSet(titles));
+    batches = Lists.partition(distinct, batchSize);
+  }
+
+  private static int batchSize(MediaWikiBot bot) {
+    if (bot.getQueryLimitPolicy().hasHighLimits()) {
+      return MAX_TITLES_HIGH;
+    }
+    return MAX_TITLES;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasMoreMessages() {
+    return next < batches.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public HttpAction getNextMessage() {
+    if (!hasMoreMessages()) {
+      throw new IllegalStateException("all pages have been requested");
+    }
+    Post post = new ApiRequestBuilder() //
+        .action("query") //
+        .formatXml() //
+        .param("prop", "info") //
+        .buildPost();
+    post.addParam("titles", Joiner.on('|').join(batches.get(next)));
+    return post;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String processReturningText(String xml, HttpAction hm) {
+    final Map<String, String> normalized = Maps.newHashMap();
+    final Map<String, PageInfo> byTitle = Maps.newHashMap();
+    parseXml(xml, new ElementHandler() {
+
+      public void startElement(String parent, XMLStreamReader reader) {
+        String name = reader.getLocalName();
+        if (name.equals("n") && "normalized".equals(parent)) {
+          normalized.put(MediaWiki.decode(reader.getAttributeValue(null, "from")),
+              MediaWiki.decode(reader.getAttributeValue(null, "to")));
+        } else if (name.equals("page") && "pages".equals(parent)) {
+          PageInfo info = readPage(reader);
+          byTitle.put(info.getTitle(), info);
+        } else if (name.equals("i") && "interwiki".equals(parent)) {
+          // not a page of this wiki
+          PageInfo info = new PageInfo();
+          info.setTitle(MediaWiki.decode(reader.getAttributeValue(null, "title")));
+          info.setInterwiki(reader.getAttributeValue(null, "iw"));
+          info.setMissing(true);
+          byTitle.put(info.getTitle(), info);
+        }
+      }
+    });
+    for (String title : batches.get(next)) {
+      String normalizedTitle = normalized.get(title);
+      if (normalizedTitle == null) {
+        normalizedTitle = title;
+      }
+      PageInfo info = byTitle.get(normalizedTitle);
+      if (info == null) {
+        log.debug("no info for {}", title);
+      } else {
+        pageInfos.put(title, info);
+      }
+    }
+    next++;
+    return xml;
+  }
+
+  private static PageInfo readPage(XMLStreamReader reader) {
+    PageInfo info = new PageInfo();
+    info.setTitle(MediaWiki.decode(reader.getAttributeValue(null, "title")));
+    info.setNamespace((int) parseLong(reader.getAttributeValue(null, "ns")));
+    info.setPageId(parseLong(reader.getAttributeValue(null, "pageid")));
+    info.setLastRevisionId(parseLong(reader.getAttributeValue(null, "lastrevid")));
+    info.setTouched(reader.getAttributeValue(null, "touched"));
+    info.setLength((int) parseLong(reader.getAttributeValue(null, "length")));
+    info.setRedirect(reader.getAttributeValue(null, "redirect") != null);
+    info.setMissing(reader.getAttributeValue(null, "missing") != null
+        || reader.getAttributeValue(null, "invalid") != null);
+    return info;
+  }
+
+  private static long parseLong(String value) {
+    if (Strings.isNullOrEmpty(value)) {
+      return 0;
+    }
+    return Long.parseLong(value);
+  }
+
+  /**
+   * @return the info of each requested title which has been read so far, in the order of the
+   *         titles; keyed by the requested, not the normalized title
+   */
+  public Map<String, PageInfo> getPageInfos() {
+    return Collections.unmodifiableMap(pageInfos);
+  }
+
+}
@@ -20,6 +20,7 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +34,7 @@ import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -46,9 +48,6 @@ import com.google.common.collect.Lists;
 @Slf4j
 public class ImageUsageTitles extends TitleQuery<String> {
 
-  /** constant value for the illimit-parameter. **/
-  private static final int LIMIT = 50;
-
   private final MediaWikiBot bot;
 
   private final String imageName;
@@ -117,7 +116,9 @@ public class ImageUsageTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
-
+    if (isJson(s)) {
+      return parseJsonContinue(s);
+    }
     return handler.parseHasMore(s);
 
   }
@@ -130,11 +131,18 @@ public class ImageUsageTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
-
+    if (isJson(s)) {
+      return parseJsonTitles(s);
+    }
     return handler.parseArticleTitles(s);
 
   }
 
+  @Override
+  protected String getModule() {
+    return "imageusage";
+  }
+
   @Override
   protected HttpAction prepareCollection() {
 
@@ -147,6 +155,17 @@ public class ImageUsageTitles extends TitleQuery<String> {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("title", imageName) //
+        .put("namespace", MWAction.createNsString(namespaces)) //
+        .build();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -173,9 +192,9 @@ public class ImageUsageTitles extends TitleQuery<String> {
   private RequestBuilder newRequestBuilder() {
     return new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "imageusage") //
-        .param("iulimit", LIMIT + "") //
+        .param("iulimit", getLimit()) //
     ;
   }
 
@@ -0,0 +1,228 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.Get;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.LinkGraph;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+/**
+ * Fetches links into a {@link LinkGraph.Builder}, either backlinks title by title with
+ * {@link BacklinkTitles} or forward links of many pages per request with <code>prop=links</code>.
+ *
+ * <pre>
+ * LinkGraph.Builder builder = new LinkGraph.Builder();
+ * new LinkGraphFetcher(bot).addLinks(builder, RedirectFilter.nonredirects, MediaWiki.NS_MAIN);
+ * LinkGraph graph = builder.build();
+ * </pre>
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class LinkGraphFetcher {
+
+  /** titles per <code>prop=links</code> request. */
+  public static final int BATCH_SIZE = 50;
+
+  private static final String MODULE = "links";
+
+  private final MediaWikiBot bot;
+
+  public LinkGraphFetcher(MediaWikiBot bot) {
+    this.bot = bot;
+  }
+
+  /**
+   * Adds a link from each page linking to one of the titles.
+   *
+   * @param titles
+   *          the linked pages
+   * @param namespaces
+   *          of the linking pages, all if empty
+   */
+  public void addBacklinks(LinkGraph.Builder builder, Iterable<String> titles,
+      int... namespaces) {
+    for (String title : titles) {
+      builder.addNode(title);
+      Iterable<String> backlinks = new BacklinkTitles(bot, title, RedirectFilter.all, namespaces);
+      for (String backlink : backlinks) {
+        builder.addEdge(backlink, title);
+      }
+    }
+  }
+
+  /**
+   * Adds the links of the titles, {@value #BATCH_SIZE} titles per request.
+   *
+   * @param titles
+   *          the linking pages
+   * @param linkNamespaces
+   *          of the linked pages, all if empty
+   */
+  public void addLinks(LinkGraph.Builder builder, Iterable<String> titles,
+      int... linkNamespaces) {
+    for (List<String> batch : Iterables.partition(titles, BATCH_SIZE)) {
+      for (String title : batch) {
+        builder.addNode(title);
+      }
+      fetch(builder, ImmutableMap.of("titles", MediaWiki.encode(Joiner.on('|').join(batch))),
+          "", linkNamespaces);
+    }
+  }
+
+  /**
+   * Adds the links of all pages in the namespaces, using <code>allpages</code> as generator.
+   *
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          of the linking and the linked pages
+   */
+  public void addLinks(LinkGraph.Builder builder, RedirectFilter rf, int... namespaces) {
+    for (int namespace : namespaces) {
+      fetch(builder, ImmutableMap.<String, String> builder() //
+          .put("generator", "allpages") //
+          .put("gapnamespace", String.valueOf(namespace)) //
+          .put("gapfilterredir", rf.name()) //
+          .put("gaplimit", String.valueOf(bot.getQueryLimitPolicy().getLimit("allpages"))) //
+          .build(), "gap", namespaces);
+    }
+  }
+
+  /**
+   * Performs requests until neither the links nor the generator continue. The links of a
+   * generator page are continued first, with the same generator position.
+   */
+  private void fetch(LinkGraph.Builder builder, Map<String, String> params,
+      String generatorPrefix, int... linkNamespaces) {
+    LinksRequest request = new LinksRequest(builder, generatorPrefix);
+    String generatorContinuation = "";
+    String linksContinuation = "";
+    do {
+      request.prepare(params, generatorContinuation, linksContinuation,
+          MWAction.createNsString(linkNamespaces));
+      bot.performAction(request);
+      linksContinuation = request.linksContinuation;
+      if (linksContinuation.length() == 0) {
+        generatorContinuation = request.generatorContinuation;
+        if (generatorContinuation.length() == 0) {
+          return;
+        }
+      }
+    } while (true);
+  }
+
+  private class LinksRequest extends MWAction {
+
+    private final LinkGraph.Builder builder;
+    private final String generatorPrefix;
+    private Get msg;
+    private String linksContinuation = "";
+    private String generatorContinuation = "";
+
+    LinksRequest(LinkGraph.Builder builder, String generatorPrefix) {
+      this.builder = builder;
+      this.generatorPrefix = generatorPrefix;
+    }
+
+    void prepare(Map<String, String> params, String generatorContinuation,
+        String linksContinuation, String linkNamespaces) {
+      RequestBuilder requestBuilder = new ApiRequestBuilder() //
+          .action("query") //
+          .formatXml() //
+          .param("prop", MODULE) //
+          .param("pllimit", bot.getQueryLimitPolicy().getLimit(MODULE)) //
+      ;
+      for (Entry<String, String> param : params.entrySet()) {
+        requestBuilder.param(param.getKey(), param.getValue());
+      }
+      if (linkNamespaces.length() > 0) {
+        requestBuilder.param("plnamespace", MediaWiki.encode(linkNamespaces));
+      }
+      if (generatorContinuation.length() > 0) {
+        for (Entry<String, String> param : Splitter.on('&').withKeyValueSeparator("=")
+            .split(generatorContinuation).entrySet()) {
+          requestBuilder.param(param.getKey(), param.getValue());
+        }
+      }
+      if (linksContinuation.length() > 0) {
+        requestBuilder.param("plcontinue", MediaWiki.encode(linksContinuation));
+      }
+      msg = requestBuilder.buildGet();
+      setHasMoreMessages(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpAction getNextMessage() {
+      return msg;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String processAllReturningText(String s) {
+      Element root = getRootElement(s);
+      Element query = root.getChild("query");
+      int links = 0;
+      if (query != null && query.getChild("pages") != null) {
+        for (Object o : query.getChild("pages").getChildren("page")) {
+          Element page = (Element) o;
+          if (page.getAttribute("missing") != null || page.getAttribute("invalid") != null) {
+            continue;
+          }
+          String title = page.getAttributeValue("title");
+          builder.addNode(title);
+          Element pageLinks = page.getChild(MODULE);
+          if (pageLinks != null) {
+            for (Object l : pageLinks.getChildren("pl")) {
+              builder.addEdge(title, ((Element) l).getAttributeValue("title"));
+              links++;
+            }
+          }
+        }
+      }
+      linksContinuation = "";
+      Map<String, String> generatorParams = Maps.newLinkedHashMap();
+      Element queryContinue = root.getChild("query-continue");
+      if (queryContinue != null) {
+        for (Object o : queryContinue.getChildren()) {
+          Element module = (Element) o;
+          for (Object a : module.getAttributes()) {
+            Attribute attribute = (Attribute) a;
+            if (attribute.getName().equals("plcontinue")) {
+              linksContinuation = attribute.getValue();
+            } else if (generatorPrefix.length() > 0
+                && attribute.getName().startsWith(generatorPrefix)) {
+              generatorParams.put(attribute.getName(), MediaWiki.encode(attribute.getValue()));
+            }
+          }
+        }
+      }
+      generatorContinuation = Joiner.on('&').withKeyValueSeparator("=").join(generatorParams);
+      log.debug("{} links, continue with \"{}\"", links, linksContinuation);
+      return "";
+    }
+  }
+
+}
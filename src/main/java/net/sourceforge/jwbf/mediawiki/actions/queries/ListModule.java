@@ -0,0 +1,40 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+/**
+ * List modules which find the pages referencing a title and can be combined in one request, see
+ * {@link CompositeTitleQuery}.
+ *
+ * @author Thomas Stock
+ */
+public enum ListModule {
+
+  /** Pages linking to the title, like {@link BacklinkTitles}. */
+  BACKLINKS("backlinks", "bl"),
+  /** Pages transcluding the title, like {@link TemplateUserTitles}. */
+  EMBEDDEDIN("embeddedin", "ei"),
+  /** Pages using the file, like {@link ImageUsageTitles}. */
+  IMAGEUSAGE("imageusage", "iu");
+
+  private final String name;
+  private final String prefix;
+
+  private ListModule(String name, String prefix) {
+    this.name = name;
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return the name used in <code>list=</code>, like "backlinks"
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the prefix of params and the name of result elements, like "bl"
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+}
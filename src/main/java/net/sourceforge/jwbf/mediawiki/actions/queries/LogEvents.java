@@ -19,24 +19,39 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import javax.xml.stream.XMLStreamReader;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.core.actions.Get;
-import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
-import net.sourceforge.jwbf.core.actions.util.ProcessException;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
-import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ElementHandler;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 import net.sourceforge.jwbf.mediawiki.contentRep.LogItem;
 
-import org.jdom.Element;
-
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * 
@@ -46,13 +61,17 @@ import com.google.common.collect.Lists;
  * 
  * api.php ? action=query & list=logevents - List last 10 events of any type
  * 
+ * The events can be limited to a time window and fetched from the oldest or the newest event on.
+ * {@link #sliced(BotPool, ExecutorService, Date, Date, int, boolean, String...)} splits a window
+ * into slices which are fetched concurrently.
+ * 
  * TODO This is a semi-complete extension point
  * 
  * @author Thomas Stock
  * 
  */
 @Slf4j
-public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<LogItem> {
+public class LogEvents extends TitleQuery<LogItem> {
 
   /** value for the bllimit-parameter. * */
 
@@ -66,22 +85,32 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
   public static final String PATROL = "patrol";
   public static final String MERGE = "merge";
 
+  private static final long SECOND = 1000;
+  /** Key of the continuation which is not sent, but holds the {@link #lastPageIds}. */
+  private static final String LAST_IDS = "lastids";
+
   private final int limit;
 
-  private Get msg;
   private final MediaWikiBot bot;
-  /* first run variable */
-  private boolean init = true;
-  private boolean selvEx = true;
   /**
    * Collection that will contain the result (titles of articles linking to the target) after
    * performing the action has finished.
    */
   private final Collection<LogItem> logCollection = Lists.newArrayList();
-  private Iterator<LogItem> logIterator = null;
   private final String[] type;
-  private String nextPageInfo = "";
-  private boolean hasMoreResults = true;
+  private final Date from;
+  private final Date to;
+  private final boolean newer;
+
+  /** Continuation found by {@link #parseArticleTitles(String)}, so that it parses only once. */
+  private String continuation = "";
+  /**
+   * Ids of the events at the last timestamp of the previous page; lestart is inclusive, so this
+   * page may repeat them. They are part of the continuation, so that a cursor keeps them.
+   */
+  private Set<Long> lastPageIds = Sets.newHashSet();
+  /** Continuation of the current request, without the {@link #LAST_IDS}. */
+  private Map<String, String> sentParams = ImmutableMap.of();
 
   /**
    * information necessary to get the next api page.
@@ -99,12 +128,13 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
    *          of like {@link #MOVE}
    */
   public LogEvents(MediaWikiBot bot, String[] type) {
-    this(bot, 50, type.clone());
+    this(bot, 0, type.clone());
   }
 
   /**
    * @param limit
-   *          of events
+   *          of events per request; values less than one use the
+   *          {@link net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy} of the bot
    * @param type
    *          of like {@link #MOVE}
    */
@@ -114,205 +144,279 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
 
   /**
    * @param limit
-   *          of events
+   *          of events per request; values less than one use the
+   *          {@link net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy} of the bot
    * @param type
    *          of like {@link #MOVE}
    * 
    */
   public LogEvents(MediaWikiBot bot, int limit, String[] type) {
-    super(bot.getVersion());
+    this(bot, limit, type, null, null, false);
+  }
+
+  /**
+   * @param from
+   *          oldest timestamp (inclusive), may be null
+   * @param to
+   *          newest timestamp (inclusive), may be null
+   * @param newer
+   *          if the oldest events are returned first
+   * @param type
+   *          of like {@link #MOVE}
+   */
+  public LogEvents(MediaWikiBot bot, Date from, Date to, boolean newer, String... type) {
+    this(bot, 0, type.clone(), from, to, newer);
+  }
+
+  private LogEvents(MediaWikiBot bot, int limit, String[] type, Date from, Date to,
+      boolean newer) {
+    super(bot);
     this.bot = bot;
     this.type = type;
     this.limit = limit;
+    this.from = from;
+    this.to = to;
+    this.newer = newer;
+    setLimit(limit);
   }
 
-  private Get generateRequest(String... logtype) {
+  /**
+   * Splits a time window into slices, which are fetched concurrently with the bots of the pool.
+   * The events are returned in order.
+   * 
+   * @param from
+   *          oldest timestamp (inclusive)
+   * @param to
+   *          newest timestamp (inclusive)
+   * @param slices
+   *          number of concurrent queries
+   * @param newer
+   *          if the oldest events are returned first
+   * @param type
+   *          of like {@link #MOVE}
+   * @return the events of the window
+   */
+  public static Iterable<LogItem> sliced(final BotPool bots, final ExecutorService executor,
+      Date from, Date to, int slices, boolean newer, final String... type) {
+    final List<LogEvents> partitions = Lists.newArrayList();
+    long seconds = (to.getTime() - from.getTime()) / SECOND + 1;
+    int count = (int) Math.max(1, Math.min(slices, seconds));
+    for (int i = 0; i < count; i++) {
+      long start = from.getTime() + seconds * i / count * SECOND;
+      long end = from.getTime() + (seconds * (i + 1) / count - 1) * SECOND;
+      partitions.add(new LogEvents(bots.next(), new Date(start), new Date(end), newer, type));
+    }
+    if (!newer) {
+      Collections.reverse(partitions);
+    }
+    return new Iterable<LogItem>() {
 
+      public Iterator<LogItem> iterator() {
+        return new PartitionedIterator<LogItem>(partitions, executor, true);
+      }
+    };
+  }
+
+  private Get generateRequest(String[] logtype, Map<String, String> continueParams) {
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "logevents") //
-        .param("lelimit", limit + "") //
+        .param("lelimit", getLimit()) //
     ;
     if (logtype.length > 0) {
-      StringBuffer logtemp = new StringBuffer();
-      for (int i = 0; i < logtype.length; i++) {
-        logtemp.append(logtype[i] + "|");
+      requestBuilder.param("letype", Joiner.on("|").join(logtype));
+    }
+    Date start = to;
+    Date end = from;
+    if (newer) {
+      requestBuilder.param("ledir", "newer");
+      start = from;
+      end = to;
+    }
+    if (end != null) {
+      requestBuilder.param("leend", MediaWiki.encode(MediaWiki.formatTimestamp(end)));
+    }
+    if (!continueParams.isEmpty()) {
+      for (Entry<String, String> param : continueParams.entrySet()) {
+        requestBuilder.param(param.getKey(), param.getValue());
       }
-      requestBuilder.param("letype", logtemp.substring(0, logtemp.length() - 1));
+    } else if (start != null) {
+      requestBuilder.param("lestart", MediaWiki.encode(MediaWiki.formatTimestamp(start)));
     }
 
     return requestBuilder.buildGet();
 
   }
 
-  private Get generateContinueRequest(String[] logtype, String continueing) {
-    // FIXME continueing is unused
-    return generateRequest(logtype);
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public String processAllReturningText(final String s) {
-    logCollection.clear();
-    parseArticleTitles(s);
-    parseHasMore(s);
-    logIterator = logCollection.iterator();
-    return "";
-  }
-
   /**
    * picks the article name from a MediaWiki api response.
    * 
-   * @param xml
-   *          text for parsing
-   */
-  private void parseArticleTitles(String xml) {
-
-    Element root = getRootElement(xml);
-    findContent(root);
-
-  }
-
-  /**
-   * gets the information about a follow-up page from a provided api response. If there is one, a
-   * new request is added to msgs by calling generateRequest.
-   * 
    * @param s
    *          text for parsing
    */
-  private void parseHasMore(final String s) {
-
-    // get the blcontinue-value
-
-    Pattern p = Pattern.compile("<query-continue>.*?" + "<logevents *lestart=\"([^\"]*)\" */>"
-        + ".*?</query-continue>", Pattern.DOTALL | Pattern.MULTILINE);
-
-    Matcher m = p.matcher(s);
-
-    if (m.find()) {
-      nextPageInfo = m.group(1);
-      hasMoreResults = true;
+  @Override
+  protected Collection<LogItem> parseArticleTitles(String s) {
+    logCollection.clear();
+    final List<LogItem> pageItems = Lists.newArrayList();
+    final Map<String, String> continueParams = Maps.newLinkedHashMap();
+    if (isJson(s)) {
+      parseJson(s, new JsonHandler() {
+
+        @Override
+        public void object(String name, String parent, Map<String, String> values) {
+          if ("logevents".equals(name) && "query".equals(parent)) {
+            readItem(Functions.forMap(values, null), pageItems);
+          } else if ("logevents".equals(name) && "query-continue".equals(parent)) {
+            for (Entry<String, String> value : values.entrySet()) {
+              continueParams.put(value.getKey(), MediaWiki.encode(value.getValue()));
+            }
+          }
+        }
+      });
     } else {
-      hasMoreResults = false;
+      parseXml(s, new ElementHandler() {
+
+        public void startElement(String parent, final XMLStreamReader reader) {
+          if ("logevents".equals(parent) && reader.getLocalName().equals("item")) {
+            readItem(new Function<String, String>() {
+
+              public String apply(String name) {
+                return reader.getAttributeValue(null, name);
+              }
+            }, pageItems);
+          } else if ("query-continue".equals(parent)
+              && reader.getLocalName().equals("logevents")) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              continueParams.put(reader.getAttributeLocalName(i),
+                  MediaWiki.encode(reader.getAttributeValue(i)));
+            }
+          }
+        }
+      });
     }
-    if (log.isDebugEnabled()) {
-      log.debug("has more = " + hasMoreResults);
+    if (log.isDebugEnabled() && !continueParams.isEmpty()) {
+      log.debug("has more " + continueParams);
     }
-
-  }
-
-  @SuppressWarnings("unchecked")
-  private void findContent(final Element root) {
-
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("item")) {
-
-        LogItem l = new LogItem();
-        l.setTitle(element.getAttributeValue("title"));
-        l.setType(element.getAttributeValue("type"));
-        l.setUser(element.getAttributeValue("user"));
-        logCollection.add(l);
-
-      } else {
-        findContent(element);
+    if (logCollection.isEmpty() && !continueParams.isEmpty()
+        && continueParams.equals(sentParams)) {
+      // more than a page of events at one timestamp, lestart cannot get past them
+      skipTimestamp(continueParams, pageItems);
+    } else if (!continueParams.isEmpty() && !pageItems.isEmpty()) {
+      String boundary = pageItems.get(pageItems.size() - 1).getTimestamp();
+      Set<Long> boundaryIds = Sets.newLinkedHashSet();
+      for (LogItem item : pageItems) {
+        if (Objects.equal(boundary, item.getTimestamp())) {
+          boundaryIds.add(item.getLogId());
+        }
       }
-
-    }
-  }
-
-  private void prepareCollection() {
-
-    if (init || (!logIterator.hasNext() && hasMoreResults)) {
-      if (init) {
-        msg = generateRequest(type);
-      } else {
-        msg = generateContinueRequest(type, nextPageInfo);
-      }
-      init = false;
-      try {
-        selvEx = false; // TODO not good
-        bot.performAction(this);
-        selvEx = true; // TODO not good
-        setHasMoreMessages(true);
-        if (log.isDebugEnabled())
-          log.debug("preparing success");
-      } catch (ActionException e) {
-        e.printStackTrace();
-        setHasMoreMessages(false);
-      } catch (ProcessException e) {
-        e.printStackTrace();
-        setHasMoreMessages(false);
-      }
-
+      continueParams.put(LAST_IDS, Joiner.on(',').join(boundaryIds));
     }
+    continuation = Joiner.on('&').withKeyValueSeparator("=").join(continueParams);
+    return logCollection;
   }
 
   /**
-   * {@inheritDoc}
+   * Continues one second after the timestamp of the page, because the page repeated the last one
+   * and all its events had that timestamp.
    */
-  public HttpAction getNextMessage() {
-    return msg;
+  private void skipTimestamp(Map<String, String> continueParams, List<LogItem> pageItems) {
+    if (pageItems.isEmpty() || !continueParams.containsKey("lestart")) {
+      log.warn("continuation {} repeats itself, stopping", continueParams);
+      continueParams.clear();
+      return;
+    }
+    String timestamp = pageItems.get(pageItems.size() - 1).getTimestamp();
+    long step = newer ? SECOND : -SECOND;
+    Date next = new Date(MediaWiki.parseTimestamp(timestamp).getTime() + step);
+    log.warn("more than {} events at {}, the rest of them is skipped", getLimit(), timestamp);
+    continueParams.put("lestart", MediaWiki.encode(MediaWiki.formatTimestamp(next)));
   }
 
   /**
    * {@inheritDoc}
    */
-  public boolean hasNext() {
-    prepareCollection();
-    return logIterator.hasNext();
+  @Override
+  protected String parseHasMore(final String s) {
+    return continuation;
   }
 
   /**
-   * {@inheritDoc}
+   * @param attributes
+   *          returns the value of an attribute of the item, or null
    */
-  public LogItem next() {
-    prepareCollection();
-    return logIterator.next();
+  private void readItem(Function<String, String> attributes, List<LogItem> pageItems) {
+    LogItem l = new LogItem();
+    l.setTitle(attributes.apply("title"));
+    l.setType(attributes.apply("type"));
+    l.setUser(attributes.apply("user"));
+    l.setAction(attributes.apply("action"));
+    l.setTimestamp(attributes.apply("timestamp"));
+    l.setComment(attributes.apply("comment"));
+    String logId = attributes.apply("logid");
+    if (!Strings.isNullOrEmpty(logId)) {
+      l.setLogId(Long.parseLong(logId));
+      pageItems.add(l);
+      if (lastPageIds.contains(l.getLogId())) {
+        return;
+      }
+    }
+    logCollection.add(l);
   }
 
   /**
    * {@inheritDoc}
    */
-  public void remove() {
-    logIterator.remove();
-
+  @Override
+  protected String getModule() {
+    return "logevents";
   }
 
   /**
    * {@inheritDoc}
    */
-  @SuppressWarnings("unchecked")
-  public Iterator<LogItem> iterator() {
-    try {
-      return (Iterator<LogItem>) clone();
-    } catch (CloneNotSupportedException e) {
-      e.printStackTrace();
-      return null;
+  @Override
+  protected HttpAction prepareCollection() {
+    Map<String, String> continueParams = Maps.newLinkedHashMap();
+    String pageInfo = getNextPageInfo();
+    if (!Strings.isNullOrEmpty(pageInfo)) {
+      continueParams.putAll(Splitter.on('&').withKeyValueSeparator("=").split(pageInfo));
     }
+    lastPageIds = Sets.newHashSet();
+    String lastIds = continueParams.remove(LAST_IDS);
+    if (!Strings.isNullOrEmpty(lastIds)) {
+      for (String id : Splitter.on(',').split(lastIds)) {
+        lastPageIds.add(Long.valueOf(id));
+      }
+    }
+    sentParams = ImmutableMap.copyOf(continueParams);
+    return generateRequest(type, continueParams);
   }
 
   /**
    * {@inheritDoc}
    */
   @Override
-  protected Object clone() throws CloneNotSupportedException {
-    return new LogEvents(bot, limit, type);
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.of("type", Joiner.on("|").join(type), //
+        "from", formatOrEmpty(from), //
+        "to", formatOrEmpty(to), //
+        "dir", String.valueOf(newer));
+  }
+
+  private static String formatOrEmpty(Date date) {
+    if (date == null) {
+      return "";
+    }
+    return MediaWiki.formatTimestamp(date);
   }
 
   /**
    * {@inheritDoc}
-   * 
-   * @deprecated see super
    */
-  @Deprecated
   @Override
-  public boolean isSelfExecuter() {
-    return selvEx;
+  protected Object clone() throws CloneNotSupportedException {
+    return new LogEvents(bot, limit, type, from, to, newer);
   }
 
 }
@@ -0,0 +1,154 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Enumerates all page titles like {@link AllPageTitles}, but splits the titles of each namespace
+ * into key ranges (<code>apfrom</code> to <code>apto</code>) which are fetched concurrently with
+ * the bots of a {@link BotPool}.
+ *
+ * <pre>
+ * BotPool bots = BotPool.create(url, 4);
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * PartitionedAllPageTitles titles = new PartitionedAllPageTitles(bots, executor,
+ *     PartitionedAllPageTitles.alphabetSplits(), true, RedirectFilter.all, MediaWiki.NS_MAIN);
+ * PartitionedIterator&lt;String&gt; it = titles.iterator();
+ * try {
+ *   while (it.hasNext()) {
+ *     // ...
+ *   }
+ * } finally {
+ *   it.close();
+ * }
+ * </pre>
+ *
+ * @author Thomas Stock
+ * @see PartitionedIterator
+ */
+public class PartitionedAllPageTitles implements Iterable<String> {
+
+  private final BotPool bots;
+  private final ExecutorService executor;
+  private final List<String> splits;
+  private final boolean ordered;
+  private final RedirectFilter rf;
+  private final int[] namespaces;
+
+  /**
+   * @param bots
+   *          which fetch the partitions
+   * @param executor
+   *          which runs one task per partition
+   * @param splits
+   *          sorted titles without namespace where a new partition begins, e.g.
+   *          {@link #alphabetSplits()}
+   * @param ordered
+   *          if the titles are returned in the order of a sequential {@link AllPageTitles}
+   * @param rf
+   *          include redirects in the list
+   * @param namespaces
+   *          which are searched, each one is partitioned separately
+   */
+  public PartitionedAllPageTitles(BotPool bots, ExecutorService executor, List<String> splits,
+      boolean ordered, RedirectFilter rf, int... namespaces) {
+    this.bots = bots;
+    this.executor = executor;
+    this.splits = ImmutableList.copyOf(splits);
+    this.ordered = ordered;
+    this.rf = rf;
+    this.namespaces = namespaces.clone();
+  }
+
+  /**
+   * @return "A" to "Z"; titles before "A" (like digits) and after "Z" (like non latin letters) are
+   *         in the first and last partition
+   */
+  public static List<String> alphabetSplits() {
+    ImmutableList.Builder<String> splits = ImmutableList.builder();
+    for (char c = 'A'; c <= 'Z'; c++) {
+      splits.add(String.valueOf(c));
+    }
+    return splits.build();
+  }
+
+  /**
+   * @param sample
+   *          titles without namespace, e.g. from an earlier run or from {@link RandomPageTitle}
+   * @param partitions
+   *          number of ranges
+   * @return splits, which divide the sample into ranges of about equal size
+   */
+  public static List<String> sampleSplits(Collection<String> sample, int partitions) {
+    SortedSet<String> sorted = Sets.newTreeSet();
+    for (String title : sample) {
+      sorted.add(toKey(title));
+    }
+    List<String> titles = Lists.newArrayList(sorted);
+    SortedSet<String> splits = Sets.newTreeSet();
+    for (int i = 1; i < partitions && !titles.isEmpty(); i++) {
+      splits.add(titles.get(i * titles.size() / partitions));
+    }
+    return ImmutableList.copyOf(splits);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public PartitionedIterator<String> iterator() {
+    List<Iterable<String>> partitions = Lists.newArrayList();
+    for (int namespace : namespaces) {
+      for (int i = 0; i <= splits.size(); i++) {
+        String from = null;
+        String to = null;
+        if (i > 0) {
+          from = splits.get(i - 1);
+        }
+        if (i < splits.size()) {
+          to = splits.get(i);
+        }
+        partitions.add(newPartition(from, to, namespace));
+      }
+    }
+    return new PartitionedIterator<String>(partitions, executor, ordered);
+  }
+
+  /**
+   * <code>apto</code> is inclusive, the title at the upper bound is returned by the next partition
+   * as its first title.
+   */
+  private Iterable<String> newPartition(String from, final String to, final int namespace) {
+    AllPageTitles titles = new AllPageTitles(bots.next(), from, to, null, rf, namespace);
+    if (to == null) {
+      return titles;
+    }
+    final String toKey = toKey(to);
+    return Iterables.filter(titles, new Predicate<String>() {
+
+      public boolean apply(String title) {
+        String key = title;
+        if (namespace != MediaWiki.NS_MAIN) {
+          key = title.substring(title.indexOf(':') + 1);
+        }
+        return !toKey(key).equals(toKey);
+      }
+    });
+  }
+
+  private static String toKey(String title) {
+    return title.replace(' ', '_');
+  }
+
+}
@@ -0,0 +1,220 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Iterates several partitions of a result concurrently, each in its own task on an executor, and
+ * merges them into one iterator. Every partition buffers at most a fixed number of items, so a slow
+ * consumer stops the partitions instead of filling the memory.
+ * <p>
+ * An ordered iterator returns all items of the first partition, then all of the second and so on;
+ * if the partitions are consecutive ranges, the merged result is in the same order as a sequential
+ * iteration. An unordered iterator returns items as soon as any partition has found them.
+ * </p>
+ * Since {@link net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot} performs its requests one after
+ * another, the partitions should use different bots, see
+ * {@link net.sourceforge.jwbf.mediawiki.bots.BotPool}.
+ * <p>
+ * A consumer which stops before the end should {@link #close()} the iterator, which stops the
+ * tasks at once. Otherwise they stop when the abandoned iterator is garbage collected.
+ * </p>
+ *
+ * @author Thomas Stock
+ * @param <T>
+ *          of items
+ */
+@Slf4j
+public class PartitionedIterator<T> extends AbstractIterator<T> implements Closeable {
+
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private static final Object END = new Object();
+  /** How long a task waits for room in a full queue before it checks if it should stop. */
+  private static final long OFFER_MILLIS = 100;
+
+  private final List<BlockingQueue<Object>> queues;
+  private final List<Future<?>> tasks = Lists.newArrayList();
+  private final boolean ordered;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private int current = 0;
+  private int running;
+
+  /**
+   * @param partitions
+   *          which are iterated concurrently
+   * @param executor
+   *          which runs one task per partition; in ordered mode it must start the tasks in order
+   * @param ordered
+   *          if the items are returned partition by partition
+   */
+  public PartitionedIterator(List<? extends Iterable<? extends T>> partitions,
+      ExecutorService executor, boolean ordered) {
+    this(partitions, executor, ordered, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param partitions
+   *          which are iterated concurrently
+   * @param executor
+   *          which runs one task per partition; in ordered mode it must start the tasks in order
+   * @param ordered
+   *          if the items are returned partition by partition
+   * @param capacity
+   *          maximum number of buffered items per partition
+   */
+  public PartitionedIterator(List<? extends Iterable<? extends T>> partitions,
+      ExecutorService executor, boolean ordered, int capacity) {
+    this.ordered = ordered;
+    this.running = partitions.size();
+    ImmutableList.Builder<BlockingQueue<Object>> queueBuilder = ImmutableList.builder();
+    if (ordered) {
+      for (int i = 0; i < partitions.size(); i++) {
+        queueBuilder.add(new ArrayBlockingQueue<Object>(capacity));
+      }
+    } else {
+      BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(capacity
+          * Math.max(1, partitions.size()));
+      for (int i = 0; i < partitions.size(); i++) {
+        queueBuilder.add(queue);
+      }
+    }
+    queues = queueBuilder.build();
+    WeakReference<Object> owner = new WeakReference<Object>(this);
+    for (int i = 0; i < partitions.size(); i++) {
+      tasks.add(executor.submit(new Producer(partitions.get(i), queues.get(i), closed, owner)));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T computeNext() {
+    while (running > 0) {
+      Object o = take(queues.get(current));
+      if (o == END) {
+        running--;
+        if (ordered) {
+          current++;
+        }
+      } else if (o instanceof Failure) {
+        close();
+        Throwable cause = ((Failure) o).cause;
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new JwbfException(cause);
+      } else {
+        return (T) o;
+      }
+    }
+    return endOfData();
+  }
+
+  /**
+   * Stops all partitions; this iterator returns no more items.
+   */
+  public void close() {
+    closed.set(true);
+    for (Future<?> task : tasks) {
+      task.cancel(true);
+    }
+    running = 0;
+  }
+
+  private static Object take(BlockingQueue<Object> queue) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JwbfException("interrupted while waiting for partitions", e);
+    }
+  }
+
+  private static class Failure {
+    private final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  /**
+   * Fills a queue; it holds the iterator only weakly, so that an abandoned iterator can be
+   * collected and its producers stop.
+   */
+  private static class Producer implements Runnable {
+
+    private final Iterable<?> partition;
+    private final BlockingQueue<Object> queue;
+    private final AtomicBoolean closed;
+    private final WeakReference<Object> owner;
+
+    Producer(Iterable<?> partition, BlockingQueue<Object> queue, AtomicBoolean closed,
+        WeakReference<Object> owner) {
+      this.partition = partition;
+      this.queue = queue;
+      this.closed = closed;
+      this.owner = owner;
+    }
+
+    public void run() {
+      try {
+        Iterator<?> it = partition.iterator();
+        while (!isStopped() && it.hasNext()) {
+          if (!offer(it.next())) {
+            return;
+          }
+        }
+      } catch (RuntimeException e) {
+        log.warn("partition failed", e);
+        offer(new Failure(e));
+        return;
+      } catch (Error e) {
+        offer(new Failure(e));
+        throw e;
+      }
+      offer(END);
+    }
+
+    /**
+     * @return false if the iterator was closed or abandoned before the queue had room
+     */
+    private boolean offer(Object item) {
+      try {
+        while (!queue.offer(item, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (isStopped()) {
+            log.debug("partition stopped");
+            return false;
+          }
+        }
+        return true;
+      } catch (InterruptedException e) {
+        log.debug("partition stopped");
+        return false;
+      }
+    }
+
+    private boolean isStopped() {
+      return closed.get() || owner.get() == null;
+    }
+  }
+
+}
@@ -0,0 +1,151 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Saves the {@link QueryCursor} of a running query periodically to a file, so that a long
+ * enumeration can be resumed after the process died.
+ *
+ * <pre>
+ * QueryCheckpoint checkpoint = new QueryCheckpoint(new File(&quot;allpages.cursor&quot;), 1000);
+ * for (String title : checkpoint.attach(new AllPageTitles(bot, MediaWiki.NS_MAIN))) {
+ *   // ...
+ * }
+ * </pre>
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class QueryCheckpoint {
+
+  public static final long DEFAULT_INTERVAL_MILLIS = 60 * 1000;
+
+  private final File file;
+  private final int everyItems;
+  private final long everyMillis;
+
+  private int items = 0;
+  private long lastSave = System.currentTimeMillis();
+
+  /**
+   * @param file
+   *          to save the cursor in
+   * @param everyItems
+   *          save after this number of returned items
+   */
+  public QueryCheckpoint(File file, int everyItems) {
+    this(file, everyItems, DEFAULT_INTERVAL_MILLIS);
+  }
+
+  /**
+   * @param file
+   *          to save the cursor in
+   * @param everyItems
+   *          save after this number of returned items
+   * @param everyMillis
+   *          save if the last save is older
+   */
+  public QueryCheckpoint(File file, int everyItems, long everyMillis) {
+    this.file = file;
+    this.everyItems = everyItems;
+    this.everyMillis = everyMillis;
+  }
+
+  /**
+   * Resumes the query from the saved cursor, if there is one, and saves its further progress.
+   *
+   * @return the query
+   */
+  public <T extends TitleQuery<?>> T attach(T query) {
+    QueryCursor cursor = load();
+    if (cursor != null) {
+      log.info("resume {} from {}", query.getClass().getSimpleName(), cursor);
+      query.resumeFrom(cursor);
+    }
+    query.setCheckpoint(this);
+    return query;
+  }
+
+  /**
+   * @return true if a cursor should be saved now; counts one returned item
+   */
+  synchronized boolean isDue() {
+    items++;
+    return items >= everyItems || System.currentTimeMillis() - lastSave >= everyMillis;
+  }
+
+  /**
+   * Writes the cursor to a temporary file first, so that a crash while saving never destroys the
+   * previous cursor.
+   */
+  public synchronized void save(QueryCursor cursor) {
+    File tmp = new File(file.getPath() + ".tmp");
+    try {
+      FileOutputStream fos = new FileOutputStream(tmp);
+      boolean threw = true;
+      try {
+        ObjectOutputStream o = new ObjectOutputStream(fos);
+        o.writeObject(cursor);
+        o.flush();
+        fos.getFD().sync();
+        threw = false;
+      } finally {
+        // a failed close must not look like a saved cursor
+        Closeables.close(fos, threw);
+      }
+    } catch (IOException e) {
+      throw new JwbfException("could not save " + cursor, e);
+    }
+    if (!tmp.renameTo(file)) {
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        throw new JwbfException("could not move " + tmp + " to " + file);
+      }
+    }
+    items = 0;
+    lastSave = System.currentTimeMillis();
+  }
+
+  /**
+   * @return the saved cursor or null, if there is none
+   */
+  @CheckForNull
+  public synchronized QueryCursor load() {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      FileInputStream fis = new FileInputStream(file);
+      try {
+        ObjectInputStream o = new ObjectInputStream(fis);
+        return (QueryCursor) o.readObject();
+      } finally {
+        Closeables.close(fis, true);
+      }
+    } catch (IOException e) {
+      throw new JwbfException("could not read " + file, e);
+    } catch (ClassNotFoundException e) {
+      throw new JwbfException("could not read " + file, e);
+    }
+  }
+
+  /**
+   * Removes the saved cursor; the next {@link #attach(TitleQuery)} starts from the beginning.
+   */
+  public synchronized void clear() {
+    file.delete();
+  }
+
+}
@@ -0,0 +1,135 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.base.Objects;
+
+/**
+ * Position of a {@link TitleQuery}, which can be saved and used to resume the query later with
+ * {@link TitleQuery#resumeFrom(QueryCursor)}.
+ *
+ * @author Thomas Stock
+ * @see QueryCheckpoint
+ */
+public final class QueryCursor implements Serializable {
+
+  private static final long serialVersionUID = 4213356052235623641L;
+
+  private final String module;
+  private final TreeMap<String, String> params;
+  private final String continuation;
+  private final int offset;
+  private final long count;
+  private final boolean finished;
+
+  /**
+   * @param module
+   *          like "allpages"
+   * @param params
+   *          which identify the query, like the namespaces
+   * @param continuation
+   *          information to request the current page, empty for the first page
+   * @param offset
+   *          number of items already returned from the current page
+   * @param count
+   *          number of items already returned by the query
+   * @param finished
+   *          true if the query has returned all its items
+   */
+  public QueryCursor(String module, Map<String, String> params, String continuation, int offset,
+      long count, boolean finished) {
+    this.module = module;
+    this.params = new TreeMap<String, String>(params);
+    this.continuation = continuation;
+    this.offset = offset;
+    this.count = count;
+    this.finished = finished;
+  }
+
+  /**
+   * @return the list module, like "allpages"
+   */
+  public String getModule() {
+    return module;
+  }
+
+  /**
+   * @return the params which identify the query
+   */
+  public SortedMap<String, String> getParams() {
+    return Collections.unmodifiableSortedMap(params);
+  }
+
+  /**
+   * @return the information to request the current page, empty for the first page
+   */
+  public String getContinuation() {
+    return continuation;
+  }
+
+  /**
+   * @return the number of items already returned from the current page
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the number of items already returned by the query
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return true if the query has returned all its items
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(module, params, continuation, offset, count, finished);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof QueryCursor)) {
+      return false;
+    }
+    QueryCursor other = (QueryCursor) obj;
+    return Objects.equal(module, other.module) && Objects.equal(params, other.params)
+        && Objects.equal(continuation, other.continuation) && offset == other.offset
+        && count == other.count && finished == other.finished;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this) //
+        .add("module", module) //
+        .add("params", params) //
+        .add("continuation", continuation) //
+        .add("offset", offset) //
+        .add("count", count) //
+        .add("finished", finished) //
+        .toString();
+  }
+
+}
@@ -0,0 +1,247 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * A pipeline over the pages of a query. Pages are always fetched in order by the consuming thread;
+ * a {@link #parallel(ExecutorService)} stream maps the items of the fetched pages on an executor
+ * and returns the results in the original order.
+ *
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * QueryStream&lt;String&gt; titles = new AllPageTitles(bot, MediaWiki.NS_MAIN)
+ *     .parallelStream(executor);
+ * for (Integer length : titles.rateLimit(2).map(readAndMeasure)) {
+ *   // ...
+ * }
+ * </pre>
+ *
+ * Like an iterator a stream can be consumed only once.
+ *
+ * @author Thomas Stock
+ * @param <T>
+ *          of items
+ */
+public class QueryStream<T> implements Iterable<T> {
+
+  /** Number of pages which are mapped ahead of the consumer by a parallel stream. */
+  public static final int DEFAULT_PAGES_AHEAD = 2;
+
+  private final Iterator<List<T>> pages;
+  private final ExecutorService executor;
+  private final int parallelism;
+
+  QueryStream(Iterator<List<T>> pages, ExecutorService executor, int parallelism) {
+    this.pages = pages;
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * @return a sequential stream over the pages of the query
+   */
+  public static <T> QueryStream<T> of(final TitleQuery<T> query) {
+    return new QueryStream<T>(new AbstractIterator<List<T>>() {
+
+      @Override
+      protected List<T> computeNext() {
+        List<T> page = query.nextPage();
+        if (page.isEmpty()) {
+          return endOfData();
+        }
+        return page;
+      }
+    }, null, 1);
+  }
+
+  /**
+   * @param items
+   *          of a query without page access, like {@link CategoryMembersFull}
+   * @param pageSize
+   *          number of items which are handled as one page
+   * @return a sequential stream over the items
+   */
+  public static <T> QueryStream<T> of(Iterable<T> items, int pageSize) {
+    return new QueryStream<T>(Iterators.partition(items.iterator(), pageSize), null, 1);
+  }
+
+  /**
+   * @param executor
+   *          which maps the items
+   * @return a stream which spreads {@link #map(Function)} and {@link #filter(Predicate)} over one
+   *         task per available processor and page
+   */
+  public QueryStream<T> parallel(ExecutorService executor) {
+    return parallel(executor, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param executor
+   *          which maps the items
+   * @param parallelism
+   *          number of tasks per page
+   * @return a stream which spreads {@link #map(Function)} and {@link #filter(Predicate)} over the
+   *         executor
+   */
+  public QueryStream<T> parallel(ExecutorService executor, int parallelism) {
+    return new QueryStream<T>(pages, executor, Math.max(1, parallelism));
+  }
+
+  /**
+   * @return a stream which maps the items on the consuming thread
+   */
+  public QueryStream<T> sequential() {
+    return new QueryStream<T>(pages, null, 1);
+  }
+
+  public boolean isParallel() {
+    return executor != null;
+  }
+
+  /**
+   * @param pagesPerSecond
+   *          maximum number of fetched pages per second
+   * @return a stream which fetches not faster
+   */
+  public QueryStream<T> rateLimit(double pagesPerSecond) {
+    return rateLimit(RateLimiter.create(pagesPerSecond));
+  }
+
+  /**
+   * @param rateLimiter
+   *          which is acquired before each page is fetched; may be shared with other streams
+   * @return a stream which fetches not faster
+   */
+  public QueryStream<T> rateLimit(final RateLimiter rateLimiter) {
+    return new QueryStream<T>(new AbstractIterator<List<T>>() {
+
+      @Override
+      protected List<T> computeNext() {
+        rateLimiter.acquire();
+        if (pages.hasNext()) {
+          return pages.next();
+        }
+        return endOfData();
+      }
+    }, executor, parallelism);
+  }
+
+  /**
+   * @return a stream of the function results, in the order of the items
+   */
+  public <R> QueryStream<R> map(final Function<? super T, ? extends R> function) {
+    return transform(new Function<List<T>, List<R>>() {
+
+      public List<R> apply(List<T> chunk) {
+        List<R> result = Lists.newArrayListWithCapacity(chunk.size());
+        for (T item : chunk) {
+          result.add(function.apply(item));
+        }
+        return result;
+      }
+    });
+  }
+
+  /**
+   * @return a stream of the matching items, in their order
+   */
+  public QueryStream<T> filter(final Predicate<? super T> predicate) {
+    return transform(new Function<List<T>, List<T>>() {
+
+      public List<T> apply(List<T> chunk) {
+        return Lists.newArrayList(Iterables.filter(chunk, predicate));
+      }
+    });
+  }
+
+  /**
+   * Consumes the stream.
+   *
+   * @return all items
+   */
+  public List<T> toList() {
+    return Lists.newArrayList(iterator());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Iterator<T> iterator() {
+    return Iterators.concat(Iterators.transform(pages, new Function<List<T>, Iterator<T>>() {
+
+      public Iterator<T> apply(List<T> page) {
+        return page.iterator();
+      }
+    }));
+  }
+
+  private <R> QueryStream<R> transform(final Function<List<T>, List<R>> chunkFunction) {
+    if (executor == null) {
+      return new QueryStream<R>(Iterators.transform(pages, chunkFunction), null, 1);
+    }
+    return new QueryStream<R>(new AbstractIterator<List<R>>() {
+
+      private final LinkedList<List<Future<List<R>>>> ahead = Lists.newLinkedList();
+
+      @Override
+      protected List<R> computeNext() {
+        while (ahead.size() < DEFAULT_PAGES_AHEAD && pages.hasNext()) {
+          ahead.add(submit(pages.next()));
+        }
+        if (ahead.isEmpty()) {
+          return endOfData();
+        }
+        List<R> result = Lists.newArrayList();
+        for (Future<List<R>> chunk : ahead.removeFirst()) {
+          result.addAll(get(chunk));
+        }
+        return result;
+      }
+
+      private List<Future<List<R>>> submit(List<T> page) {
+        int chunkSize = Math.max(1, (page.size() + parallelism - 1) / parallelism);
+        List<Future<List<R>>> chunks = Lists.newArrayList();
+        for (final List<T> chunk : Lists.partition(page, chunkSize)) {
+          chunks.add(executor.submit(new Callable<List<R>>() {
+
+            public List<R> call() {
+              return chunkFunction.apply(chunk);
+            }
+          }));
+        }
+        return chunks;
+      }
+    }, executor, parallelism);
+  }
+
+  private static <R> R get(Future<R> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JwbfException("interrupted while waiting for mapped items", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new JwbfException(e.getCause());
+    }
+  }
+
+}
@@ -0,0 +1,402 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.Get;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.RecentChange;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Follows <code>list=recentchanges</code> from a start timestamp on (<code>rcdir=newer</code>) and
+ * delivers each change to the registered {@link Listener}s; once, unless a poll fails.
+ *
+ * <pre>
+ * RecentChangesFeed feed = new RecentChangesFeed(bot, new Date());
+ * BlockingQueue&lt;RecentChange&gt; changes = feed.newQueue(10000);
+ * feed.start();
+ * while (true) {
+ *   RecentChange change = changes.take();
+ *   // ...
+ * }
+ * </pre>
+ *
+ * Since <code>rcstart</code> is inclusive, changes with the timestamp of the last poll are
+ * returned again by the api; they are recognized by their rcid. The poll interval is halved while
+ * changes arrive and doubled while there are none, within {@link #setIntervals(long, long)}.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class RecentChangesFeed {
+
+  public static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+  public static final long DEFAULT_MAX_INTERVAL_MILLIS = 60 * 1000;
+
+  private static final String MODULE = "recentchanges";
+  private static final String RCPROP = "user|comment|timestamp|title|ids|loginfo";
+
+  /**
+   * Receives the changes of a feed, in the order of their timestamp.
+   */
+  public interface Listener {
+    void onChange(RecentChange change);
+  }
+
+  private final MediaWikiBot bot;
+  private final String namespaces;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+  /** Serializes the polls, apart from the lock of this feed which guards its state. */
+  private final Object pollLock = new Object();
+  private String lastTimestamp;
+  /** rcids of the changes with {@link #lastTimestamp}. */
+  private Set<Long> lastIds = Sets.newHashSet();
+
+  private long minInterval = DEFAULT_MIN_INTERVAL_MILLIS;
+  private long maxInterval = DEFAULT_MAX_INTERVAL_MILLIS;
+  private volatile long interval = DEFAULT_MIN_INTERVAL_MILLIS;
+
+  private ScheduledExecutorService executor;
+  private boolean ownExecutor = false;
+  private volatile ScheduledFuture<?> next;
+  private volatile boolean running = false;
+
+  /**
+   * @param start
+   *          the oldest change to deliver
+   * @param namespaces
+   *          of the changes, all if empty
+   */
+  public RecentChangesFeed(MediaWikiBot bot, Date start, int... namespaces) {
+    this.bot = bot;
+    this.namespaces = MWAction.createNsString(namespaces);
+    this.lastTimestamp = MediaWiki.formatTimestamp(start);
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * @param capacity
+   *          of the queue; the feed waits while the queue is full
+   * @return a queue which receives all following changes; if the feed is interrupted while it
+   *         waits for the queue, it is stopped
+   */
+  public BlockingQueue<RecentChange> newQueue(int capacity) {
+    final BlockingQueue<RecentChange> queue = new LinkedBlockingQueue<RecentChange>(capacity);
+    addListener(new Listener() {
+
+      public void onChange(RecentChange change) {
+        try {
+          queue.put(change);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          stop();
+          // the poll fails, so the change is not lost but returned by the next poll
+          throw new JwbfException("interrupted while waiting for the queue", e);
+        }
+      }
+    });
+    return queue;
+  }
+
+  /**
+   * @param minMillis
+   *          shortest time between two polls
+   * @param maxMillis
+   *          longest time between two polls
+   */
+  public void setIntervals(long minMillis, long maxMillis) {
+    this.minInterval = minMillis;
+    this.maxInterval = Math.max(minMillis, maxMillis);
+    this.interval = minMillis;
+  }
+
+  /**
+   * @return the time until the next poll
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * @return the timestamp of the newest delivered change, where the next poll begins
+   */
+  public synchronized String getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Fetches all changes since the last poll, delivers them to the listeners and adapts the
+   * interval. The start of the next poll moves on only after all listeners have received the
+   * changes; if a request or a listener fails, the next poll returns the same changes again. The
+   * listeners are called without holding the lock of this feed, so they may call
+   * {@link #stop()}.
+   *
+   * @return the new changes
+   */
+  public List<RecentChange> pollOnce() {
+    synchronized (pollLock) {
+      String start;
+      Set<Long> ids;
+      synchronized (this) {
+        start = lastTimestamp;
+        ids = Sets.newHashSet(lastIds);
+      }
+      String timestamp = start;
+      List<RecentChange> changes = Lists.newArrayList();
+      Poll poll = new Poll(start);
+      boolean fullPage = false;
+      do {
+        bot.performAction(poll);
+        fullPage |= poll.continuation.length() > 0;
+        for (RecentChange change : poll.changes) {
+          if (change.getTimestamp().equals(timestamp)) {
+            if (!ids.add(change.getRcId())) {
+              continue;
+            }
+          } else {
+            timestamp = change.getTimestamp();
+            ids = Sets.newHashSet();
+            ids.add(change.getRcId());
+          }
+          changes.add(change);
+        }
+        poll = poll.next();
+      } while (poll != null);
+
+      for (RecentChange change : changes) {
+        for (Listener listener : listeners) {
+          listener.onChange(change);
+        }
+      }
+      synchronized (this) {
+        lastTimestamp = timestamp;
+        lastIds = ids;
+      }
+      adaptInterval(changes.size(), fullPage);
+      return changes;
+    }
+  }
+
+  private void adaptInterval(int changes, boolean fullPage) {
+    if (fullPage) {
+      interval = minInterval;
+    } else if (changes > 0) {
+      interval = Math.max(minInterval, interval / 2);
+    } else {
+      interval = Math.min(maxInterval, interval * 2);
+    }
+    log.debug("{} changes, next poll in {}ms", changes, interval);
+  }
+
+  /**
+   * Polls with an own thread until {@link #stop()}.
+   */
+  public synchronized void start() {
+    start(Executors.newSingleThreadScheduledExecutor());
+    ownExecutor = true;
+  }
+
+  /**
+   * Polls with the executor until {@link #stop()}.
+   */
+  public synchronized void start(ScheduledExecutorService executor) {
+    if (running) {
+      throw new IllegalStateException("feed is already running");
+    }
+    this.executor = executor;
+    this.ownExecutor = false;
+    running = true;
+    schedule(0);
+  }
+
+  /**
+   * Stops polling. A running poll of the own thread of {@link #start()} is interrupted, so that
+   * it does not wait for a full queue which is no longer taken from; its changes are returned by
+   * the next poll. Other running polls are completed.
+   */
+  public synchronized void stop() {
+    running = false;
+    if (next != null) {
+      next.cancel(false);
+    }
+    if (ownExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void schedule(long delay) {
+    next = executor.schedule(new Runnable() {
+
+      public void run() {
+        if (!running) {
+          return;
+        }
+        try {
+          pollOnce();
+        } catch (RuntimeException e) {
+          log.warn("polling recent changes failed", e);
+          interval = maxInterval;
+        }
+        reschedule();
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Holds the lock, so that the executor is not shut down by {@link #stop()} meanwhile.
+   */
+  private synchronized void reschedule() {
+    if (running) {
+      schedule(interval);
+    }
+  }
+
+  /**
+   * One request of a poll.
+   */
+  private class Poll extends MWAction {
+
+    private final Get msg;
+    private final String start;
+    private final String continueing;
+    private final List<RecentChange> changes = Lists.newArrayList();
+    private String continuation = "";
+
+    Poll(String start) {
+      this(start, "");
+    }
+
+    private Poll(String start, String continueing) {
+      this.start = start;
+      this.continueing = continueing;
+      RequestBuilder requestBuilder = new ApiRequestBuilder() //
+          .action("query") //
+          .formatXml() //
+          .param("list", MODULE) //
+          .param("rcdir", "newer") //
+          .param("rcprop", MediaWiki.encode(RCPROP)) //
+          .param("rclimit", bot.getQueryLimitPolicy().getLimit(MODULE)) //
+      ;
+      if (namespaces.length() > 0) {
+        requestBuilder.param("rcnamespace", MediaWiki.encode(namespaces));
+      }
+      if (continueing.length() > 0) {
+        for (Entry<String, String> param : Splitter.on('&').withKeyValueSeparator("=")
+            .split(continueing).entrySet()) {
+          requestBuilder.param(param.getKey(), param.getValue());
+        }
+      } else {
+        requestBuilder.param("rcstart", MediaWiki.encode(start));
+      }
+      msg = requestBuilder.buildGet();
+    }
+
+    /**
+     * @return the request for the next page or null
+     */
+    Poll next() {
+      if (continuation.length() == 0) {
+        return null;
+      }
+      return new Poll(start, continuation);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HttpAction getNextMessage() {
+      return msg;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String processAllReturningText(String s) {
+      Element root = getRootElement(s);
+      Element query = root.getChild("query");
+      if (query != null && query.getChild(MODULE) != null) {
+        for (Object o : query.getChild(MODULE).getChildren("rc")) {
+          changes.add(parse((Element) o));
+        }
+      }
+      Element queryContinue = root.getChild("query-continue");
+      if (queryContinue != null && queryContinue.getChild(MODULE) != null) {
+        Map<String, String> params = Maps.newLinkedHashMap();
+        for (Object o : queryContinue.getChild(MODULE).getAttributes()) {
+          Attribute attribute = (Attribute) o;
+          params.put(attribute.getName(), MediaWiki.encode(attribute.getValue()));
+        }
+        continuation = Joiner.on('&').withKeyValueSeparator("=").join(params);
+      }
+      return "";
+    }
+
+    private RecentChange parse(Element rc) {
+      RecentChange change = new RecentChange();
+      change.setRcId(parseLong(rc.getAttributeValue("rcid")));
+      change.setRevId(parseLong(rc.getAttributeValue("revid")));
+      change.setOldRevId(parseLong(rc.getAttributeValue("old_revid")));
+      change.setType(rc.getAttributeValue("type"));
+      change.setNamespace((int) parseLong(rc.getAttributeValue("ns")));
+      change.setTitle(rc.getAttributeValue("title"));
+      change.setUser(rc.getAttributeValue("user"));
+      change.setComment(rc.getAttributeValue("comment"));
+      change.setTimestamp(rc.getAttributeValue("timestamp"));
+      change.setLogType(rc.getAttributeValue("logtype"));
+      change.setLogAction(rc.getAttributeValue("logaction"));
+      Element move = rc.getChild("move");
+      if (move != null) {
+        change.setMoveTarget(move.getAttributeValue("new_title"));
+      }
+      return change;
+    }
+
+    private long parseLong(String value) {
+      if (Strings.isNullOrEmpty(value)) {
+        return 0;
+      }
+      return Long.parseLong(value);
+    }
+  }
+
+}
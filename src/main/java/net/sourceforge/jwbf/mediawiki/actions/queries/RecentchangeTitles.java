@@ -19,20 +19,23 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamReader;
+
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
-import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ElementHandler;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
-import org.jdom.Element;
-
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -49,9 +52,6 @@ import com.google.common.collect.Sets;
 @Slf4j
 public class RecentchangeTitles extends TitleQuery<String> {
 
-  /** value for the bllimit-parameter. **/
-  private static final int limit = 10;
-
   private int find = 1;
 
   private final MediaWikiBot bot;
@@ -108,9 +108,9 @@ public class RecentchangeTitles extends TitleQuery<String> {
 
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "recentchanges") //
-        .param("rclimit", limit + "") //
+        .param("rclimit", getLimit()) //
     ;
     if (namespace != null) {
       requestBuilder.param("rcnamespace", MediaWiki.encode(MWAction.createNsString(namespace)));
@@ -164,30 +164,42 @@ public class RecentchangeTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
-    Element root = getRootElement(s);
-    findContent(root);
-    return titleCollection;
-
-  }
-
-  @SuppressWarnings("unchecked")
-  private void findContent(final Element root) {
+    if (isJson(s)) {
+      parseJson(s, new JsonHandler() {
+
+        @Override
+        public void object(String name, String parent, Map<String, String> values) {
+          if ("recentchanges".equals(name) && "query".equals(parent)) {
+            readChange(values.get("title"), values.get("timestamp"));
+          }
+        }
+      });
+    } else {
+      parseXml(s, new ElementHandler() {
 
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("rc")) {
-        if (find < limit) {
-          titleCollection.add(MediaWiki.decode(element.getAttributeValue("title")));
+        public void startElement(String parent, XMLStreamReader reader) {
+          if (reader.getLocalName().equalsIgnoreCase("rc")) {
+            readChange(MediaWiki.decode(reader.getAttributeValue(null, "title")),
+                reader.getAttributeValue(null, "timestamp"));
+          }
         }
+      });
+    }
+    return titleCollection;
 
-        nextPageInfo = element.getAttribute("timestamp").getValue();
-        find++;
-      } else {
-        findContent(element);
-      }
+  }
 
+  private void readChange(String title, String timestamp) {
+    if (find < getLimit()) {
+      titleCollection.add(title);
     }
+    nextPageInfo = timestamp;
+    find++;
+  }
+
+  @Override
+  protected String getModule() {
+    return "recentchanges";
   }
 
   @Override
@@ -201,6 +213,17 @@ public class RecentchangeTitles extends TitleQuery<String> {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("namespace", MWAction.createNsString(namespaces)) //
+        .put("unique", String.valueOf(uniqChanges)) //
+        .build();
+  }
+
   @Override
   protected Object clone() throws CloneNotSupportedException {
     return new RecentchangeTitles(bot, uniqChanges, namespaces);
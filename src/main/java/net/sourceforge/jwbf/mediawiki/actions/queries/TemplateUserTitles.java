@@ -21,6 +21,7 @@ package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +34,7 @@ import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * action class using the MediaWiki-api's "list=embeddedin" that is used to find all articles which
@@ -46,8 +48,6 @@ import com.google.common.base.Strings;
 @Slf4j
 public class TemplateUserTitles extends TitleQuery<String> {
 
-  /** constant value for the eilimit-parameter. **/
-  private static final int LIMIT = 50;
   private final MediaWikiBot bot;
   /**
    * Collection that will contain the result (titles of articles using the template) after
@@ -87,9 +87,9 @@ public class TemplateUserTitles extends TitleQuery<String> {
 
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getResponseFormat()) //
         .param("list", "embeddedin") //
-        .param("eilimit", LIMIT + "") //
+        .param("eilimit", getLimit()) //
         .param("eititle", MediaWiki.encode(templateName)) //
     ;
 
@@ -129,6 +129,9 @@ public class TemplateUserTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
+    if (isJson(s)) {
+      return parseJsonContinue(s);
+    }
 
     // get the eicontinue-value
 
@@ -155,6 +158,10 @@ public class TemplateUserTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
+    if (isJson(s)) {
+      titleCollection.addAll(parseJsonTitles(s));
+      return titleCollection;
+    }
 
     // get the backlink titles and add them all to the titleCollection
 
@@ -169,6 +176,11 @@ public class TemplateUserTitles extends TitleQuery<String> {
     return titleCollection;
   }
 
+  @Override
+  protected String getModule() {
+    return "embeddedin";
+  }
+
   @Override
   protected HttpAction prepareCollection() {
 
@@ -180,6 +192,17 @@ public class TemplateUserTitles extends TitleQuery<String> {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Map<String, String> getCursorParams() {
+    return ImmutableMap.<String, String> builder() //
+        .put("title", templateName) //
+        .put("namespace", MWAction.createNsString(namespaces)) //
+        .build();
+  }
+
   @Override
   protected Object clone() throws CloneNotSupportedException {
     return new TemplateUserTitles(bot, templateName, namespaces);
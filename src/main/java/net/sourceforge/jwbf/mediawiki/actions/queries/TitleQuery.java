@@ -1,14 +1,23 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.JsonHandler;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import com.google.common.base.Objects;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 /**
@@ -28,6 +37,26 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
   /** Information necessary to get the next api page. */
   protected String nextPageInfo = "";
 
+  /** Page size of this query, if set; otherwise the {@link QueryLimitPolicy} of the bot is used. */
+  private int limit = 0;
+  private int currentLimit = 0;
+  private int responseSize = 0;
+
+  /** Information which was used to request the current page. */
+  private String pageInfo = "";
+  /** Number of items already returned from the current page. */
+  private int pageOffset = 0;
+  private long count = 0;
+  private int skip = 0;
+  private QueryCursor resumeCursor = null;
+  private QueryCheckpoint checkpoint = null;
+  private boolean finalSaved = false;
+
+  /** Response which was parsed by {@link #parseJsonPage(String)}, so that it parses only once. */
+  private String parsedJson = null;
+  private final List<String> jsonTitles = Lists.newArrayList();
+  private String jsonContinue = "";
+
   protected final String getNextPageInfo() {
     return nextPageInfo;
   }
@@ -41,6 +70,95 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
     return new InnerAction(v);
   }
 
+  /**
+   * @return the name of the list module, like "allpages"
+   */
+  protected abstract String getModule();
+
+  /**
+   * @param limit
+   *          page size of the following requests of this query; values less than one restore the
+   *          {@link QueryLimitPolicy} of the bot
+   */
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return the page size of the current request
+   */
+  protected final int getLimit() {
+    if (currentLimit < 1) {
+      currentLimit = resolveLimit();
+    }
+    return currentLimit;
+  }
+
+  private int resolveLimit() {
+    if (limit > 0) {
+      return limit;
+    }
+    return bot.getQueryLimitPolicy().getLimit(getModule());
+  }
+
+  /**
+   * @return the params which identify this query, like the namespaces; a cursor can only resume a
+   *         query with equal params
+   */
+  protected Map<String, String> getCursorParams() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * @return the current position of this query
+   */
+  public QueryCursor getCursor() {
+    if (inner.init) {
+      if (resumeCursor != null) {
+        return resumeCursor;
+      }
+      return new QueryCursor(getModule(), getCursorParams(), nextPageInfo, 0, count, false);
+    }
+    boolean pageDone = !titleIterator.hasNext();
+    if (pageDone && hasNextPage()) {
+      return new QueryCursor(getModule(), getCursorParams(), nextPageInfo, 0, count, false);
+    }
+    return new QueryCursor(getModule(), getCursorParams(), pageInfo, pageOffset, count, pageDone);
+  }
+
+  /**
+   * Continues this query at the position of a cursor, which was created by an equal query.
+   *
+   * @param cursor
+   *          from {@link #getCursor()} or {@link QueryCheckpoint#load()}
+   * @throws IllegalArgumentException
+   *           if the cursor belongs to another query
+   * @throws IllegalStateException
+   *           if this query has already returned items
+   */
+  public void resumeFrom(QueryCursor cursor) {
+    if (!inner.init) {
+      throw new IllegalStateException("query is already running");
+    }
+    if (!Objects.equal(getModule(), cursor.getModule())
+        || !cursor.getParams().equals(getCursorParams())) {
+      throw new IllegalArgumentException(cursor + " does not belong to this "
+          + getClass().getSimpleName() + " " + getCursorParams());
+    }
+    resumeCursor = cursor;
+    nextPageInfo = cursor.getContinuation();
+    skip = cursor.getOffset();
+    count = cursor.getCount();
+  }
+
+  /**
+   * @param checkpoint
+   *          which saves the cursor of this query periodically, may be null
+   */
+  public void setCheckpoint(QueryCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
   public HttpAction getNextMessage() {
     throw new UnsupportedOperationException();
   }
@@ -51,7 +169,13 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
   @SuppressWarnings("unchecked")
   public Iterator<T> iterator() {
     try {
-      return (Iterator<T>) clone();
+      TitleQuery<T> query = (TitleQuery<T>) clone();
+      query.limit = limit;
+      if (resumeCursor != null) {
+        query.resumeFrom(resumeCursor);
+      }
+      query.checkpoint = checkpoint;
+      return query;
     } catch (CloneNotSupportedException e) {
       log.error("cloning should be supported");
       e.printStackTrace();
@@ -64,7 +188,12 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
    */
   public final boolean hasNext() {
     doCollection();
-    return titleIterator.hasNext();
+    boolean hasNext = titleIterator.hasNext();
+    if (!hasNext && checkpoint != null && !finalSaved) {
+      finalSaved = true;
+      checkpoint.save(getCursor());
+    }
+    return hasNext;
   }
 
   /**
@@ -72,7 +201,46 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
    */
   public final T next() {
     doCollection();
-    return titleIterator.next();
+    T next = titleIterator.next();
+    pageOffset++;
+    count++;
+    if (checkpoint != null && checkpoint.isDue()) {
+      checkpoint.save(getCursor());
+    }
+    return next;
+  }
+
+  /**
+   * Returns the remaining items of the current api page or, if it is done, all items of the next
+   * one.
+   *
+   * @return an empty list if the query has no more items
+   */
+  public final List<T> nextPage() {
+    List<T> page = Lists.newArrayList();
+    while (page.isEmpty() && hasNext()) {
+      while (titleIterator.hasNext()) {
+        page.add(next());
+      }
+    }
+    return page;
+  }
+
+  /**
+   * @return a sequential stream over a new iteration of this query
+   */
+  @SuppressWarnings("unchecked")
+  public QueryStream<T> stream() {
+    return QueryStream.of((TitleQuery<T>) iterator());
+  }
+
+  /**
+   * @param executor
+   *          which maps the items, while the pages are fetched in order by the consuming thread
+   * @return a parallel stream over a new iteration of this query
+   */
+  public QueryStream<T> parallelStream(ExecutorService executor) {
+    return stream().parallel(executor);
   }
 
   /**
@@ -90,11 +258,35 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
 
   private void doCollection() {
 
-    if (inner.init || (!titleIterator.hasNext() && hasNextPage())) {
+    if (inner.init && resumeCursor != null && resumeCursor.isFinished()) {
+      inner.init = false;
+      nextPageInfo = "";
+      titleIterator = Iterators.emptyIterator();
+    }
+    // an api page may have no items, e.g. if all its pages are skipped
+    while (inner.init || (!titleIterator.hasNext() && hasNextPage())) {
       inner.init = false;
       inner.setHasMoreMessages(true);
+      pageInfo = nextPageInfo;
+      pageOffset = 0;
+      currentLimit = resolveLimit();
       inner.msg = prepareCollection();
+      long start = System.currentTimeMillis();
       bot.performAction(inner);
+      if (limit < 1) {
+        bot.getQueryLimitPolicy().record(getModule(), currentLimit,
+            System.currentTimeMillis() - start, responseSize);
+      }
+      if (hasNextPage() && nextPageInfo.equals(pageInfo)) {
+        log.warn("{} continues with the request it has just sent, stopping at {}",
+            getModule(), pageInfo);
+        nextPageInfo = "";
+      }
+      for (; skip > 0 && titleIterator.hasNext(); skip--) {
+        titleIterator.next();
+        pageOffset++;
+      }
+      skip = 0;
     }
   }
 
@@ -102,6 +294,55 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
 
   protected abstract String parseHasMore(final String s);
 
+  /**
+   * @return the format of the responses, as configured on the bot
+   */
+  protected final ResponseFormat getResponseFormat() {
+    return bot.getResponseFormat();
+  }
+
+  /**
+   * @param json
+   *          a response of {@link #getModule()}
+   * @return the titles of the items
+   */
+  protected final Collection<String> parseJsonTitles(String json) {
+    parseJsonPage(json);
+    return Lists.newArrayList(jsonTitles);
+  }
+
+  /**
+   * @param json
+   *          a response of {@link #getModule()}
+   * @return the continue value of {@link #getModule()} or an empty string
+   */
+  protected final String parseJsonContinue(String json) {
+    parseJsonPage(json);
+    return jsonContinue;
+  }
+
+  private void parseJsonPage(String json) {
+    if (json == parsedJson) {
+      return;
+    }
+    jsonTitles.clear();
+    jsonContinue = "";
+    parseJson(json, new JsonHandler() {
+
+      @Override
+      public void object(String name, String parent, Map<String, String> values) {
+        if (getModule().equals(name)) {
+          if ("query".equals(parent)) {
+            jsonTitles.add(values.get("title"));
+          } else if ("query-continue".equals(parent) && !values.isEmpty()) {
+            jsonContinue = values.values().iterator().next();
+          }
+        }
+      }
+    });
+    parsedJson = json;
+  }
+
   /**
    * Inner helper class for this type.
    * 
@@ -128,6 +369,15 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
       return msg;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String processReturningText(String s, HttpAction hm) {
+      responseSize = s.length();
+      return super.processReturningText(s, hm);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -11,9 +11,28 @@ public class ApiException extends ProcessException {
 
   private static final long serialVersionUID = -959971173922381579L;
 
+  private final String code;
+  private final String value;
+
   public ApiException(String code, String value) {
 
     super("API ERROR CODE: " + code + " VALUE: " + value);
+    this.code = code;
+    this.value = value;
+  }
+
+  /**
+   * @return the error code of the api, like "badtoken"
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * @return the description of the error
+   */
+  public String getValue() {
+    return value;
   }
 
 }
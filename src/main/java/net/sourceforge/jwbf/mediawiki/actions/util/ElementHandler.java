@@ -0,0 +1,27 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Receives the elements of an api response while it is parsed, see
+ * {@link MWAction#parseXml(String, ElementHandler)}.
+ *
+ * @author Thomas Stock
+ */
+public interface ElementHandler {
+
+  /**
+   * Called for every start tag. The handler may read the attributes of the element or its text with
+   * {@link XMLStreamReader#getElementText()}, but must not move the reader further.
+   *
+   * @param parent
+   *          name of the enclosing element, null for the root element
+   * @param reader
+   *          positioned at the start tag
+   */
+  void startElement(@CheckForNull String parent, XMLStreamReader reader)
+      throws XMLStreamException;
+
+}
@@ -0,0 +1,46 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Receives the objects of a json api response while it is parsed, see
+ * {@link MWAction#parseJson(String, JsonHandler)}. The methods do nothing by default.
+ *
+ * @author Thomas Stock
+ */
+public abstract class JsonHandler {
+
+  /**
+   * Called for every object after its members have been read, so nested objects are passed before
+   * the enclosing one.
+   *
+   * @param name
+   *          of the member holding the object, for an element of an array the name of the array;
+   *          null for the root object
+   * @param parent
+   *          name of the enclosing object, null for members of the root object
+   * @param values
+   *          scalar members of the object as text, valid only during this call
+   */
+  public void object(@CheckForNull String name, @CheckForNull String parent,
+      Map<String, String> values) {
+    // override to pick values
+  }
+
+  /**
+   * Called for every scalar element of an array, like the groups of a user.
+   *
+   * @param name
+   *          of the array
+   * @param parent
+   *          name of the object holding the array
+   * @param value
+   *          as text
+   */
+  public void arrayValue(String name, @CheckForNull String parent, String value) {
+    // override to pick values
+  }
+
+}
@@ -0,0 +1,396 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.Arrays;
+
+/**
+ * A pull tokenizer for json documents, which reads one token after another without building a
+ * tree. Strings without escapes are returned as substrings of the document.
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader(&quot;{\&quot;query\&quot;:{}}&quot;);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *   String name = reader.nextName();
+ *   reader.skipValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * Instances are not thread safe.
+ *
+ * @author Thomas Stock
+ */
+public final class JsonReader {
+
+  /**
+   * Kinds of tokens.
+   */
+  public enum Token {
+    BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL,
+    END_DOCUMENT
+  }
+
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int NONEMPTY_OBJECT = 3;
+  private static final int DANGLING_NAME = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  private static final int NAME_CACHE_SIZE = 64;
+
+  private final String json;
+  private int pos = 0;
+  private int[] stack = new int[32];
+  private int stackSize = 1;
+
+  private Token peeked = null;
+  private String peekedText = null;
+
+  /** Recently read member names, which repeat for every item of a list. */
+  private final String[] names = new String[NAME_CACHE_SIZE];
+
+  public JsonReader(String json) {
+    this.json = json;
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * @return the kind of the next token without consuming it
+   */
+  public Token peek() {
+    if (peeked != null) {
+      return peeked;
+    }
+    int top = stack[stackSize - 1];
+    switch (top) {
+    case EMPTY_ARRAY:
+    case NONEMPTY_ARRAY: {
+      stack[stackSize - 1] = NONEMPTY_ARRAY;
+      char c = nextNonWhitespace();
+      if (c == ']') {
+        peeked = Token.END_ARRAY;
+        return peeked;
+      }
+      if (top == NONEMPTY_ARRAY) {
+        expect(c, ',');
+      } else {
+        pos--;
+      }
+      peeked = readValue();
+      return peeked;
+    }
+    case EMPTY_OBJECT:
+    case NONEMPTY_OBJECT: {
+      char c = nextNonWhitespace();
+      if (c == '}') {
+        peeked = Token.END_OBJECT;
+        return peeked;
+      }
+      if (top == NONEMPTY_OBJECT) {
+        expect(c, ',');
+        c = nextNonWhitespace();
+      }
+      expect(c, '"');
+      peekedText = readName();
+      stack[stackSize - 1] = DANGLING_NAME;
+      peeked = Token.NAME;
+      return peeked;
+    }
+    case DANGLING_NAME:
+      expect(nextNonWhitespace(), ':');
+      stack[stackSize - 1] = NONEMPTY_OBJECT;
+      peeked = readValue();
+      return peeked;
+    case EMPTY_DOCUMENT:
+      stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+      peeked = readValue();
+      return peeked;
+    default:
+      skipWhitespace();
+      if (pos < json.length()) {
+        throw syntaxError("expected end of document");
+      }
+      peeked = Token.END_DOCUMENT;
+      return peeked;
+    }
+  }
+
+  public void beginObject() {
+    consume(Token.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  public void endObject() {
+    consume(Token.END_OBJECT);
+    stackSize--;
+  }
+
+  public void beginArray() {
+    consume(Token.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  public void endArray() {
+    consume(Token.END_ARRAY);
+    stackSize--;
+  }
+
+  /**
+   * @return true if the current object or array has more elements
+   */
+  public boolean hasNext() {
+    Token token = peek();
+    return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+  }
+
+  public String nextName() {
+    consume(Token.NAME);
+    return peekedText;
+  }
+
+  /**
+   * @return a string, or the text of a number or boolean
+   */
+  public String nextString() {
+    Token token = peek();
+    if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+      throw new IllegalStateException("expected a string but was " + token + " at " + pos);
+    }
+    peeked = null;
+    return peekedText;
+  }
+
+  public long nextLong() {
+    Token token = peek();
+    if (token != Token.NUMBER && token != Token.STRING) {
+      throw new IllegalStateException("expected a number but was " + token + " at " + pos);
+    }
+    peeked = null;
+    return Long.parseLong(peekedText);
+  }
+
+  public boolean nextBoolean() {
+    consume(Token.BOOLEAN);
+    return Boolean.parseBoolean(peekedText);
+  }
+
+  public void nextNull() {
+    consume(Token.NULL);
+  }
+
+  /**
+   * Skips the next value, including all nested values of an object or array.
+   */
+  public void skipValue() {
+    int depth = 0;
+    do {
+      Token token = peek();
+      if (token == Token.BEGIN_OBJECT) {
+        beginObject();
+        depth++;
+      } else if (token == Token.BEGIN_ARRAY) {
+        beginArray();
+        depth++;
+      } else if (token == Token.END_OBJECT) {
+        endObject();
+        depth--;
+      } else if (token == Token.END_ARRAY) {
+        endArray();
+        depth--;
+      } else if (token == Token.END_DOCUMENT) {
+        throw syntaxError("unexpected end of document");
+      } else {
+        peeked = null;
+      }
+    } while (depth > 0);
+  }
+
+  private void consume(Token expected) {
+    Token token = peek();
+    if (token != expected) {
+      throw new IllegalStateException("expected " + expected + " but was " + token + " at "
+          + pos);
+    }
+    peeked = null;
+  }
+
+  private void push(int context) {
+    if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+    }
+    stack[stackSize++] = context;
+  }
+
+  private Token readValue() {
+    char c = nextNonWhitespace();
+    switch (c) {
+    case '{':
+      return Token.BEGIN_OBJECT;
+    case '[':
+      return Token.BEGIN_ARRAY;
+    case '"':
+      peekedText = readString();
+      return Token.STRING;
+    case 't':
+      readLiteral("true");
+      return Token.BOOLEAN;
+    case 'f':
+      readLiteral("false");
+      return Token.BOOLEAN;
+    case 'n':
+      readLiteral("null");
+      peekedText = null;
+      return Token.NULL;
+    default:
+      if (c == '-' || (c >= '0' && c <= '9')) {
+        int start = pos - 1;
+        while (pos < json.length() && isNumberChar(json.charAt(pos))) {
+          pos++;
+        }
+        peekedText = json.substring(start, pos);
+        return Token.NUMBER;
+      }
+      throw syntaxError("unexpected character '" + c + "'");
+    }
+  }
+
+  private static boolean isNumberChar(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+  }
+
+  private void readLiteral(String literal) {
+    int start = pos - 1;
+    if (!json.startsWith(literal, start)) {
+      throw syntaxError("expected " + literal);
+    }
+    pos = start + literal.length();
+    peekedText = literal;
+  }
+
+  /**
+   * Reads a member name after its opening quote; names without escapes are taken from the cache.
+   */
+  private String readName() {
+    int start = pos;
+    int hash = 0;
+    while (pos < json.length()) {
+      char c = json.charAt(pos);
+      if (c == '\\') {
+        pos = start;
+        return readString();
+      }
+      if (c == '"') {
+        break;
+      }
+      hash = 31 * hash + c;
+      pos++;
+    }
+    if (pos >= json.length()) {
+      throw syntaxError("unterminated string");
+    }
+    int length = pos - start;
+    pos++;
+    int slot = hash & (NAME_CACHE_SIZE - 1);
+    String name = names[slot];
+    if (name == null || name.length() != length || !json.regionMatches(start, name, 0, length)) {
+      name = json.substring(start, start + length);
+      names[slot] = name;
+    }
+    return name;
+  }
+
+  /**
+   * Reads a string after its opening quote.
+   */
+  private String readString() {
+    int start = pos;
+    while (pos < json.length()) {
+      char c = json.charAt(pos++);
+      if (c == '"') {
+        return json.substring(start, pos - 1);
+      }
+      if (c == '\\') {
+        pos--;
+        return readEscapedString(start);
+      }
+    }
+    throw syntaxError("unterminated string");
+  }
+
+  private String readEscapedString(int start) {
+    StringBuilder sb = new StringBuilder(pos - start + 16);
+    sb.append(json, start, pos);
+    while (pos < json.length()) {
+      char c = json.charAt(pos++);
+      if (c == '"') {
+        return sb.toString();
+      }
+      if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+      if (pos >= json.length()) {
+        break;
+      }
+      char escaped = json.charAt(pos++);
+      switch (escaped) {
+      case 'u':
+        if (pos + 4 > json.length()) {
+          throw syntaxError("unterminated escape");
+        }
+        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+        pos += 4;
+        break;
+      case 'b':
+        sb.append('\b');
+        break;
+      case 'f':
+        sb.append('\f');
+        break;
+      case 'n':
+        sb.append('\n');
+        break;
+      case 'r':
+        sb.append('\r');
+        break;
+      case 't':
+        sb.append('\t');
+        break;
+      default:
+        sb.append(escaped);
+      }
+    }
+    throw syntaxError("unterminated string");
+  }
+
+  private char nextNonWhitespace() {
+    skipWhitespace();
+    if (pos >= json.length()) {
+      throw syntaxError("unexpected end of document");
+    }
+    return json.charAt(pos++);
+  }
+
+  private void skipWhitespace() {
+    while (pos < json.length()) {
+      char c = json.charAt(pos);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  private void expect(char c, char expected) {
+    if (c != expected) {
+      throw syntaxError("expected '" + expected + "' but was '" + c + "'");
+    }
+  }
+
+  private IllegalArgumentException syntaxError(String message) {
+    return new IllegalArgumentException(message + " at " + pos);
+  }
+
+}
@@ -24,9 +24,14 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -46,6 +51,9 @@ import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
 import org.xml.sax.InputSource;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 /**
  * @author Thomas Stock
  * 
@@ -65,6 +73,18 @@ public abstract class MWAction implements ContentProcessable {
 
   private static ExceptionHandler exceptionHandler = DEFAULT_EXCEPTION_HANDLER;
 
+  /** Creating a factory looks up the implementation, so each thread keeps its own one. */
+  private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = //
+  new ThreadLocal<XMLInputFactory>() {
+    @Override
+    protected XMLInputFactory initialValue() {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      return factory;
+    }
+  };
+
   /**
    * 
    * @return true if and changes state to false
@@ -215,6 +235,123 @@ public abstract class MWAction implements ContentProcessable {
     return root;
   }
 
+  /**
+   * Parses the response with a pull parser instead of building a tree and passes every element to
+   * the handler. An <code>&lt;error&gt;</code> below the root element stops the parsing.
+   *
+   * @param xml
+   *          the api response
+   * @param handler
+   *          which picks the values
+   * @throws ApiException
+   *           if the response contains an error
+   */
+  protected void parseXml(final String xml, ElementHandler handler) {
+    parseXml(xml, handler, true);
+  }
+
+  /**
+   * @param xml
+   *          the api response
+   * @param handler
+   *          which picks the values
+   * @param failOnError
+   *          if an <code>&lt;error&gt;</code> below the root element throws an exception; otherwise
+   *          it is logged and passed to the handler
+   * @see #parseXml(String, ElementHandler)
+   */
+  protected void parseXml(final String xml, ElementHandler handler, boolean failOnError) {
+    XMLStreamReader reader = null;
+    try {
+      reader = XML_INPUT_FACTORY.get().createXMLStreamReader(new StringReader(xml));
+      List<String> path = Lists.newArrayList();
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          String parent = null;
+          if (!path.isEmpty()) {
+            parent = path.get(path.size() - 1);
+          }
+          if (path.size() == 1 && "error".equals(name)) {
+            String code = reader.getAttributeValue(null, "code");
+            String info = reader.getAttributeValue(null, "info");
+            log.error(code + ": " + info);
+            if (failOnError) {
+              throw new ApiException(code, info);
+            }
+          }
+          path.add(name);
+          handler.startElement(parent, reader);
+          if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+            path.remove(path.size() - 1);
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          path.remove(path.size() - 1);
+        }
+      }
+    } catch (XMLStreamException e) {
+      log.error(xml);
+      throw new IllegalArgumentException(e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          log.debug("could not close parser", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the response is a json document, false for xml
+   */
+  protected static boolean isJson(final String response) {
+    for (int i = 0; i < response.length(); i++) {
+      char c = response.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        return c == '{';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses a json response with a {@link JsonReader} and passes every object to the handler. An
+   * <code>error</code> member of the root object stops the parsing.
+   *
+   * @param json
+   *          the api response
+   * @param handler
+   *          which picks the values
+   * @throws ApiException
+   *           if the response contains an error
+   */
+  protected void parseJson(final String json, JsonHandler handler) {
+    parseJson(json, handler, true);
+  }
+
+  /**
+   * @param json
+   *          the api response
+   * @param handler
+   *          which picks the values
+   * @param failOnError
+   *          if an <code>error</code> member of the root object throws an exception; otherwise it
+   *          is logged and passed to the handler
+   * @see #parseJson(String, JsonHandler)
+   */
+  protected void parseJson(final String json, JsonHandler handler, boolean failOnError) {
+    try {
+      JsonReader reader = new JsonReader(json);
+      new JsonWalker(reader, handler, failOnError).object(null, null, 0);
+    } catch (IllegalArgumentException e) {
+      log.error(json);
+      throw e;
+    }
+  }
+
   /**
    * Determines if the given XML {@link Document} contains an error message which then would printed
    * by the logger.
@@ -244,4 +381,71 @@ public abstract class MWAction implements ContentProcessable {
     MWAction.exceptionHandler = exceptionHandler;
   }
 
+  /**
+   * Reads json objects recursively; the value maps are reused per depth.
+   */
+  private static class JsonWalker {
+
+    private final JsonReader reader;
+    private final JsonHandler handler;
+    private final boolean failOnError;
+    private final List<Map<String, String>> values = Lists.newArrayList();
+
+    JsonWalker(JsonReader reader, JsonHandler handler, boolean failOnError) {
+      this.reader = reader;
+      this.handler = handler;
+      this.failOnError = failOnError;
+    }
+
+    void object(String name, String parent, int depth) {
+      if (values.size() == depth) {
+        values.add(Maps.<String, String> newHashMap());
+      }
+      Map<String, String> members = values.get(depth);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String member = reader.nextName();
+        JsonReader.Token token = reader.peek();
+        if (token == JsonReader.Token.BEGIN_OBJECT) {
+          object(member, name, depth + 1);
+        } else if (token == JsonReader.Token.BEGIN_ARRAY) {
+          array(member, name, depth + 1);
+        } else if (token == JsonReader.Token.NULL) {
+          reader.nextNull();
+          members.put(member, null);
+        } else {
+          members.put(member, reader.nextString());
+        }
+      }
+      reader.endObject();
+      if (depth == 1 && "error".equals(name)) {
+        String code = members.get("code");
+        String info = members.get("info");
+        log.error(code + ": " + info);
+        if (failOnError) {
+          throw new ApiException(code, info);
+        }
+      }
+      handler.object(name, parent, members);
+      members.clear();
+    }
+
+    private void array(String name, String parent, int depth) {
+      reader.beginArray();
+      while (reader.hasNext()) {
+        JsonReader.Token token = reader.peek();
+        if (token == JsonReader.Token.BEGIN_OBJECT) {
+          object(name, parent, depth);
+        } else if (token == JsonReader.Token.BEGIN_ARRAY) {
+          array(name, parent, depth + 1);
+        } else if (token == JsonReader.Token.NULL) {
+          reader.nextNull();
+        } else {
+          handler.arrayValue(name, parent, reader.nextString());
+        }
+      }
+      reader.endArray();
+    }
+  }
+
 }
@@ -0,0 +1,187 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.contentRep.Userinfo;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Chooses the page size (the "limit" parameter like <code>aplimit</code>) of list queries. The
+ * maximum depends on the rights of the current user; accounts with
+ * {@link #RIGHT_APIHIGHLIMITS} may fetch ten times more items per request.
+ * <p>
+ * Each module starts with its maximum. After every response the page size is halved if the
+ * request was slower than the target latency or the response was too large, and doubled again
+ * (up to the maximum) if it was fast and small. A limit set with {@link #setLimit(String, int)} is
+ * fixed and never adapted.
+ * </p>
+ * <p>
+ * Modules which also return page content, named with {@link #CONTENT_SUFFIX} like
+ * "allpages+revisions", have the smaller maximum of {@link #MAX_CONTENT_LIMIT}.
+ * </p>
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class QueryLimitPolicy {
+
+  /** Right which raises the maximum page size of most modules from 500 to 5000. */
+  public static final String RIGHT_APIHIGHLIMITS = "apihighlimits";
+
+  public static final int MAX_LIMIT = 500;
+  public static final int MAX_LIMIT_HIGH = 5000;
+  public static final int MIN_LIMIT = 10;
+
+  /** Marks modules which are used as a generator for <code>prop=revisions</code>. */
+  public static final String CONTENT_SUFFIX = "+revisions";
+  public static final int MAX_CONTENT_LIMIT = 50;
+  public static final int MAX_CONTENT_LIMIT_HIGH = 500;
+
+  public static final long DEFAULT_TARGET_LATENCY_MILLIS = 2000;
+  public static final int DEFAULT_MAX_RESPONSE_SIZE = 4 * 1024 * 1024;
+
+  private final boolean highLimits;
+  private final long targetLatencyMillis;
+  private final int maxResponseSize;
+  private final ConcurrentMap<String, ModuleLimit> modules = Maps.newConcurrentMap();
+
+  /**
+   * @param userinfo
+   *          of the current user, used to find {@link #RIGHT_APIHIGHLIMITS}
+   */
+  public QueryLimitPolicy(Userinfo userinfo) {
+    this(userinfo.getRights().contains(RIGHT_APIHIGHLIMITS));
+  }
+
+  public QueryLimitPolicy(boolean highLimits) {
+    this(highLimits, DEFAULT_TARGET_LATENCY_MILLIS, DEFAULT_MAX_RESPONSE_SIZE);
+  }
+
+  /**
+   * @param highLimits
+   *          true if the account has {@link #RIGHT_APIHIGHLIMITS}
+   * @param targetLatencyMillis
+   *          page sizes are reduced if a request takes longer
+   * @param maxResponseSize
+   *          page sizes are reduced if a response has more characters
+   */
+  public QueryLimitPolicy(boolean highLimits, long targetLatencyMillis, int maxResponseSize) {
+    this.highLimits = highLimits;
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.maxResponseSize = maxResponseSize;
+  }
+
+  /**
+   * @return true if the maximum page sizes for {@link #RIGHT_APIHIGHLIMITS} are used
+   */
+  public boolean hasHighLimits() {
+    return highLimits;
+  }
+
+  /**
+   * @param module
+   *          like "allpages"
+   * @return the largest page size the API accepts for the module
+   */
+  public int getMaximum(String module) {
+    boolean content = module.endsWith(CONTENT_SUFFIX);
+    if (highLimits) {
+      if (content) {
+        return MAX_CONTENT_LIMIT_HIGH;
+      }
+      return MAX_LIMIT_HIGH;
+    }
+    if (content) {
+      return MAX_CONTENT_LIMIT;
+    }
+    return MAX_LIMIT;
+  }
+
+  /**
+   * @param module
+   *          like "allpages"
+   * @return the page size for the next request of this module
+   */
+  public int getLimit(String module) {
+    return getModuleLimit(module).limit;
+  }
+
+  /**
+   * Fixes the page size of a module; it will not be adapted anymore.
+   *
+   * @param module
+   *          like "allpages"
+   * @param limit
+   *          page size, is reduced to the maximum of the module
+   */
+  public void setLimit(String module, int limit) {
+    ModuleLimit moduleLimit = getModuleLimit(module);
+    synchronized (moduleLimit) {
+      moduleLimit.limit = Math.max(1, Math.min(limit, getMaximum(module)));
+      moduleLimit.fixed = true;
+    }
+  }
+
+  /**
+   * Removes a page size set with {@link #setLimit(String, int)}.
+   *
+   * @param module
+   *          like "allpages"
+   */
+  public void resetLimit(String module) {
+    modules.remove(module);
+  }
+
+  /**
+   * Adapts the page size of a module to an observed response.
+   *
+   * @param module
+   *          like "allpages"
+   * @param limit
+   *          page size of the request
+   * @param millis
+   *          time between request and parsed response
+   * @param responseSize
+   *          number of characters in the response
+   */
+  public void record(String module, int limit, long millis, int responseSize) {
+    ModuleLimit moduleLimit = getModuleLimit(module);
+    synchronized (moduleLimit) {
+      if (moduleLimit.fixed || moduleLimit.limit != limit) {
+        return;
+      }
+      int next = limit;
+      if (millis > targetLatencyMillis || responseSize > maxResponseSize) {
+        next = Math.max(MIN_LIMIT, limit / 2);
+      } else if (millis < targetLatencyMillis / 4 && responseSize < maxResponseSize / 4) {
+        next = Math.min(getMaximum(module), limit * 2);
+      }
+      if (next != limit) {
+        log.debug("change {} limit from {} to {} ({}ms, {} chars)", new Object[] { module, limit,
+            next, millis, responseSize });
+        moduleLimit.limit = next;
+      }
+    }
+  }
+
+  private ModuleLimit getModuleLimit(String module) {
+    ModuleLimit moduleLimit = modules.get(module);
+    if (moduleLimit == null) {
+      modules.putIfAbsent(module, new ModuleLimit(getMaximum(module)));
+      moduleLimit = modules.get(module);
+    }
+    return moduleLimit;
+  }
+
+  private static class ModuleLimit {
+    private volatile int limit;
+    private boolean fixed = false;
+
+    ModuleLimit(int limit) {
+      this.limit = limit;
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+/**
+ * Formats of api responses, see
+ * {@link net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot#setResponseFormat(ResponseFormat)}.
+ *
+ * @author Thomas Stock
+ */
+public enum ResponseFormat {
+
+  /** <code>format=xml</code>, supported by all actions. */
+  XML("xml"),
+  /**
+   * <code>format=json</code>, smaller and faster to parse; actions without a json parser request
+   * xml anyway.
+   */
+  JSON("json");
+
+  private final String name;
+
+  private ResponseFormat(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the value of the <code>format</code> param, like "xml"
+   */
+  public String getName() {
+    return name;
+  }
+
+}
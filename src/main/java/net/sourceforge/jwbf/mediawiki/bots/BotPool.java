@@ -0,0 +1,80 @@
+package net.sourceforge.jwbf.mediawiki.bots;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A fixed set of bots for the same wiki. Each {@link MediaWikiBot} performs its requests one after
+ * another, so concurrent queries need one bot (session) each; {@link #next()} hands them out round
+ * robin.
+ *
+ * @author Thomas Stock
+ */
+public class BotPool implements Iterable<MediaWikiBot> {
+
+  private final List<MediaWikiBot> bots;
+  private final AtomicInteger next = new AtomicInteger();
+
+  public BotPool(MediaWikiBot... bots) {
+    this(ImmutableList.copyOf(bots));
+  }
+
+  public BotPool(Collection<MediaWikiBot> bots) {
+    if (bots.isEmpty()) {
+      throw new IllegalArgumentException("a pool needs at least one bot");
+    }
+    this.bots = ImmutableList.copyOf(bots);
+  }
+
+  /**
+   * @param url
+   *          of the wiki
+   * @param size
+   *          number of bots
+   * @return a pool of new bots, not logged in
+   */
+  public static BotPool create(URL url, int size) {
+    ImmutableList.Builder<MediaWikiBot> bots = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      bots.add(new MediaWikiBot(url));
+    }
+    return new BotPool(bots.build());
+  }
+
+  /**
+   * Logs in all bots of this pool with the same account.
+   */
+  public void login(String username, String passwd) {
+    for (MediaWikiBot bot : bots) {
+      bot.login(username, passwd);
+    }
+  }
+
+  /**
+   * @return the next bot, round robin
+   */
+  public MediaWikiBot next() {
+    int i = next.getAndIncrement() % bots.size();
+    if (i < 0) {
+      i += bots.size();
+    }
+    return bots.get(i);
+  }
+
+  public int size() {
+    return bots.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Iterator<MediaWikiBot> iterator() {
+    return bots.iterator();
+  }
+
+}
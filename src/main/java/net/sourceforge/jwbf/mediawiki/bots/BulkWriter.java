@@ -0,0 +1,324 @@
+package net.sourceforge.jwbf.mediawiki.bots;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.mediawiki.actions.editing.PostModifyContent;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Writes many articles with one thread per bot of a {@link BotPool}, not faster than the wiki
+ * allows. Each thread reuses the edit token of its bot, so an edit needs one request instead of
+ * two.
+ *
+ * <pre>
+ * BulkWriter writer = new BulkWriter(pool, 1000, 2);
+ * List&lt;Future&lt;BulkWriter.Result&gt;&gt; results = Lists.newArrayList();
+ * for (SimpleArticle article : articles) {
+ *   results.add(writer.submit(article));
+ * }
+ * writer.shutdown();
+ * writer.awaitTermination(1, TimeUnit.HOURS);
+ * </pre>
+ *
+ * Edits which the wiki rejects with "ratelimited" are retried after a pause, an expired token is
+ * requested again; other failures are reported by the {@link Result} of the edit.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class BulkWriter {
+
+  static final int MAX_RETRIES = 3;
+  private static final long POLL_MILLIS = 100;
+
+  private final BlockingQueue<Edit> queue;
+  private final RateLimiter rateLimiter;
+  private final List<Thread> writers = Lists.newArrayList();
+  /** Writers which have not exited; the last one fails the edits which are left. */
+  private final AtomicInteger running = new AtomicInteger();
+  private volatile long retryPauseMillis = 10 * 1000;
+  private volatile boolean shutdown = false;
+
+  /**
+   * The outcome of one edit.
+   */
+  public static class Result {
+
+    private final SimpleArticle article;
+    private final PostModifyContent edit;
+    private final String failure;
+    private final Throwable cause;
+
+    Result(SimpleArticle article, @CheckForNull PostModifyContent edit,
+        @CheckForNull String failure, @CheckForNull Throwable cause) {
+      this.article = article;
+      this.edit = edit;
+      this.failure = failure;
+      this.cause = cause;
+    }
+
+    public SimpleArticle getArticle() {
+      return article;
+    }
+
+    public boolean isSuccess() {
+      return failure == null;
+    }
+
+    /**
+     * @return the new revision, or null if the edit failed or did not change the text
+     */
+    @CheckForNull
+    public String getRevisionId() {
+      return edit == null ? null : edit.getNewRevisionId();
+    }
+
+    /**
+     * @return why the edit failed, like the error code of the api; or null
+     */
+    @CheckForNull
+    public String getFailure() {
+      return failure;
+    }
+
+    @CheckForNull
+    public Throwable getCause() {
+      return cause;
+    }
+
+    @Override
+    public String toString() {
+      return article.getTitle() + ": " + (isSuccess() ? "Success" : failure);
+    }
+  }
+
+  private static class Edit {
+    private final SimpleArticle article;
+    private final SettableFuture<Result> result = SettableFuture.create();
+
+    Edit(SimpleArticle article) {
+      this.article = article;
+    }
+  }
+
+  /**
+   * @param bots
+   *          logged in, one writing thread each
+   * @param capacity
+   *          of the queue; {@link #submit(SimpleArticle)} waits while it is full
+   * @param editsPerSecond
+   *          of all bots together, see <code>$wgRateLimits</code> of the wiki
+   */
+  public BulkWriter(BotPool bots, int capacity, double editsPerSecond) {
+    queue = new ArrayBlockingQueue<Edit>(capacity);
+    rateLimiter = RateLimiter.create(editsPerSecond);
+    int i = 0;
+    for (final MediaWikiBot bot : bots) {
+      Thread writer = new Thread(new Runnable() {
+
+        public void run() {
+          write(bot);
+        }
+      }, "jwbf-writer-" + i++);
+      writer.setDaemon(true);
+      writers.add(writer);
+    }
+    running.set(writers.size());
+    for (Thread writer : writers) {
+      writer.start();
+    }
+  }
+
+  /**
+   * @param retryPauseMillis
+   *          before the first retry of a rate limited edit; doubled for each further retry
+   */
+  public void setRetryPause(long retryPauseMillis) {
+    this.retryPauseMillis = retryPauseMillis;
+  }
+
+  /**
+   * Queues the article, waits while the queue is full.
+   *
+   * @return the result of the edit; cancel it to skip the edit if it was not started. It fails if
+   *         the writer was shut down while the article was queued, or all writers have stopped.
+   * @throws IllegalStateException
+   *           if the writer is shut down
+   */
+  public ListenableFuture<Result> submit(SimpleArticle article) {
+    if (shutdown) {
+      throw new IllegalStateException("the writer is shut down");
+    }
+    Edit edit = new Edit(article);
+    try {
+      queue.put(edit);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JwbfException("interrupted while waiting for the queue", e);
+    }
+    // the writers may have seen an empty queue and exited in the meantime
+    if ((shutdown || running.get() == 0) && queue.remove(edit)) {
+      edit.result.setException(new IllegalStateException("the writer is shut down"));
+    }
+    return edit.result;
+  }
+
+  /**
+   * @return number of articles which wait for a writer
+   */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * Accepts no more articles; the queued ones are still written.
+   */
+  public void shutdown() {
+    shutdown = true;
+  }
+
+  /**
+   * Accepts no more articles and cancels the queued ones; running edits are completed.
+   *
+   * @return the articles which were not written
+   */
+  public List<SimpleArticle> shutdownNow() {
+    shutdown = true;
+    List<Edit> pending = Lists.newArrayList();
+    queue.drainTo(pending);
+    List<SimpleArticle> articles = Lists.newArrayList();
+    for (Edit edit : pending) {
+      edit.result.cancel(false);
+      articles.add(edit.article);
+    }
+    return articles;
+  }
+
+  /**
+   * Waits until all writers have finished after a shutdown.
+   *
+   * @return true if they have finished, false after the timeout
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Thread writer : writers) {
+      long millis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (millis <= 0) {
+        return !isRunning();
+      }
+      writer.join(millis);
+    }
+    return !isRunning();
+  }
+
+  private boolean isRunning() {
+    for (Thread writer : writers) {
+      if (writer.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void write(MediaWikiBot bot) {
+    String token = null;
+    Edit edit = null;
+    try {
+      while (true) {
+        try {
+          edit = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          log.warn("writer interrupted, {} articles are left", queue.size());
+          return;
+        }
+        if (edit == null) {
+          if (shutdown) {
+            return;
+          }
+        } else if (!edit.result.isCancelled()) {
+          Result result;
+          try {
+            result = write(bot, edit.article, token);
+          } catch (InterruptedException e) {
+            edit.result.set(new Result(edit.article, null, "interrupted", e));
+            log.warn("writer interrupted, {} articles are left", queue.size());
+            return;
+          }
+          if (result.edit != null) {
+            token = result.edit.getToken();
+          } else if ("badtoken".equals(result.failure)) {
+            token = null;
+          }
+          edit.result.set(result);
+        }
+      }
+    } finally {
+      // does nothing if the edit is done, sets the failure if an Error ends the writer
+      if (edit != null) {
+        edit.result.setException(new JwbfException("the writer of " + edit.article.getTitle()
+            + " stopped"));
+      }
+      if (running.decrementAndGet() == 0) {
+        failQueued();
+      }
+    }
+  }
+
+  /**
+   * Fails the queued edits, because no writer is left to take them.
+   */
+  private void failQueued() {
+    List<Edit> pending = Lists.newArrayList();
+    queue.drainTo(pending);
+    if (!pending.isEmpty()) {
+      log.warn("all writers have stopped, {} articles are not written", pending.size());
+    }
+    for (Edit edit : pending) {
+      edit.result.setException(new IllegalStateException("all writers have stopped"));
+    }
+  }
+
+  private Result write(MediaWikiBot bot, SimpleArticle article, @CheckForNull String token)
+      throws InterruptedException {
+    int retries = 0;
+    while (true) {
+      rateLimiter.acquire();
+      try {
+        PostModifyContent edit = bot.writeContent(article, token);
+        if ("Success".equals(edit.getResult())) {
+          return new Result(article, edit, null, null);
+        }
+        return new Result(article, edit, "edit result " + edit.getResult(), null);
+      } catch (ApiException e) {
+        if (retries < MAX_RETRIES && "badtoken".equals(e.getCode())) {
+          token = null;
+        } else if (retries < MAX_RETRIES && "ratelimited".equals(e.getCode())) {
+          long pause = retryPauseMillis << retries;
+          log.debug("rate limited, retry {} in {}ms", article.getTitle(), pause);
+          Thread.sleep(pause);
+        } else {
+          return new Result(article, null, e.getCode(), e);
+        }
+      } catch (RuntimeException e) {
+        log.warn("could not write " + article.getTitle(), e);
+        return new Result(article, null, e.toString(), e);
+      }
+      retries++;
+    }
+  }
+
+}
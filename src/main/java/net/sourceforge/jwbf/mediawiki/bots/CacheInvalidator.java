@@ -0,0 +1,175 @@
+package net.sourceforge.jwbf.mediawiki.bots;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.queries.RecentChangesFeed;
+import net.sourceforge.jwbf.mediawiki.contentRep.RecentChange;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Removes the articles of the {@link MediaWikiBot#setCacheHandler cache} of a bot as soon as a
+ * {@link RecentChangesFeed} reports a change of them: edits, moves (both titles), deletions and
+ * other log entries. With it, cached articles may live much longer than the time in which
+ * changes must be seen.
+ *
+ * <pre>
+ * CacheInvalidator invalidator = new CacheInvalidator(bot, new File(&quot;cache.watermark&quot;));
+ * RecentChangesFeed feed = invalidator.newFeed(cacheCreated);
+ * feed.start();
+ * // ...
+ * feed.stop();
+ * invalidator.saveWatermark();
+ * </pre>
+ *
+ * The timestamp of the newest processed change, the watermark, is saved to a file, so that a
+ * restarted process continues with the changes which happened meanwhile. Changes with the
+ * timestamp of the watermark are processed again, which does no harm.
+ *
+ * @author Thomas Stock
+ */
+@Slf4j
+public class CacheInvalidator implements RecentChangesFeed.Listener {
+
+  public static final long DEFAULT_SAVE_INTERVAL_MILLIS = 10 * 1000;
+
+  private final MediaWikiBot bot;
+  private final File file;
+  private final long saveInterval;
+
+  private volatile boolean refresh = false;
+
+  private String watermark;
+  private String savedWatermark;
+  private long lastSave = System.currentTimeMillis();
+
+  /**
+   * @param file
+   *          to save the watermark in
+   */
+  public CacheInvalidator(MediaWikiBot bot, File file) {
+    this(bot, file, DEFAULT_SAVE_INTERVAL_MILLIS);
+  }
+
+  /**
+   * @param file
+   *          to save the watermark in
+   * @param saveInterval
+   *          milliseconds between two saves of the watermark while changes arrive
+   */
+  public CacheInvalidator(MediaWikiBot bot, File file, long saveInterval) {
+    this.bot = bot;
+    this.file = file;
+    this.saveInterval = saveInterval;
+    this.watermark = load();
+    this.savedWatermark = watermark;
+  }
+
+  /**
+   * @param start
+   *          of the changes if no watermark was saved; not later than the oldest entry of the
+   *          cache, otherwise changes in between are missed
+   * @param namespaces
+   *          of the changes, all if empty
+   * @return a feed, not yet started, which begins at the watermark and delivers to this
+   */
+  public synchronized RecentChangesFeed newFeed(Date start, int... namespaces) {
+    if (watermark != null) {
+      start = MediaWiki.parseTimestamp(watermark);
+    }
+    RecentChangesFeed feed = new RecentChangesFeed(bot, start, namespaces);
+    feed.addListener(this);
+    return feed;
+  }
+
+  /**
+   * @param refresh
+   *          true to read edited articles again after their removal, if they were cached; the
+   *          reads use the default properties of {@link MediaWikiBot#readData(String)}
+   */
+  public void setRefresh(boolean refresh) {
+    this.refresh = refresh;
+  }
+
+  /**
+   * {@inheritDoc} Never throws, since the feed would not deliver the following changes.
+   */
+  public void onChange(RecentChange change) {
+    // hidden log entries have no title
+    boolean cached = change.getTitle() != null && bot.invalidateCache(change.getTitle());
+    if (change.getMoveTarget() != null) {
+      bot.invalidateCache(change.getMoveTarget());
+    }
+    if (cached && refresh && !RecentChange.TYPE_LOG.equals(change.getType())) {
+      try {
+        bot.readData(change.getTitle());
+      } catch (RuntimeException e) {
+        log.warn("could not refresh " + change.getTitle(), e);
+      }
+    }
+    synchronized (this) {
+      watermark = change.getTimestamp();
+      if (System.currentTimeMillis() - lastSave >= saveInterval) {
+        try {
+          saveWatermark();
+        } catch (JwbfException e) {
+          log.warn("could not save the watermark", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the timestamp of the newest processed change, or null if there was none
+   */
+  @CheckForNull
+  public synchronized String getWatermark() {
+    return watermark;
+  }
+
+  /**
+   * Writes the watermark to a temporary file first, so that a crash while saving never destroys
+   * the previous one.
+   */
+  public synchronized void saveWatermark() {
+    lastSave = System.currentTimeMillis();
+    if (watermark == null || watermark.equals(savedWatermark)) {
+      return;
+    }
+    File tmp = new File(file.getPath() + ".tmp");
+    try {
+      Files.write(watermark, tmp, Charsets.UTF_8);
+    } catch (IOException e) {
+      throw new JwbfException("could not save " + watermark, e);
+    }
+    if (!tmp.renameTo(file)) {
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        throw new JwbfException("could not move " + tmp + " to " + file);
+      }
+    }
+    savedWatermark = watermark;
+  }
+
+  @CheckForNull
+  private String load() {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      String saved = Files.toString(file, Charsets.UTF_8).trim();
+      return saved.length() > 0 ? saved : null;
+    } catch (IOException e) {
+      throw new JwbfException("could not read " + file, e);
+    }
+  }
+
+}
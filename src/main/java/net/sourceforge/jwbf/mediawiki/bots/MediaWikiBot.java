@@ -1,9 +1,16 @@
 package net.sourceforge.jwbf.mediawiki.bots;
 
 import java.net.URL;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +20,7 @@ import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
 import net.sourceforge.jwbf.core.bots.HttpBot;
 import net.sourceforge.jwbf.core.bots.WikiBot;
+import net.sourceforge.jwbf.core.bots.util.CacheHandler;
 import net.sourceforge.jwbf.core.bots.util.JwbfException;
 import net.sourceforge.jwbf.core.contentRep.Article;
 import net.sourceforge.jwbf.core.contentRep.ContentAccessable;
@@ -27,10 +35,20 @@ import net.sourceforge.jwbf.mediawiki.actions.login.PostLogin;
 import net.sourceforge.jwbf.mediawiki.actions.meta.GetUserinfo;
 import net.sourceforge.jwbf.mediawiki.actions.meta.GetVersion;
 import net.sourceforge.jwbf.mediawiki.actions.meta.Siteinfo;
+import net.sourceforge.jwbf.mediawiki.actions.queries.GetPageInfo;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
 import net.sourceforge.jwbf.mediawiki.actions.util.VersionException;
 import net.sourceforge.jwbf.mediawiki.contentRep.LoginData;
+import net.sourceforge.jwbf.mediawiki.contentRep.PageInfo;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * This class helps you to interact with each <a href="http://www.mediawiki.org"
@@ -72,6 +90,14 @@ public class MediaWikiBot implements WikiBot {
 
   private Version version = null;
   private Userinfo ui = null;
+  private QueryLimitPolicy limitPolicy = null;
+  private boolean customLimitPolicy = false;
+  private volatile ResponseFormat responseFormat = ResponseFormat.XML;
+  @Nullable
+  private volatile CacheHandler cacheHandler = null;
+  /** Titles which {@link #exists(Collection)} found missing. */
+  private volatile Cache<String, Boolean> missingTitles = newMissingTitles(
+      DEFAULT_MISSING_TITLES, 10, TimeUnit.MINUTES);
 
   private boolean loginChangeUserInfo = false;
   private boolean loginChangeVersion = false;
@@ -84,11 +110,19 @@ public class MediaWikiBot implements WikiBot {
    * These chars are not allowed in article names.
    */
   public static final char[] INVALID_LABEL_CHARS = "[]{}<>|".toCharArray();
+  private static final CharMatcher INVALID_LABEL = CharMatcher.anyOf(new String(
+      INVALID_LABEL_CHARS));
   private static final int DEFAULT_READ_PROPERTIES = GetRevision.CONTENT | GetRevision.COMMENT
       | GetRevision.USER | GetRevision.TIMESTAMP | GetRevision.IDS | GetRevision.FLAGS;
 
   private static final Set<String> emptySet = ImmutableSet.of();
 
+  /** Default number of missing titles remembered by {@link #exists(Collection)}. */
+  public static final int DEFAULT_MISSING_TITLES = 10000;
+
+  /** Texts which the wiki may change while saving, like signatures and substitutions. */
+  private static final String[] PRE_SAVE_TRANSFORMED = { "~~~", "subst:", "|]]" };
+
   /**
    * use this constructor, if you want to work with IoC.
    * 
@@ -156,6 +190,9 @@ public class MediaWikiBot implements WikiBot {
 
     this.login = login;
     loginChangeUserInfo = true;
+    if (!customLimitPolicy) {
+      limitPolicy = null;
+    }
     if (getVersion() == Version.UNKNOWN) {
       loginChangeVersion = true;
     }
@@ -195,13 +232,59 @@ public class MediaWikiBot implements WikiBot {
    * {@inheritDoc}
    */
   public synchronized SimpleArticle readData(final String name, final int properties) {
+    CacheHandler cache = cacheHandler;
+    if (cache == null) {
+      return readRevision(name, properties);
+    }
+    // first revisions are not cached
+    if ((properties & GetRevision.FIRST) != 0) {
+      return readRevision(name, properties);
+    }
+    SimpleArticle cached = cache.getIfPresent(name);
+    if (cached != null) {
+      return project(cached, properties);
+    }
+    if ((properties & GetRevision.CONTENT) == 0) {
+      // not worth downloading the text for the cache
+      return readRevision(name, properties);
+    }
+    SimpleArticle entry = readRevision(name, DEFAULT_READ_PROPERTIES);
+    entry.setTitle(name);
+    cache.put(entry);
+    return project(entry, properties);
+  }
 
-    GetRevision ac = new GetRevision(getVersion(), name, properties);
+  /**
+   * @return a copy of the cached entry, which has all {@link #DEFAULT_READ_PROPERTIES}, with only
+   *         the requested properties like {@link GetRevision} would have read them
+   */
+  private static SimpleArticle project(SimpleArticle entry, int properties) {
+    SimpleArticle article = new SimpleArticle(entry.getTitle());
+    if ((properties & GetRevision.CONTENT) != 0) {
+      article.setText(entry.getText());
+    }
+    if ((properties & GetRevision.COMMENT) != 0) {
+      article.setEditSummary(entry.getEditSummary());
+    }
+    if ((properties & GetRevision.USER) != 0) {
+      article.setEditor(entry.getEditor());
+    }
+    if ((properties & GetRevision.TIMESTAMP) != 0) {
+      article.setEditTimestamp(entry.getEditTimestamp());
+    }
+    if ((properties & GetRevision.IDS) != 0) {
+      article.setRevisionId(entry.getRevisionId());
+    }
+    if ((properties & GetRevision.FLAGS) != 0) {
+      article.setMinorEdit(entry.isMinorEdit());
+    }
+    return article;
+  }
 
+  private SimpleArticle readRevision(String name, int properties) {
+    GetRevision ac = new GetRevision(getVersion(), name, properties, responseFormat);
     performAction(ac);
-
     return ac.getArticle();
-
   }
 
   /**
@@ -228,20 +311,216 @@ public class MediaWikiBot implements WikiBot {
    * {@inheritDoc}
    */
   public synchronized void writeContent(final SimpleArticle simpleArticle) {
+    writeContent(simpleArticle, null);
+    if (simpleArticle.getText().trim().length() < 1)
+      throw new RuntimeException("Content is empty, still written");
+  }
+
+  /**
+   * Writes the article like {@link #writeContent(SimpleArticle)}, but reuses the token of an
+   * earlier edit, which saves a request per edit, see {@link BulkWriter}.
+   *
+   * @param editToken
+   *          of an earlier edit of this bot, see {@link PostModifyContent#getToken()}; or null to
+   *          request one
+   * @return the performed edit, with its result and the token
+   */
+  public synchronized PostModifyContent writeContent(final SimpleArticle simpleArticle,
+      @CheckForNull String editToken) {
     if (!isLoggedIn()) {
       throw new ActionException("Please login first");
     }
 
-    for (char invChar : INVALID_LABEL_CHARS) { // FIXME Replace with a REGEX
-      if (simpleArticle.getTitle().contains(invChar + "")) {
-        throw new ActionException("Invalid character in label\"" + simpleArticle.getTitle()
-            + "\" : \"" + invChar + "\"");
+    int invalid = INVALID_LABEL.indexIn(simpleArticle.getTitle());
+    if (invalid >= 0) {
+      throw new ActionException("Invalid character in label\"" + simpleArticle.getTitle()
+          + "\" : \"" + simpleArticle.getTitle().charAt(invalid) + "\"");
+    }
+
+    PostModifyContent action = new PostModifyContent(this, simpleArticle, editToken);
+    missingTitles.invalidate(simpleArticle.getTitle());
+    try {
+      performAction(action);
+    } finally {
+      updateCache(simpleArticle, action);
+    }
+    return action;
+  }
+
+  /**
+   * Removes the older revisions of a written article from the cache, and adds the new one if the
+   * wiki saved the text as it was sent.
+   */
+  private void updateCache(SimpleArticle written, PostModifyContent action) {
+    CacheHandler cache = cacheHandler;
+    if (cache == null) {
+      return;
+    }
+    String title = written.getTitle();
+    cache.remove(title);
+    String revisionId = action.getNewRevisionId();
+    String timestamp = action.getNewTimestamp();
+    if (revisionId == null || timestamp == null || isPreSaveTransformed(written.getText())) {
+      return;
+    }
+    SimpleArticle article = new SimpleArticle(written);
+    article.setRevisionId(revisionId);
+    article.setEditor(getUserinfo().getUsername());
+    try {
+      article.setEditTimestamp(timestamp);
+    } catch (ParseException e) {
+      log.debug("timestamp could not be parsed", e);
+      return;
+    }
+    cache.put(article);
+  }
+
+  private static boolean isPreSaveTransformed(@CheckForNull String text) {
+    if (text == null) {
+      return true;
+    }
+    for (String transformed : PRE_SAVE_TRANSFORMED) {
+      if (text.contains(transformed)) {
+        return true;
       }
     }
+    // the wiki removes trailing whitespace
+    return text.length() > 0 && Character.isWhitespace(text.charAt(text.length() - 1));
+  }
 
-    performAction(new PostModifyContent(this, simpleArticle));
-    if (simpleArticle.getText().trim().length() < 1)
-      throw new RuntimeException("Content is empty, still written");
+  /**
+   * @param cacheHandler
+   *          for the articles read by {@link #readData(String, int)}, keyed by their title; or
+   *          null to read every article from the wiki. An entry holds the latest revision with all
+   *          properties, reads of fewer properties get a part of it. Written and deleted articles
+   *          are updated, changes by others are seen after the entries expire or with a
+   *          {@link CacheInvalidator}.
+   */
+  public void setCacheHandler(@Nullable CacheHandler cacheHandler) {
+    this.cacheHandler = cacheHandler;
+  }
+
+  /**
+   * Compares the cached revisions of the titles with the latest revisions of the wiki, with one
+   * request per {@link GetPageInfo#MAX_TITLES} titles, and removes the outdated ones from the
+   * cache. Following reads download only the changed articles:
+   *
+   * <pre>
+   * bot.revalidateCache(titles);
+   * for (String title : titles) {
+   *   process(bot.readData(title));
+   * }
+   * </pre>
+   *
+   * @return the titles of the removed articles; changed, deleted or moved
+   */
+  public synchronized Set<String> revalidateCache(Collection<String> titles) {
+    CacheHandler cache = cacheHandler;
+    if (cache == null) {
+      return Collections.emptySet();
+    }
+    Map<String, String> revisionsByTitle = Maps.newLinkedHashMap();
+    for (String title : titles) {
+      SimpleArticle cached = cache.getIfPresent(title);
+      if (cached != null) {
+        revisionsByTitle.put(title, cached.getRevisionId());
+      }
+    }
+    if (revisionsByTitle.isEmpty()) {
+      return Collections.emptySet();
+    }
+    GetPageInfo pageInfo = new GetPageInfo(this, revisionsByTitle.keySet());
+    performAction(pageInfo);
+    Map<String, PageInfo> infos = pageInfo.getPageInfos();
+    Set<String> removed = Sets.newLinkedHashSet();
+    for (Map.Entry<String, String> revision : revisionsByTitle.entrySet()) {
+      String title = revision.getKey();
+      PageInfo info = infos.get(title);
+      if (info == null || info.isMissing()
+          || !String.valueOf(info.getLastRevisionId()).equals(revision.getValue())) {
+        cache.remove(title);
+        removed.add(title);
+      }
+    }
+    log.debug("{} of {} cached articles changed", removed.size(), revisionsByTitle.size());
+    return removed;
+  }
+
+  /**
+   * Checks the existence of pages with one request per {@link GetPageInfo#MAX_TITLES} titles,
+   * instead of reading each of them. Missing titles are remembered, see
+   * {@link #setMissingTitlesCache(int, long, TimeUnit)}, until this bot writes them or they are
+   * {@link #invalidateCache(String) invalidated}, e.g. by a {@link CacheInvalidator}.
+   *
+   * @return for each title, in the given order, if the page exists; invalid titles and titles of
+   *         other wikis, like "en:Foo", do not
+   */
+  public synchronized Map<String, Boolean> exists(Collection<String> titles) {
+    Cache<String, Boolean> missing = missingTitles;
+    Map<String, Boolean> exists = Maps.newLinkedHashMap();
+    Set<String> unknown = Sets.newLinkedHashSet();
+    for (String title : titles) {
+      if (missing.getIfPresent(title) != null) {
+        exists.put(title, Boolean.FALSE);
+      } else {
+        exists.put(title, null);
+        unknown.add(title);
+      }
+    }
+    if (!unknown.isEmpty()) {
+      GetPageInfo pageInfo = new GetPageInfo(this, unknown);
+      performAction(pageInfo);
+      Map<String, PageInfo> infos = pageInfo.getPageInfos();
+      for (String title : unknown) {
+        PageInfo info = infos.get(title);
+        if (info == null) {
+          log.warn("no page info for {}, reported as missing", title);
+          exists.put(title, Boolean.FALSE);
+          continue;
+        }
+        exists.put(title, Boolean.valueOf(!info.isMissing()));
+        if (info.isMissing()) {
+          missing.put(title, Boolean.TRUE);
+        }
+      }
+      log.debug("{} of {} titles were not known to be missing", unknown.size(), exists.size());
+    }
+    return exists;
+  }
+
+  /**
+   * @return true if the page exists
+   * @see #exists(Collection)
+   */
+  public boolean exists(String title) {
+    return exists(Collections.singleton(title)).get(title).booleanValue();
+  }
+
+  /**
+   * @param maximumSize
+   *          of the titles which {@link #exists(Collection)} remembers as missing, 0 for none
+   * @param duration
+   *          after which a missing title is checked again
+   */
+  public void setMissingTitlesCache(int maximumSize, long duration, TimeUnit unit) {
+    missingTitles = newMissingTitles(maximumSize, duration, unit);
+  }
+
+  private static Cache<String, Boolean> newMissingTitles(int maximumSize, long duration,
+      TimeUnit unit) {
+    return CacheBuilder.newBuilder() //
+        .maximumSize(maximumSize) //
+        .expireAfterWrite(duration, unit) //
+        .build();
+  }
+
+  @CheckForNull
+  public CacheHandler getCacheHandler() {
+    return cacheHandler;
+  }
+
+  public boolean hasCacheHandler() {
+    return cacheHandler != null;
   }
 
   /**
@@ -265,7 +544,7 @@ public class MediaWikiBot implements WikiBot {
     if (ui == null || loginChangeUserInfo) {
       GetUserinfo a;
       try {
-        a = new GetUserinfo(getVersion());
+        a = new GetUserinfo(getVersion(), responseFormat);
 
         performAction(a);
         ui = a;
@@ -308,18 +587,89 @@ public class MediaWikiBot implements WikiBot {
     return ui;
   }
 
+  /**
+   * 
+   * @return the page sizes for list queries, based on the rights of the current user
+   * @see QueryLimitPolicy
+   */
+  @Nonnull
+  public synchronized QueryLimitPolicy getQueryLimitPolicy() {
+    if (limitPolicy == null) {
+      limitPolicy = new QueryLimitPolicy(getUserinfo());
+    }
+    return limitPolicy;
+  }
+
+  /**
+   * 
+   * @param limitPolicy
+   *          to use for all following list queries of this bot; if null, a policy based on the
+   *          rights of the current user is created on demand
+   */
+  public synchronized void setQueryLimitPolicy(QueryLimitPolicy limitPolicy) {
+    this.limitPolicy = limitPolicy;
+    customLimitPolicy = limitPolicy != null;
+  }
+
+  /**
+   * @return the format requested by actions which support it, {@link ResponseFormat#XML} by
+   *         default
+   */
+  public ResponseFormat getResponseFormat() {
+    return responseFormat;
+  }
+
+  /**
+   * @param responseFormat
+   *          to request by all following actions which support it; the others request xml
+   * @throws NullPointerException
+   *           if the format is null
+   */
+  public void setResponseFormat(ResponseFormat responseFormat) {
+    this.responseFormat = Preconditions.checkNotNull(responseFormat, "responseFormat");
+  }
+
   /**
    * {@inheritDoc}
    */
   public void delete(String title) {
-    performAction(new PostDelete(this, title));
+    try {
+      performAction(new PostDelete(this, title));
+    } finally {
+      invalidateCache(title);
+    }
   }
 
   /**
    * deletes an article with a reason
    */
   public void delete(String title, String reason) {
-    performAction(new PostDelete(this, title, reason));
+    try {
+      performAction(new PostDelete(this, title, reason));
+    } finally {
+      invalidateCache(title);
+    }
+  }
+
+  /**
+   * Removes all cached reads of the title and forgets if it was missing, for changes which were
+   * not made by this bot, see {@link CacheInvalidator}. Synchronized with
+   * {@link #readData(String, int)}, so that a read which started before the change cannot put the
+   * old revision into the cache afterwards.
+   *
+   * @return true if the title was cached
+   */
+  public synchronized boolean invalidateCache(String title) {
+    missingTitles.invalidate(title);
+    CacheHandler cache = cacheHandler;
+    if (cache == null) {
+      return false;
+    }
+    if (cache.containsKey(title)) {
+      cache.remove(title);
+      return true;
+    }
+    return false;
   }
 
   public synchronized String performAction(ContentProcessable a) {
@@ -349,7 +699,7 @@ public class MediaWikiBot implements WikiBot {
   public Version getVersion() throws IllegalStateException {
     if (version == null || loginChangeVersion) {
       try {
-        GetVersion gs = new GetVersion();
+        GetVersion gs = new GetVersion(responseFormat);
         performAction(gs);
 
         version = gs.getVersion();
@@ -376,7 +726,7 @@ public class MediaWikiBot implements WikiBot {
 
     Siteinfo gs = null;
     try {
-      gs = new Siteinfo();
+      gs = new Siteinfo(responseFormat);
       performAction(gs);
     } catch (ProcessException e) {
       log.error("{}", e);
@@ -0,0 +1,340 @@
+package net.sourceforge.jwbf.mediawiki.contentRep;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.core.bots.util.TitleDictionary;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+
+/**
+ * A directed graph of links between pages. The pages are numbered from 0 to {@link #size()} - 1 and
+ * the links are stored in compressed sparse row form: the targets of page <code>i</code> are
+ * <code>targets[offsets[i]]</code> to <code>targets[offsets[i + 1] - 1]</code>, sorted and without
+ * duplicates. So a link needs four bytes, instead of a string in a list per page, and the titles
+ * are kept in a {@link TitleDictionary}.
+ *
+ * <pre>
+ * LinkGraph.Builder builder = new LinkGraph.Builder();
+ * new LinkGraphFetcher(bot).addLinks(builder, RedirectFilter.all, MediaWiki.NS_MAIN);
+ * LinkGraph graph = builder.build();
+ * double[] ranks = graph.pageRank(0.85, 20);
+ * </pre>
+ *
+ * Instances are immutable.
+ *
+ * @author Thomas Stock
+ * @see net.sourceforge.jwbf.mediawiki.actions.queries.LinkGraphFetcher
+ */
+public final class LinkGraph {
+
+  private static final int MAGIC = 0x4A4C4731; // "JLG1"
+
+  private final TitleDictionary titles;
+  private final int[] offsets;
+  private final int[] targets;
+  private volatile int[] inDegrees;
+
+  private LinkGraph(TitleDictionary titles, int[] offsets, int[] targets) {
+    this.titles = titles;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * @return number of pages
+   */
+  public int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * @return number of links
+   */
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * @return the id of the page or -1 if it is not part of this graph
+   */
+  public int getId(String title) {
+    return titles.getId(title);
+  }
+
+  public String getTitle(int id) {
+    return titles.getTitle(id);
+  }
+
+  /**
+   * @return number of links on the page
+   */
+  public int outDegree(int id) {
+    return offsets[id + 1] - offsets[id];
+  }
+
+  /**
+   * @return number of pages linking to the page
+   */
+  public int inDegree(int id) {
+    int[] degrees = inDegrees;
+    if (degrees == null) {
+      degrees = new int[size()];
+      for (int target : targets) {
+        degrees[target]++;
+      }
+      inDegrees = degrees;
+    }
+    return degrees[id];
+  }
+
+  /**
+   * @return ids of the pages linked by the page, sorted
+   */
+  public int[] successors(int id) {
+    return Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+  }
+
+  /**
+   * @return a graph of the same pages with reversed links, e.g. backlinks of forward links
+   */
+  public LinkGraph transpose() {
+    int n = size();
+    int[] reversedOffsets = new int[n + 1];
+    for (int target : targets) {
+      reversedOffsets[target + 1]++;
+    }
+    for (int i = 0; i < n; i++) {
+      reversedOffsets[i + 1] += reversedOffsets[i];
+    }
+    int[] reversedTargets = new int[targets.length];
+    int[] fill = Arrays.copyOf(reversedOffsets, n);
+    for (int source = 0; source < n; source++) {
+      for (int j = offsets[source]; j < offsets[source + 1]; j++) {
+        reversedTargets[fill[targets[j]]++] = source;
+      }
+    }
+    return new LinkGraph(titles, reversedOffsets, reversedTargets);
+  }
+
+  /**
+   * Computes the PageRank of all pages by power iteration. The rank of pages without links is
+   * distributed to all pages.
+   *
+   * @param damping
+   *          probability to follow a link, usually 0.85
+   * @param iterations
+   *          number of iterations, e.g. 20
+   * @return the ranks by page id, their sum is 1
+   */
+  public double[] pageRank(double damping, int iterations) {
+    int n = size();
+    double[] rank = new double[n];
+    if (n == 0) {
+      return rank;
+    }
+    Arrays.fill(rank, 1.0 / n);
+    double[] next = new double[n];
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      double dangling = 0;
+      Arrays.fill(next, 0);
+      for (int source = 0; source < n; source++) {
+        int degree = outDegree(source);
+        if (degree == 0) {
+          dangling += rank[source];
+          continue;
+        }
+        double share = rank[source] / degree;
+        for (int j = offsets[source]; j < offsets[source + 1]; j++) {
+          next[targets[j]] += share;
+        }
+      }
+      double base = (1 - damping + damping * dangling) / n;
+      for (int i = 0; i < n; i++) {
+        next[i] = base + damping * next[i];
+      }
+      double[] swap = rank;
+      rank = next;
+      next = swap;
+    }
+    return rank;
+  }
+
+  /**
+   * @param scores
+   *          by page id, e.g. of {@link #pageRank(double, int)}
+   * @param count
+   *          maximum number of titles
+   * @return the titles with the highest scores, highest first
+   */
+  public List<String> top(final double[] scores, int count) {
+    Integer[] order = new Integer[size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+
+      public int compare(Integer a, Integer b) {
+        return Double.compare(scores[b], scores[a]);
+      }
+    });
+    List<String> result = Lists.newArrayList();
+    for (int i = 0; i < Math.min(count, order.length); i++) {
+      result.add(titles.getTitle(order[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Writes this graph in a binary format, see {@link #load(File)}.
+   */
+  public void save(File file) {
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+          file)));
+      boolean threw = true;
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(size());
+        out.writeInt(targets.length);
+        for (int i = 0; i < size(); i++) {
+          out.writeUTF(titles.getTitle(i));
+        }
+        for (int offset : offsets) {
+          out.writeInt(offset);
+        }
+        for (int target : targets) {
+          out.writeInt(target);
+        }
+        threw = false;
+      } finally {
+        Closeables.close(out, threw);
+      }
+    } catch (IOException e) {
+      throw new JwbfException("could not save link graph to " + file, e);
+    }
+  }
+
+  /**
+   * @return a graph written by {@link #save(File)}
+   */
+  public static LinkGraph load(File file) {
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new JwbfException(file + " is no link graph");
+        }
+        int size = in.readInt();
+        TitleDictionary titles = new TitleDictionary(size, false);
+        int[] targets = new int[in.readInt()];
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+          titles.intern(in.readUTF());
+        }
+        for (int i = 0; i < offsets.length; i++) {
+          offsets[i] = in.readInt();
+        }
+        for (int i = 0; i < targets.length; i++) {
+          targets[i] = in.readInt();
+        }
+        return new LinkGraph(titles, offsets, targets);
+      } finally {
+        Closeables.close(in, true);
+      }
+    } catch (IOException e) {
+      throw new JwbfException("could not load link graph from " + file, e);
+    }
+  }
+
+  /**
+   * Collects links by title and numbers the titles in the order they are added. A builder builds
+   * one graph; it is not thread safe.
+   */
+  public static class Builder {
+
+    private final TitleDictionary titles = new TitleDictionary();
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private int edges = 0;
+    private boolean built = false;
+
+    /**
+     * Adds a page, which may have no links.
+     *
+     * @return the id of the page
+     */
+    public int addNode(String title) {
+      if (built) {
+        throw new IllegalStateException("graph is already built");
+      }
+      return titles.intern(title);
+    }
+
+    /**
+     * Adds a link; duplicates are removed by {@link #build()}.
+     */
+    public void addEdge(String from, String to) {
+      int source = addNode(from);
+      int target = addNode(to);
+      if (edges == sources.length) {
+        sources = Arrays.copyOf(sources, edges * 2);
+        targets = Arrays.copyOf(targets, edges * 2);
+      }
+      sources[edges] = source;
+      targets[edges] = target;
+      edges++;
+    }
+
+    /**
+     * @return number of pages added so far
+     */
+    public int size() {
+      return titles.size();
+    }
+
+    public LinkGraph build() {
+      built = true;
+      int n = titles.size();
+      int[] offsets = new int[n + 1];
+      for (int i = 0; i < edges; i++) {
+        offsets[sources[i] + 1]++;
+      }
+      for (int i = 0; i < n; i++) {
+        offsets[i + 1] += offsets[i];
+      }
+      int[] sorted = new int[edges];
+      int[] fill = Arrays.copyOf(offsets, n);
+      for (int i = 0; i < edges; i++) {
+        sorted[fill[sources[i]]++] = targets[i];
+      }
+      // sort each row and drop duplicates in place
+      int size = 0;
+      for (int source = 0; source < n; source++) {
+        int start = offsets[source];
+        int end = offsets[source + 1];
+        Arrays.sort(sorted, start, end);
+        offsets[source] = size;
+        for (int j = start; j < end; j++) {
+          if (j == start || sorted[j] != sorted[j - 1]) {
+            sorted[size++] = sorted[j];
+          }
+        }
+      }
+      offsets[n] = size;
+      return new LinkGraph(titles, offsets, Arrays.copyOf(sorted, size));
+    }
+  }
+
+}
@@ -4,6 +4,10 @@ public class LogItem {
   private String title;
   private String type;
   private String user;
+  private String action;
+  private String timestamp;
+  private String comment;
+  private long logId;
 
   public String getTitle() {
     return title;
@@ -29,6 +33,45 @@ public class LogItem {
     this.user = user;
   }
 
+  /**
+   * @return like "delete" or "restore" for the type {@link
+   *         net.sourceforge.jwbf.mediawiki.actions.queries.LogEvents#DELETE}
+   */
+  public String getAction() {
+    return action;
+  }
+
+  public void setAction(String action) {
+    this.action = action;
+  }
+
+  /**
+   * @return like "2013-04-01T12:00:00Z"
+   */
+  public String getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(String timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  public String getComment() {
+    return comment;
+  }
+
+  public void setComment(String comment) {
+    this.comment = comment;
+  }
+
+  public long getLogId() {
+    return logId;
+  }
+
+  public void setLogId(long logId) {
+    this.logId = logId;
+  }
+
   @Override
   public String toString() {
 
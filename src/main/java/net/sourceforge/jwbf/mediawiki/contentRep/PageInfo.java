@@ -0,0 +1,118 @@
+package net.sourceforge.jwbf.mediawiki.contentRep;
+
+/**
+ * An entry of <code>prop=info</code>.
+ *
+ * @author Thomas Stock
+ */
+public class PageInfo {
+
+  private String title;
+  private int namespace;
+  private long pageId;
+  private long lastRevisionId;
+  private String touched;
+  private int length;
+  private boolean redirect;
+  private boolean missing;
+  private String interwiki;
+
+  /**
+   * @return the normalized title
+   */
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public int getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(int namespace) {
+    this.namespace = namespace;
+  }
+
+  /**
+   * @return the page id, 0 if the page is missing
+   */
+  public long getPageId() {
+    return pageId;
+  }
+
+  public void setPageId(long pageId) {
+    this.pageId = pageId;
+  }
+
+  /**
+   * @return the id of the latest revision, 0 if the page is missing
+   */
+  public long getLastRevisionId() {
+    return lastRevisionId;
+  }
+
+  public void setLastRevisionId(long lastRevisionId) {
+    this.lastRevisionId = lastRevisionId;
+  }
+
+  /**
+   * @return like "2013-04-01T12:00:00Z", the last time the page or its rendering changed
+   */
+  public String getTouched() {
+    return touched;
+  }
+
+  public void setTouched(String touched) {
+    this.touched = touched;
+  }
+
+  /**
+   * @return the size of the latest revision in bytes
+   */
+  public int getLength() {
+    return length;
+  }
+
+  public void setLength(int length) {
+    this.length = length;
+  }
+
+  public boolean isRedirect() {
+    return redirect;
+  }
+
+  public void setRedirect(boolean redirect) {
+    this.redirect = redirect;
+  }
+
+  /**
+   * @return true if the page does not exist, the title is invalid or belongs to another wiki
+   */
+  public boolean isMissing() {
+    return missing;
+  }
+
+  public void setMissing(boolean missing) {
+    this.missing = missing;
+  }
+
+  /**
+   * @return the interwiki prefix, like "en", if the title belongs to another wiki; otherwise null
+   */
+  public String getInterwiki() {
+    return interwiki;
+  }
+
+  public void setInterwiki(String interwiki) {
+    this.interwiki = interwiki;
+  }
+
+  @Override
+  public String toString() {
+    return title + "@" + lastRevisionId;
+  }
+
+}
@@ -0,0 +1,141 @@
+package net.sourceforge.jwbf.mediawiki.contentRep;
+
+/**
+ * An entry of <code>list=recentchanges</code>.
+ *
+ * @author Thomas Stock
+ */
+public class RecentChange {
+
+  public static final String TYPE_EDIT = "edit";
+  public static final String TYPE_NEW = "new";
+  public static final String TYPE_LOG = "log";
+
+  private long rcId;
+  private long revId;
+  private long oldRevId;
+  private String type;
+  private int namespace;
+  private String title;
+  private String user;
+  private String comment;
+  private String timestamp;
+  private String logType;
+  private String logAction;
+  private String moveTarget;
+
+  public long getRcId() {
+    return rcId;
+  }
+
+  public void setRcId(long rcId) {
+    this.rcId = rcId;
+  }
+
+  public long getRevId() {
+    return revId;
+  }
+
+  public void setRevId(long revId) {
+    this.revId = revId;
+  }
+
+  public long getOldRevId() {
+    return oldRevId;
+  }
+
+  public void setOldRevId(long oldRevId) {
+    this.oldRevId = oldRevId;
+  }
+
+  /**
+   * @return like {@link #TYPE_EDIT}
+   */
+  public String getType() {
+    return type;
+  }
+
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  public int getNamespace() {
+    return namespace;
+  }
+
+  public void setNamespace(int namespace) {
+    this.namespace = namespace;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public void setUser(String user) {
+    this.user = user;
+  }
+
+  public String getComment() {
+    return comment;
+  }
+
+  public void setComment(String comment) {
+    this.comment = comment;
+  }
+
+  /**
+   * @return like "2013-04-01T12:00:00Z"
+   */
+  public String getTimestamp() {
+    return timestamp;
+  }
+
+  public void setTimestamp(String timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * @return like "delete" for {@link #TYPE_LOG}, otherwise null
+   */
+  public String getLogType() {
+    return logType;
+  }
+
+  public void setLogType(String logType) {
+    this.logType = logType;
+  }
+
+  public String getLogAction() {
+    return logAction;
+  }
+
+  public void setLogAction(String logAction) {
+    this.logAction = logAction;
+  }
+
+  /**
+   * @return the new title of a moved page, otherwise null
+   */
+  public String getMoveTarget() {
+    return moveTarget;
+  }
+
+  public void setMoveTarget(String moveTarget) {
+    this.moveTarget = moveTarget;
+  }
+
+  @Override
+  public String toString() {
+    return "* " + getTimestamp() + " " + getType() + " " + getTitle() + " by " + getUser() + " ("
+        + getRcId() + ")";
+  }
+
+}
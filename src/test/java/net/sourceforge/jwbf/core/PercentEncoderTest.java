@@ -0,0 +1,42 @@
+package net.sourceforge.jwbf.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URLEncoder;
+
+import org.junit.Test;
+
+public class PercentEncoderTest {
+
+  @Test
+  public void testUnreservedIsKept() {
+    String s = "Main_Page-1.2*";
+    assertSame(s, PercentEncoder.encode(s));
+  }
+
+  @Test
+  public void testSameAsUrlEncoder() throws Exception {
+    String[] texts = { "", " ", "a b+c&d=e", "content|timestamp|user", "\u00e4\u00f6\u00fc\u00df",
+        "\u20ac 100", "\ud83d\ude00 x", "lone \ud83d surrogate", "\ude00", "~!'()/:?#[]@$,;%" };
+    for (String text : texts) {
+      assertEquals(text, URLEncoder.encode(text, "UTF-8"), PercentEncoder.encode(text));
+      // second call is answered by the cache
+      assertEquals(text, URLEncoder.encode(text, "UTF-8"), PercentEncoder.encode(text));
+    }
+  }
+
+  @Test
+  public void testAllChars() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (char c = 1; c < Character.MIN_SURROGATE; c++) {
+      sb.append(c);
+    }
+    for (char c = (char) (Character.MAX_SURROGATE + 1); c != 0; c++) {
+      sb.append(c);
+    }
+    String text = sb.toString();
+    assertEquals(URLEncoder.encode(text, "UTF-8"), PercentEncoder.encode(text));
+  }
+
+}
@@ -0,0 +1,106 @@
+package net.sourceforge.jwbf.core;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+/**
+ * Compares the former request building with a multimap, {@link Joiner} and {@link URLEncoder} to
+ * {@link RequestBuilder} and {@link PercentEncoder} on a typical revision request. Run it with
+ * <code>java -cp ... RequestBuilderBenchmark [iterations]</code>; the allocated bytes are measured
+ * on HotSpot only.
+ */
+public class RequestBuilderBenchmark {
+
+  private static final String PATH = "/api.php";
+
+  public static void main(String[] args) throws Exception {
+    int iterations = 1000000;
+    if (args.length > 0) {
+      iterations = Integer.parseInt(args[0]);
+    }
+    String[] titles = new String[100];
+    for (int i = 0; i < titles.length; i++) {
+      titles[i] = "Some article " + i;
+    }
+    titles[0] = "K\u00f6ln";
+    for (int round = 0; round < 3; round++) {
+      measure("multimap", titles, iterations, false);
+      measure("builder", titles, iterations, true);
+    }
+  }
+
+  private static void measure(String name, String[] titles, int iterations, boolean builder)
+      throws UnsupportedEncodingException {
+    long bytes = allocatedBytes();
+    long start = System.nanoTime();
+    int length = 0;
+    for (int i = 0; i < iterations; i++) {
+      String title = titles[i % titles.length];
+      if (builder) {
+        length += new RequestBuilder(PATH) //
+            .param("action", "query") //
+            .param("format", "xml") //
+            .param("prop", "revisions") //
+            .param("titles", PercentEncoder.encode(title)) //
+            .param("rvprop", PercentEncoder.encode("content|timestamp|user")) //
+            .param("rvlimit", "1") //
+            .build().length();
+      } else {
+        length += new LegacyBuilder() //
+            .param("action", "query") //
+            .param("format", "xml") //
+            .param("prop", "revisions") //
+            .param("titles", URLEncoder.encode(title, "UTF-8")) //
+            .param("rvprop", URLEncoder.encode("content|timestamp|user", "UTF-8")) //
+            .param("rvlimit", "1") //
+            .build().length();
+      }
+    }
+    long nanos = (System.nanoTime() - start) / iterations;
+    bytes = (allocatedBytes() - bytes) / iterations;
+    System.out.println(name + ": " + nanos + " ns/request, " + bytes + " bytes/request ("
+        + length + ")");
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread
+          .currentThread().getId());
+    }
+    return 0;
+  }
+
+  /**
+   * The former implementation of {@link RequestBuilder}.
+   */
+  private static class LegacyBuilder {
+
+    private final Multimap<String, String> params = ArrayListMultimap.create();
+
+    LegacyBuilder param(String key, String value) {
+      if (!params.containsEntry(key, value)) {
+        params.put(key, value);
+      }
+      return this;
+    }
+
+    String build() {
+      List<String> values = Lists.newArrayList();
+      for (Entry<String, String> entry : params.entries()) {
+        values.add(entry.getKey() + "=" + entry.getValue());
+      }
+      return PATH + "?" + Joiner.on("&").join(values);
+    }
+  }
+
+}
@@ -29,4 +29,17 @@ public class RequestBuilderTest {
         .build());
   }
 
+  @Test
+  public void testKeepsOrder() {
+    RequestBuilder builder = new RequestBuilder("/api.php");
+    StringBuilder expected = new StringBuilder("/api.php?");
+    for (int i = 20; i > 0; i--) {
+      builder.param("p" + i, i);
+      expected.append("p").append(i).append("=").append(i).append("&");
+    }
+    builder.param("p1", 2);
+    expected.append("p1=2");
+    assertEquals(expected.toString(), builder.build());
+  }
+
 }
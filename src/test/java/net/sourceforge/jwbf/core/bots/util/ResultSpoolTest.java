@@ -0,0 +1,113 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+
+public class ResultSpoolTest {
+
+  private File dir;
+
+  @Before
+  public void before() {
+    dir = Files.createTempDir();
+  }
+
+  @After
+  public void after() throws IOException {
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void testReiterate() {
+    ResultSpool<String> spool = ResultSpool.ofStrings(new File(dir, "a"));
+    spool.addAll(ImmutableList.of("B", "A"));
+    assertEquals(ImmutableList.of("B", "A"), Lists.newArrayList(spool));
+    spool.add("C");
+    assertEquals(3, spool.size());
+    assertEquals(ImmutableList.of("B", "A", "C"), Lists.newArrayList(spool));
+    spool.close();
+    assertEquals(ImmutableList.of("B", "A", "C"), Lists.newArrayList(spool));
+  }
+
+  @Test
+  public void testExternalSort() {
+    ResultSpool<String> spool = ResultSpool.ofStrings(new File(dir, "a"));
+    List<String> expected = Lists.newArrayList();
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      String value = "T" + random.nextInt(500);
+      spool.add(value);
+      expected.add(value);
+    }
+    ResultSpool<String> sorted = spool.sort(Ordering.natural(), false, 64, new File(dir, "s"));
+    assertEquals(Ordering.natural().sortedCopy(expected), Lists.newArrayList(sorted));
+
+    ResultSpool<String> distinct = spool.sort(Ordering.natural(), true, 64, new File(dir, "d"));
+    assertTrue(distinct.isSorted(Ordering.<String> natural()));
+    assertEquals(ImmutableSortedSet.copyOf(expected).asList(), Lists.newArrayList(distinct));
+    assertEquals(3, dir.listFiles().length);
+  }
+
+  @Test
+  public void testDifference() {
+    ResultSpool<String> current = ResultSpool.ofStrings(new File(dir, "c"));
+    current.addAll(ImmutableList.of("A", "B", "D", "E"));
+    ResultSpool<String> last = ResultSpool.ofStrings(new File(dir, "l"));
+    last.addAll(ImmutableList.of("B", "C", "E"));
+    ResultSpool<String> created = current.difference(last, Ordering.natural(), new File(dir,
+        "created"));
+    assertEquals(ImmutableList.of("A", "D"), Lists.newArrayList(created));
+    ResultSpool<String> deleted = last.difference(current, Ordering.natural(), new File(dir,
+        "deleted"));
+    assertEquals(ImmutableList.of("C"), Lists.newArrayList(deleted));
+  }
+
+  @Test
+  public void testOpen() throws IOException {
+    File lastFile = new File(dir, "l");
+    ResultSpool<String> last = ResultSpool.ofStrings(lastFile);
+    last.addAll(ImmutableList.of("B", "C"));
+    last.close();
+    Files.append("\0\0", lastFile, Charsets.UTF_8);
+
+    last = ResultSpool.open(lastFile, ResultSpool.STRINGS);
+    assertEquals(2, last.size());
+    last.add("E");
+    last.close();
+
+    last = ResultSpool.open(lastFile, ResultSpool.STRINGS);
+    assertEquals(ImmutableList.of("B", "C", "E"), Lists.newArrayList(last));
+    ResultSpool<String> current = ResultSpool.ofStrings(new File(dir, "c"));
+    current.addAll(ImmutableList.of("A", "B", "D", "E"));
+    ResultSpool<String> created = current.difference(last, Ordering.natural(), new File(dir,
+        "created"));
+    assertEquals(ImmutableList.of("A", "D"), Lists.newArrayList(created));
+    assertEquals(0, ResultSpool.open(new File(dir, "new"), ResultSpool.STRINGS).size());
+
+    last.close();
+    // a negative length, followed by a record
+    Files.append("\u00ff\u00ff\u00ff\u00f0\0\0\0\3\0\1F", lastFile, Charsets.ISO_8859_1);
+    last = ResultSpool.open(lastFile, ResultSpool.STRINGS);
+    assertEquals(ImmutableList.of("B", "C", "E"), Lists.newArrayList(last));
+  }
+
+}
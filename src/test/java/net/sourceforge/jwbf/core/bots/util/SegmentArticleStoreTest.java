@@ -0,0 +1,155 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentArticleStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SegmentArticleStore store;
+
+  @Before
+  public void before() throws IOException {
+    store = open();
+  }
+
+  @After
+  public void after() {
+    store.close();
+  }
+
+  private SegmentArticleStore open() throws IOException {
+    return new SegmentArticleStore(folder.getRoot(), 4096);
+  }
+
+  private static SimpleArticle article(String title, String text) {
+    SimpleArticle article = new SimpleArticle(title);
+    article.setText(text);
+    article.setRevisionId("7");
+    article.setEditTimestamp(new Date(1365000000000L));
+    return article;
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    assertNull(store.get("A"));
+    store.put(article("A", "a"), 1);
+    store.put(article("A", "b"), 2);
+    ArticleStore.Entry entry = store.get("A");
+    assertEquals(article("A", "b"), entry.getArticle());
+    assertEquals(2, entry.getSavedAt());
+    store.remove("A");
+    assertNull(store.get("A"));
+    assertEquals(0, store.size());
+  }
+
+  /**
+   * @return text of the given length which does not shrink when compressed
+   */
+  private static String text(int length) {
+    Random random = new Random(length);
+    StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + random.nextInt(26)));
+    }
+    return text.toString();
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    for (int i = 0; i < 100; i++) {
+      store.put(article("T" + i, text(i * 10)), i);
+    }
+    store.remove("T5");
+    assertTrue(store.getSegmentCount() > 2);
+    store.close();
+
+    store = open();
+    assertEquals(99, store.size());
+    assertNull(store.get("T5"));
+    for (int i = 6; i < 100; i++) {
+      assertEquals(article("T" + i, text(i * 10)), store.get("T" + i).getArticle());
+    }
+  }
+
+  @Test
+  public void testCutsOffPartlyWrittenRecord() throws IOException {
+    store.put(article("A", "a"), 1);
+    store.put(article("B", "b"), 1);
+    store.close();
+    File[] segments = folder.getRoot().listFiles();
+    Arrays.sort(segments);
+    File last = segments[segments.length - 1];
+    RandomAccessFile file = new RandomAccessFile(last, "rw");
+    try {
+      file.setLength(file.length() - 3);
+    } finally {
+      file.close();
+    }
+
+    store = open();
+    assertNotNull(store.get("A"));
+    assertNull(store.get("B"));
+    store.put(article("B", "b"), 1);
+    assertNotNull(store.get("B"));
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    String text = text(500);
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 10; i++) {
+        store.put(article("T" + i, text + round), round);
+      }
+    }
+    store.put(article("Gone", "g"), 1);
+    store.remove("Gone");
+    store.compact();
+    // about 5 KiB of live articles in segments of 4 KiB, besides the tombstone
+    assertTrue(store.getSegmentCount() <= 4);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(text + 9, store.get("T" + i).getArticle().getText());
+    }
+    store.close();
+
+    store = open();
+    assertEquals(10, store.size());
+    assertNull(store.get("Gone"));
+    assertEquals(text + 9, store.get("T3").getArticle().getText());
+  }
+
+  @Test
+  public void testRemoveOlderThan() throws IOException {
+    store.put(article("A", "a"), 1);
+    store.put(article("B", "b"), 5);
+    store.removeOlderThan(3);
+    assertNull(store.get("A"));
+    assertNotNull(store.get("B"));
+    store.clear();
+    assertNull(store.get("B"));
+    store.close();
+
+    store = open();
+    assertEquals(0, store.size());
+  }
+
+}
@@ -0,0 +1,140 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+
+public class TieredCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private long nanos = TimeUnit.DAYS.toNanos(1000);
+
+  private final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos;
+    }
+  };
+
+  private TieredCache newCache(long maxEntries, long maxBytes) {
+    return new TieredCache(new FileArticleStore(folder.getRoot()), maxEntries, maxBytes, 1,
+        TimeUnit.HOURS, ticker);
+  }
+
+  private static SimpleArticle article(String title, String text) {
+    SimpleArticle article = new SimpleArticle(title);
+    article.setText(text);
+    article.setRevisionId("7");
+    article.setEditor("U");
+    article.setMinorEdit(true);
+    article.setEditTimestamp(new Date(1365000000000L));
+    return article;
+  }
+
+  @Test
+  public void testMemoryHit() {
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    cache.put(article("A", "a"));
+    SimpleArticle a = cache.get("A");
+    assertEquals(article("A", "a"), a);
+    a.setText("changed");
+    assertEquals("a", cache.get("A").getText());
+    assertEquals(2, cache.getStats().getMemoryHits());
+    assertEquals(0, cache.getStats().getStoreHits());
+  }
+
+  @Test
+  public void testMiss() {
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    assertFalse(cache.containsKey("A"));
+    assertEquals("A", cache.get("A").getTitle());
+    assertNull(cache.getIfPresent("A"));
+    assertEquals(3, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void testEvictedArticlesAreReadFromDisk() {
+    TieredCache cache = newCache(2, TieredCache.UNLIMITED);
+    for (int i = 0; i < 10; i++) {
+      cache.put(article("T" + i, "text " + i));
+    }
+    assertTrue(cache.getMemorySize() <= 2);
+    assertTrue(cache.getStats().getEvictions() >= 8);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(article("T" + i, "text " + i), cache.get("T" + i));
+    }
+    assertTrue(cache.getStats().getStoreHits() >= 8);
+  }
+
+  @Test
+  public void testBytesBound() {
+    TieredCache cache = newCache(100, 100 * 1000);
+    String text = Strings.repeat("x", 10 * 1000);
+    for (int i = 0; i < 20; i++) {
+      cache.put(article("T" + i, text));
+    }
+    assertTrue(cache.getMemorySize() <= 5);
+  }
+
+  @Test
+  public void testTimeToLive() {
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    cache.put(article("A", "a"));
+    nanos += TimeUnit.MINUTES.toNanos(59);
+    assertTrue(cache.containsKey("A"));
+    nanos += TimeUnit.MINUTES.toNanos(1);
+    assertFalse(cache.containsKey("A"));
+    assertEquals(1, cache.getStats().getExpirations());
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testDiskTierSurvives() {
+    newCache(10, TieredCache.UNLIMITED).put(article("A", "a\u00e4\n"));
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    SimpleArticle a = cache.get("A");
+    assertEquals(article("A", "a\u00e4\n"), a);
+    assertEquals("U", a.getEditor());
+    assertTrue(a.isMinorEdit());
+    assertEquals(1, cache.getStats().getStoreHits());
+  }
+
+  @Test
+  public void testCompressText() {
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    cache.setCompressText(true);
+    String text = Strings.repeat("[[Category:Sample]] ", 100);
+    cache.put(article("A", text));
+    assertEquals(article("A", text), cache.get("A"));
+    assertEquals(article("A", text), newCache(10, TieredCache.UNLIMITED).get("A"));
+  }
+
+  @Test
+  public void testRemoveAndCleanUp() {
+    TieredCache cache = newCache(10, TieredCache.UNLIMITED);
+    cache.put(article("A", "a"));
+    cache.put(article("B", "b"));
+    cache.remove("A");
+    assertFalse(cache.containsKey("A"));
+    assertEquals(1, folder.getRoot().list().length);
+    nanos += TimeUnit.HOURS.toNanos(2);
+    cache.cleanUp();
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+}
@@ -0,0 +1,124 @@
+package net.sourceforge.jwbf.core.bots.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class TitleDictionaryTest {
+
+  @Test
+  public void testInternAndLookup() {
+    TitleDictionary titles = new TitleDictionary(4, false);
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, titles.intern("Title " + i));
+    }
+    assertEquals(10000, titles.size());
+    assertEquals(42, titles.intern("Title 42"));
+    assertEquals(10000, titles.size());
+    assertEquals(9999, titles.getId("Title 9999"));
+    assertEquals(-1, titles.getId("Title 10000"));
+    assertEquals("Title 1234", titles.getTitle(1234));
+    assertTrue(titles.contains("Title 0"));
+    assertFalse(titles.add("Title 0"));
+    assertTrue(titles.add("Title X"));
+  }
+
+  @Test
+  public void testEncoding() {
+    TitleDictionary titles = new TitleDictionary(16, true);
+    String[] values = { "", "A", "\u00C4rger", "\u6F22\u5B57", "\uD83D\uDE00 smile",
+        "bad \uD800 surrogate", longTitle() };
+    for (String value : values) {
+      int id = titles.intern(value);
+      String expected = new String(value.getBytes(Charsets.UTF_8), Charsets.UTF_8);
+      assertEquals(expected, titles.getTitle(id));
+      assertEquals(id, titles.getId(value));
+    }
+    assertEquals(values.length, titles.size());
+  }
+
+  private static String longTitle() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      sb.append('x');
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testConcurrentLookups() throws Exception {
+    final TitleDictionary titles = new TitleDictionary(64, false);
+    for (int i = 0; i < 2000; i++) {
+      titles.intern("Title " + i + longTitle().substring(i % 300));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> misses = Lists.newArrayList();
+      for (int t = 0; t < 4; t++) {
+        misses.add(executor.submit(new Callable<Integer>() {
+
+          public Integer call() {
+            int missed = 0;
+            for (int round = 0; round < 20; round++) {
+              for (int i = 0; i < 2000; i++) {
+                if (titles.getId("Title " + i + longTitle().substring(i % 300)) != i) {
+                  missed++;
+                }
+              }
+            }
+            return missed;
+          }
+        }));
+      }
+      for (Future<Integer> missed : misses) {
+        assertEquals(0, missed.get().intValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testUnknownId() {
+    new TitleDictionary().getTitle(0);
+  }
+
+  @Test
+  public void testUnseen() {
+    TitleSet seen = new TitleDictionary();
+    assertEquals(ImmutableList.of("A", "B"),
+        Lists.newArrayList(TitleSets.unseen(ImmutableList.of("A", "B", "A"), seen)));
+    assertEquals(ImmutableList.of("C"),
+        Lists.newArrayList(TitleSets.unseen(ImmutableList.of("B", "C"), seen)));
+  }
+
+  @Test
+  public void testBloom() {
+    BloomTitleSet seen = new BloomTitleSet(1000, 0.01);
+    int duplicates = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (!seen.add("Title " + i)) {
+        duplicates++;
+      }
+    }
+    assertTrue(duplicates < 50);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(seen.contains("Title " + i));
+      assertFalse(seen.add("Title " + i));
+    }
+    assertEquals(1000 - duplicates, seen.size());
+  }
+
+}
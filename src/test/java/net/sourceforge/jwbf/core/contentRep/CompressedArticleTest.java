@@ -0,0 +1,82 @@
+package net.sourceforge.jwbf.core.contentRep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompressedArticleTest {
+
+  /**
+   * @return wikitext of an article with references, links and categories
+   */
+  static String wikitext() {
+    StringBuilder text = new StringBuilder();
+    text.append("{{Infobox settlement|name=Sample|image=Sample.jpg|caption=A view}}\n");
+    for (int i = 0; i < 40; i++) {
+      text.append("'''Sample''' is a [[town]] in the [[district ").append(i)
+          .append("]] of the [[region]].<ref>{{cite web|url=http://www.example.org/")
+          .append(i).append("|title=Population ").append(1900 + i)
+          .append("|accessdate=2013-04-01}}</ref> It was founded in ").append(1200 + i * 7)
+          .append(" and has a population of ").append(i * 1234).append(".\n\n");
+      if (i % 10 == 0) {
+        text.append("== History ").append(i / 10).append(" ==\n");
+      }
+    }
+    text.append("== References ==\n{{Reflist}}\n\n[[Category:Towns]]\n[[Category:Samples]]\n");
+    return text.toString();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (String text : Arrays.asList("", "short", wikitext(),
+        "\u00e4\u20ac\ud83d\ude00 " + wikitext())) {
+      assertEquals(text, TextCompressor.decompress(TextCompressor.compress(text)));
+    }
+    assertNull(TextCompressor.compress(null));
+    assertNull(TextCompressor.decompress(null));
+  }
+
+  @Test
+  public void testShrinksWikitext() {
+    String text = wikitext();
+    byte[] compressed = TextCompressor.compress(text);
+    assertTrue(TextCompressor.isDeflated(compressed));
+    assertTrue(compressed.length * 4 < text.length());
+    assertFalse(TextCompressor.isDeflated(TextCompressor.compress("short")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncated() {
+    byte[] compressed = TextCompressor.compress(wikitext());
+    TextCompressor.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+  }
+
+  @Test
+  public void testArticle() {
+    SimpleArticle plain = new SimpleArticle("A");
+    plain.setText(wikitext());
+    plain.setRevisionId("7");
+    plain.setEditor("U");
+
+    CompressedArticle compressed = new CompressedArticle(plain);
+    assertEquals(plain, compressed);
+    assertEquals(compressed, plain);
+    assertEquals(plain.hashCode(), compressed.hashCode());
+    assertEquals("U", compressed.getEditor());
+    assertTrue(compressed.getCompressedText().length * 4 < plain.getText().length());
+
+    CompressedArticle copy = new CompressedArticle(compressed);
+    assertTrue(copy.getCompressedText() == compressed.getCompressedText());
+    copy.addText("x");
+    assertEquals(wikitext() + "x", copy.getText());
+    assertEquals(wikitext(), new SimpleArticle(compressed).getText());
+
+    assertEquals("", new CompressedArticle("B").getText());
+  }
+
+}
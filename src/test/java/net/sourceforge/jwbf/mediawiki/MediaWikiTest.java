@@ -23,4 +23,11 @@ public class MediaWikiTest {
     // assertEquals(rawEncUft8, rawEncUtf16);
   }
 
+  @Test
+  public void testTimestamp() {
+    String timestamp = "2013-04-01T23:59:59Z";
+    assertEquals(1364860799000L, MediaWiki.parseTimestamp(timestamp).getTime());
+    assertEquals(timestamp, MediaWiki.formatTimestamp(MediaWiki.parseTimestamp(timestamp)));
+  }
+
 }
@@ -0,0 +1,78 @@
+package net.sourceforge.jwbf.mediawiki;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import net.sourceforge.jwbf.core.actions.ContentProcessable;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+
+/**
+ * Mocks a {@link MediaWikiBot} of {@link Version#MW1_20} which answers the actions it performs
+ * with canned pages instead of a wiki.
+ *
+ * <pre>
+ * MediaWikiBot bot = MockBots.answering(new Function&lt;String, String&gt;() {
+ *   public String apply(String request) {
+ *     return &quot;&lt;api&gt;&lt;query&gt;&lt;allpages /&gt;&lt;/query&gt;&lt;/api&gt;&quot;;
+ *   }
+ * });
+ * </pre>
+ */
+public final class MockBots {
+
+  private static final Function<HttpAction, String> REQUEST = new Function<HttpAction, String>() {
+
+    public String apply(HttpAction msg) {
+      return msg.getRequest();
+    }
+  };
+
+  private MockBots() {
+    // do nothing
+  }
+
+  /**
+   * @param pages
+   *          maps the request of each performed action to the page returned for it
+   */
+  public static MediaWikiBot answering(Function<String, String> pages) {
+    return answeringActions(Functions.compose(pages, REQUEST));
+  }
+
+  /**
+   * @param pages
+   *          maps each message of a performed action to the page returned for it, for tests which
+   *          look at more than the request, e.g. the parameters of a post
+   */
+  public static MediaWikiBot answeringActions(Function<HttpAction, String> pages) {
+    MediaWikiBot bot = mock(MediaWikiBot.class);
+    when(bot.getVersion()).thenReturn(Version.MW1_20);
+    when(bot.getQueryLimitPolicy()).thenReturn(new QueryLimitPolicy(false));
+    when(bot.getResponseFormat()).thenReturn(ResponseFormat.XML);
+    when(bot.performAction(any(ContentProcessable.class))).thenAnswer(answerActions(pages));
+    return bot;
+  }
+
+  private static Answer<String> answerActions(final Function<HttpAction, String> pages) {
+    return new Answer<String>() {
+
+      public String answer(InvocationOnMock invocation) {
+        MWAction action = (MWAction) invocation.getArguments()[0];
+        HttpAction msg = action.getNextMessage();
+        return action.processReturningText(pages.apply(msg), msg);
+      }
+    };
+  }
+}
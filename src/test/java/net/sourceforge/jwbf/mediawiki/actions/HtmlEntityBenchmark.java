@@ -0,0 +1,67 @@
+package net.sourceforge.jwbf.mediawiki.actions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares {@link HTMLEntities#unhtmlentities(String)} and
+ * {@link HTMLEntities#unhtmlQuotes(String)} with {@link HtmlEntityDecoder} on titles like those of
+ * a query result, where one in ten contains an entity. Run it with
+ * <code>java -cp ... HtmlEntityBenchmark [iterations]</code>; the allocated bytes are measured on
+ * HotSpot only.
+ */
+public class HtmlEntityBenchmark {
+
+  private static final int TITLES = 1000;
+
+  public static void main(String[] args) {
+    int iterations = 2000;
+    if (args.length > 0) {
+      iterations = Integer.parseInt(args[0]);
+    }
+    List<String> titles = Lists.newArrayList();
+    for (int i = 0; i < TITLES; i++) {
+      if (i % 10 == 0) {
+        titles.add("Caf&eacute; &amp; Restaurant &quot;" + i + "&quot;");
+      } else {
+        titles.add("Category:Some ordinary article title " + i);
+      }
+    }
+    for (int round = 0; round < 3; round++) {
+      measure("HTMLEntities", titles, iterations, false);
+      measure("HtmlEntityDecoder", titles, iterations, true);
+    }
+  }
+
+  private static void measure(String name, List<String> titles, int iterations, boolean decoder) {
+    long bytes = allocatedBytes();
+    long start = System.nanoTime();
+    int length = 0;
+    for (int i = 0; i < iterations; i++) {
+      for (String title : titles) {
+        if (decoder) {
+          length += HtmlEntityDecoder.decode(title).length();
+        } else {
+          length += HTMLEntities.unhtmlQuotes(HTMLEntities.unhtmlentities(title)).length();
+        }
+      }
+    }
+    long nanos = (System.nanoTime() - start) / iterations / TITLES;
+    bytes = (allocatedBytes() - bytes) / iterations / TITLES;
+    System.out.println(name + ": " + nanos + " ns/title, " + bytes + " bytes/title (" + length
+        + ")");
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread
+          .currentThread().getId());
+    }
+    return 0;
+  }
+
+}
@@ -0,0 +1,51 @@
+package net.sourceforge.jwbf.mediawiki.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class HtmlEntityDecoderTest {
+
+  @Test
+  public void testWithoutEntities() {
+    String title = "Main Page";
+    assertSame(title, MediaWiki.decode(title));
+  }
+
+  @Test
+  public void testNamedEntities() {
+    assertEquals("a & b \"c\" \u00e4\u00df \u03d1 \u2019",
+        MediaWiki.decode("a &amp; b &quot;c&quot; &auml;&szlig; &thetasym; &rsquo;"));
+  }
+
+  @Test
+  public void testNumericEntities() {
+    assertEquals("\u00e4\u00e4\u00e4 \ud83d\ude00",
+        MediaWiki.decode("&#228;&#xe4;&#XE4; &#x1F600;"));
+  }
+
+  @Test
+  public void testDecodesOnce() {
+    assertEquals("&quot; &amp;", MediaWiki.decode("&amp;quot; &amp;amp;"));
+  }
+
+  @Test
+  public void testKeepsUnknownEntities() {
+    String text = "& &; &unknown; &amp &#; &#x; &#12a; &#0; &#99999999; &lt; a&b";
+    assertEquals(text, MediaWiki.decode(text));
+  }
+
+  @Test
+  public void testSameAsHtmlEntities() {
+    for (Object[] entity : HTMLEntities.HTML_ENTITIES_TABLE) {
+      String name = (String) entity[0];
+      // the old implementation ignores entities longer than 8 chars
+      if (name.length() <= 8) {
+        String text = "x" + name + "y&#65;";
+        assertEquals(HTMLEntities.unhtmlentities(text), MediaWiki.decode(text));
+      }
+    }
+  }
+
+}
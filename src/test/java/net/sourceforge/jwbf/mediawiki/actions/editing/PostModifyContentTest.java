@@ -4,6 +4,7 @@ import static com.google.common.collect.ImmutableSet.of;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -13,9 +14,11 @@ import java.util.Map;
 import java.util.Set;
 
 import net.sourceforge.jwbf.core.actions.Post;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.core.contentRep.Userinfo;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
 import net.sourceforge.jwbf.mediawiki.actions.util.VersionException;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
@@ -105,6 +108,39 @@ public class PostModifyContentTest {
     return params;
   }
 
+  @Test
+  public void testNewRevision() {
+    when(userinfo.getRights()).thenReturn(rights);
+    HttpAction token = action.getNextMessage();
+    action.processReturningText("<api><query><pages><page title=\"Test\" "
+        + "edittoken=\"+\\\" /></pages></query></api>", token);
+    HttpAction edit = action.getNextMessage();
+    assertNull(action.getNewRevisionId());
+    action.processReturningText("<api><edit result=\"Success\" title=\"Test\" "
+        + "oldrevid=\"6\" newrevid=\"7\" newtimestamp=\"2013-04-01T12:00:00Z\" /></api>", edit);
+    assertEquals("7", action.getNewRevisionId());
+    assertEquals("Success", action.getResult());
+    assertEquals("+\\", action.getToken());
+    assertEquals("2013-04-01T12:00:00Z", action.getNewTimestamp());
+  }
+
+  @Test
+  public void testReusedToken() {
+    when(userinfo.getRights()).thenReturn(rights);
+    action = new PostModifyContent(bot, simpleArticle, "+\\");
+    Post edit = (Post) action.getNextMessage();
+    assertEquals("+\\", edit.getParams().get("token"));
+    assertFalse(action.hasMoreMessages());
+    try {
+      action.processReturningText("<api><error code=\"badtoken\" info=\"Invalid token\" /></api>",
+          edit);
+      fail();
+    } catch (ApiException e) {
+      assertEquals("badtoken", e.getCode());
+    }
+    assertNull(action.getResult());
+  }
+
   @Test
   public void testGetNextMessageFailConsumeMessages() {
     when(userinfo.getRights()).thenReturn(rights);
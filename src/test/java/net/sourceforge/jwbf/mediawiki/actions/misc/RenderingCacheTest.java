@@ -0,0 +1,88 @@
+package net.sourceforge.jwbf.mediawiki.actions.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sourceforge.jwbf.core.actions.Post;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class RenderingCacheTest {
+
+  private final List<HttpAction> requests = Lists.newArrayList();
+  private MediaWikiBot bot;
+
+  @Before
+  public void before() {
+    requests.clear();
+    bot = MockBots.answeringActions(new Function<HttpAction, String>() {
+
+      public String apply(HttpAction msg) {
+        synchronized (requests) {
+          requests.add(msg);
+        }
+        return "<api><parse><text xml:space=\"preserve\">&lt;p&gt;html&lt;/p&gt;\n"
+            + "&lt;!-- NewPP limit report --&gt;</text></parse></api>";
+      }
+    });
+  }
+
+  @Test
+  public void testRendersOnce() {
+    RenderingCache renderer = new RenderingCache(bot, 1000);
+    assertEquals("<p>html</p>", renderer.render("''a''"));
+    assertEquals("<p>html</p>", renderer.render("''a''"));
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0).getRequest().contains("title=API"));
+
+    renderer.render("''a''", "B");
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(1).getRequest().contains("title=B"));
+    assertEquals(1, renderer.stats().hitCount());
+  }
+
+  @Test
+  public void testPostsLongWikitext() {
+    RenderingCache renderer = new RenderingCache(bot, 1000);
+    String wikitext = Strings.repeat("x", GetRendering.MAX_GET_TEXT + 1);
+    renderer.render(wikitext);
+    Post post = (Post) requests.get(0);
+    assertEquals(wikitext, post.getParams().get("text"));
+  }
+
+  @Test
+  public void testRenderAll() {
+    RenderingCache renderer = new RenderingCache(bot, 1000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Map<String, String> html = renderer.renderAll(ImmutableList.of("a", "b", "a", "c"),
+          executor);
+      assertEquals(ImmutableList.of("a", "b", "c"), ImmutableList.copyOf(html.keySet()));
+      assertEquals(3, requests.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testStripReports() {
+    assertEquals("<p>a</p>", GetRendering.stripReports("<p>a</p>\n<!-- report -->\n<!-- b -->"));
+    assertEquals("<!-- own --><p>a</p>", GetRendering.stripReports("<!-- own --><p>a</p>"));
+    assertEquals("<p>a</p>", GetRendering.stripReports("<p>a</p>"));
+  }
+
+}
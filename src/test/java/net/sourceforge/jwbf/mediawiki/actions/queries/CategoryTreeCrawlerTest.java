@@ -0,0 +1,110 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.CategoryItem;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CategoryTreeCrawlerTest {
+
+  private static final Map<String, String> CATEGORIES = ImmutableMap.of( //
+      "Root", cm(1, 0, "A") + cm(10, 14, "Category:Sub") + cm(11, 14, "Category:Loop"), //
+      "Sub", cm(2, 0, "B") + cm(1, 0, "A") + cm(12, 14, "Category:Root"), //
+      "Loop", cm(3, 0, "C") + cm(13, 14, "Category:Deep"), //
+      "Deep", cm(4, 0, "D"));
+
+  private final List<String> requests = Collections.synchronizedList(Lists.<String> newArrayList());
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  private static String cm(int pageid, int ns, String title) {
+    return "<cm pageid=\"" + pageid + "\" ns=\"" + ns + "\" title=\"" + title + "\" />";
+  }
+
+  private MediaWikiBot newBot() {
+    return MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        String name = request.replaceAll(".*cmtitle=Category:([^&]*).*", "$1");
+        return "<api><query><categorymembers>" + CATEGORIES.get(name)
+            + "</categorymembers></query></api>";
+      }
+    });
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  private Set<String> crawl(int depth, int... namespaces) {
+    BotPool bots = new BotPool(newBot(), newBot());
+    Set<String> titles = Sets.newHashSet();
+    for (CategoryItem item : new CategoryTreeCrawler(bots, executor, "Root", depth, namespaces)) {
+      assertEquals("returned twice: " + item, true, titles.add(item.getTitle()));
+    }
+    return titles;
+  }
+
+  @Test
+  public void testWholeTreeWithCycle() {
+    Set<String> titles = crawl(CategoryTreeCrawler.UNLIMITED);
+    assertEquals(ImmutableSet.of("A", "B", "C", "D", "Category:Sub", "Category:Loop",
+        "Category:Deep", "Category:Root"), titles);
+    assertEquals(4, requests.size());
+  }
+
+  @Test
+  public void testDepthAndNamespace() {
+    Set<String> titles = crawl(1, MediaWiki.NS_MAIN);
+    assertEquals(ImmutableSet.of("A", "B", "C"), titles);
+    assertEquals(3, requests.size());
+    for (String request : requests) {
+      assertEquals(true, request.contains("cmnamespace=0%7C14"));
+    }
+  }
+
+  @Test
+  public void testAbandonedCrawl() throws Exception {
+    CategoryTreeCrawler crawler = new CategoryTreeCrawler(new BotPool(newBot(), newBot()),
+        executor, "Root", CategoryTreeCrawler.UNLIMITED);
+    crawler.setCapacity(1);
+    for (CategoryItem item : crawler) {
+      assertTrue(item.getTitle().length() > 0);
+      break;
+    }
+    executor.shutdown();
+    for (int i = 0; i < 50 && !executor.isTerminated(); i++) {
+      System.gc();
+      executor.awaitTermination(100, TimeUnit.MILLISECONDS);
+    }
+    assertTrue(executor.isTerminated());
+  }
+
+  @Test
+  public void testCategoryName() {
+    assertEquals("Physik", CategoryTreeCrawler.toCategoryName("Kategorie:Physik"));
+  }
+
+}
@@ -0,0 +1,86 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class CompositeTitleQueryTest {
+
+  private static final String FIRST = "<api><query>" //
+      + "<backlinks><bl pageid=\"1\" ns=\"0\" title=\"Link A\" /></backlinks>" //
+      + "<embeddedin><ei pageid=\"2\" ns=\"0\" title=\"Use A\" /></embeddedin>" //
+      + "</query><query-continue><backlinks blcontinue=\"0|5\" /></query-continue></api>";
+  private static final String SECOND = "<api><query>" //
+      + "<backlinks><bl pageid=\"5\" ns=\"0\" title=\"Link B\" /></backlinks>" //
+      + "</query></api>";
+
+  private MediaWikiBot bot;
+  private QueryLimitPolicy policy;
+  private final List<String> requests = Lists.newArrayList();
+
+  @Before
+  public void before() {
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("blcontinue")) {
+          return SECOND;
+        }
+        return FIRST;
+      }
+    });
+    policy = spy(new QueryLimitPolicy(false));
+    when(bot.getQueryLimitPolicy()).thenReturn(policy);
+  }
+
+  @Test
+  public void testDemultiplex() {
+    CompositeTitleQuery query = new CompositeTitleQuery(bot, "Template:A",
+        ListModule.BACKLINKS, ListModule.EMBEDDEDIN);
+    assertEquals(ImmutableList.of("Use A"),
+        Lists.newArrayList(query.titles(ListModule.EMBEDDEDIN)));
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0).contains("list=backlinks%7Cembeddedin"));
+
+    assertEquals(ImmutableList.of("Link A", "Link B"),
+        Lists.newArrayList(query.titles(ListModule.BACKLINKS)));
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(1).contains("list=backlinks&"));
+    assertFalse(requests.get(1).contains("embeddedin"));
+  }
+
+  @Test
+  public void testRecordsShareOfResponse() {
+    CompositeTitleQuery query = new CompositeTitleQuery(bot, "Template:A",
+        ListModule.BACKLINKS, ListModule.EMBEDDEDIN);
+    Lists.newArrayList(query.titles(ListModule.EMBEDDEDIN));
+    int half = (int) Math.round(FIRST.length() / 2.0);
+    verify(policy).record(eq("backlinks"), anyInt(), anyLong(), eq(half));
+    verify(policy).record(eq("embeddedin"), anyInt(), anyLong(), eq(half));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownModule() {
+    new CompositeTitleQuery(bot, "A", ListModule.BACKLINKS).titles(ListModule.IMAGEUSAGE);
+  }
+}
@@ -0,0 +1,118 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.QueryLimitPolicy;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+public class GeneratorQueryTest {
+
+  private static final String PAGE_ONE = "<api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"A &amp; B\" lastrevid=\"11\">" //
+      + "<revisions><rev revid=\"11\" user=\"Bob\" timestamp=\"2013-04-01T10:00:00Z\" " //
+      + "comment=\"first\" minor=\"\" xml:space=\"preserve\">Text A</rev></revisions></page>" //
+      + "</pages></query>" //
+      + "<query-continue><allpages gapcontinue=\"C &amp; D\" /></query-continue></api>";
+  private static final String PAGE_TWO = "<api><query><pages>" //
+      + "<page pageid=\"3\" ns=\"0\" title=\"C &amp; D\" lastrevid=\"33\">" //
+      + "<revisions><rev revid=\"33\" user=\"Ann\" timestamp=\"2013-04-02T10:00:00Z\" " //
+      + "comment=\"\" xml:space=\"preserve\">Text C</rev></revisions></page>" //
+      + "<page ns=\"0\" title=\"Gone\" missing=\"\" />" //
+      + "</pages></query></api>";
+
+  private static final String SPLIT_ONE = "<api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"A\" lastrevid=\"11\">" //
+      + "<revisions><rev revid=\"11\" xml:space=\"preserve\">Text A</rev></revisions></page>" //
+      + "<page pageid=\"2\" ns=\"0\" title=\"B\" lastrevid=\"22\" />" //
+      + "</pages></query><query-continue><revisions rvcontinue=\"22\" />" //
+      + "<allpages gapcontinue=\"C\" /></query-continue></api>";
+  private static final String SPLIT_TWO = "<api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"A\" lastrevid=\"11\" />" //
+      + "<page pageid=\"2\" ns=\"0\" title=\"B\" lastrevid=\"22\">" //
+      + "<revisions><rev revid=\"22\" xml:space=\"preserve\">Text B</rev></revisions></page>" //
+      + "</pages></query><query-continue><allpages gapcontinue=\"C\" /></query-continue></api>";
+
+  private MediaWikiBot bot;
+  private final List<String> requests = Lists.newArrayList();
+
+  @Before
+  public void before() {
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("gapcontinue=")) {
+          return PAGE_TWO;
+        }
+        return PAGE_ONE;
+      }
+    });
+  }
+
+  @Test
+  public void testAllPages() {
+    List<SimpleArticle> articles = Lists.newArrayList(GeneratorQuery.allPages(bot,
+        RedirectFilter.nonredirects, MediaWiki.NS_MAIN).iterator());
+
+    assertEquals(2, articles.size());
+    SimpleArticle a = articles.get(0);
+    assertEquals("A & B", a.getTitle());
+    assertEquals("Text A", a.getText());
+    assertEquals("11", a.getRevisionId());
+    assertEquals("Bob", a.getEditor());
+    assertEquals("first", a.getEditSummary());
+    assertTrue(a.isMinorEdit());
+    assertFalse(articles.get(1).isMinorEdit());
+    assertEquals("Text C", articles.get(1).getText());
+
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(0).contains("generator=allpages"));
+    assertTrue(requests.get(0).contains("gaplimit=" + QueryLimitPolicy.MAX_CONTENT_LIMIT));
+    assertTrue(requests.get(0).contains("gapfilterredir=nonredirects"));
+    assertFalse(requests.get(0).contains("gapprefix"));
+    assertTrue(requests.get(1).contains("gapcontinue=" + MediaWiki.encode("C & D")));
+  }
+
+  @Test
+  public void testFollowsRevisionContinuation() {
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("rvcontinue=22")) {
+          return SPLIT_TWO;
+        } else if (request.contains("gapcontinue=C")) {
+          return PAGE_TWO;
+        }
+        return SPLIT_ONE;
+      }
+    });
+    List<SimpleArticle> articles = Lists.newArrayList(GeneratorQuery.allPages(bot,
+        RedirectFilter.all).iterator());
+
+    assertEquals(3, articles.size());
+    assertEquals("Text A", articles.get(0).getText());
+    assertEquals("B", articles.get(1).getTitle());
+    assertEquals("Text B", articles.get(1).getText());
+    assertEquals("22", articles.get(1).getRevisionId());
+    assertEquals("Text C", articles.get(2).getText());
+    assertEquals(3, requests.size());
+    assertFalse(requests.get(1).contains("gapcontinue"));
+    assertTrue(requests.get(2).contains("gapcontinue=C"));
+    assertFalse(requests.get(2).contains("rvcontinue"));
+  }
+}
@@ -0,0 +1,61 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import net.sourceforge.jwbf.core.actions.Post;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.contentRep.PageInfo;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class GetPageInfoTest {
+
+  @Test
+  public void testBatches() {
+    GetPageInfo action = new GetPageInfo(ImmutableList.of("A", "b", "C", "A"), 2);
+
+    assertTrue(action.hasMoreMessages());
+    HttpAction first = action.getNextMessage();
+    assertTrue(first.getRequest().contains("prop=info"));
+    assertEquals("A|b", ((Post) first).getParams().get("titles"));
+    action.processReturningText("<api><query><normalized><n from=\"b\" to=\"B\" /></normalized>"
+        + "<pages><page pageid=\"1\" ns=\"0\" title=\"A\" touched=\"2013-04-01T12:00:00Z\" "
+        + "lastrevid=\"11\" length=\"5\" redirect=\"\" />"
+        + "<page pageid=\"2\" ns=\"0\" title=\"B\" lastrevid=\"22\" length=\"7\" />"
+        + "</pages></query></api>", first);
+
+    assertTrue(action.hasMoreMessages());
+    HttpAction second = action.getNextMessage();
+    assertEquals("C", ((Post) second).getParams().get("titles"));
+    action.processReturningText("<api><query><pages>"
+        + "<page ns=\"0\" title=\"C\" missing=\"\" /></pages></query></api>", second);
+    assertFalse(action.hasMoreMessages());
+
+    Map<String, PageInfo> infos = action.getPageInfos();
+    assertEquals(Lists.newArrayList("A", "b", "C"), Lists.newArrayList(infos.keySet()));
+    PageInfo a = infos.get("A");
+    assertEquals(1, a.getPageId());
+    assertEquals(11, a.getLastRevisionId());
+    assertEquals("2013-04-01T12:00:00Z", a.getTouched());
+    assertEquals(5, a.getLength());
+    assertTrue(a.isRedirect());
+    assertFalse(a.isMissing());
+    assertEquals("B", infos.get("b").getTitle());
+    assertEquals(22, infos.get("b").getLastRevisionId());
+    assertTrue(infos.get("C").isMissing());
+    assertEquals(0, infos.get("C").getLastRevisionId());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchSize() {
+    new GetPageInfo(ImmutableList.of("A"), GetPageInfo.MAX_TITLES_HIGH + 1);
+  }
+
+}
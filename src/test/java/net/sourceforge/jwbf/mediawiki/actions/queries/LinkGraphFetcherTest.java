@@ -0,0 +1,70 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.LinkGraph;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+public class LinkGraphFetcherTest {
+
+  /** links of A are split, the generator continues after them. */
+  private static final String FIRST = "<api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"A\"><links><pl ns=\"0\" title=\"B\" /></links></page>"
+      + "<page pageid=\"2\" ns=\"0\" title=\"B\" />" //
+      + "</pages></query><query-continue><links plcontinue=\"1|0|C\" />" //
+      + "<allpages gapcontinue=\"C\" /></query-continue></api>";
+  private static final String SECOND = "<api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"A\"><links><pl ns=\"0\" title=\"C\" /></links></page>"
+      + "<page pageid=\"2\" ns=\"0\" title=\"B\" />" //
+      + "</pages></query><query-continue>" //
+      + "<allpages gapcontinue=\"C\" /></query-continue></api>";
+  private static final String THIRD = "<api><query><pages>" //
+      + "<page pageid=\"3\" ns=\"0\" title=\"C\"><links><pl ns=\"0\" title=\"A\" /></links></page>"
+      + "</pages></query></api>";
+
+  private final List<String> requests = Lists.newArrayList();
+
+  @Test
+  public void testLinksOfAllPages() {
+    MediaWikiBot bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("plcontinue=")) {
+          return SECOND;
+        } else if (request.contains("gapcontinue=C")) {
+          return THIRD;
+        }
+        return FIRST;
+      }
+    });
+
+    LinkGraph.Builder builder = new LinkGraph.Builder();
+    new LinkGraphFetcher(bot).addLinks(builder, RedirectFilter.nonredirects, MediaWiki.NS_MAIN);
+    LinkGraph graph = builder.build();
+
+    assertEquals(3, requests.size());
+    assertTrue(requests.get(0).contains("generator=allpages"));
+    assertTrue(requests.get(1).contains("plcontinue=1%7C0%7CC"));
+    assertEquals(false, requests.get(1).contains("gapcontinue"));
+    assertTrue(requests.get(2).contains("gapcontinue=C"));
+    assertEquals(3, graph.size());
+    assertEquals(3, graph.edgeCount());
+    assertArrayEquals(new int[] { graph.getId("B"), graph.getId("C") },
+        graph.successors(graph.getId("A")));
+    assertEquals(1, graph.inDegree(graph.getId("A")));
+  }
+
+}
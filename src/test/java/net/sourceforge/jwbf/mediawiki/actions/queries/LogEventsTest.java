@@ -0,0 +1,189 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.ResponseFormat;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.LogItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class LogEventsTest {
+
+  private static final String FIRST = "<api><query><logevents>" //
+      + "<item logid=\"3\" title=\"C\" type=\"delete\" action=\"delete\" user=\"U\" " //
+      + "timestamp=\"2013-04-03T00:00:00Z\" comment=\"x\" />" //
+      + "<item logid=\"2\" title=\"B\" type=\"delete\" action=\"delete\" user=\"U\" " //
+      + "timestamp=\"2013-04-02T00:00:00Z\" comment=\"\" />" //
+      + "</logevents></query><query-continue>" //
+      + "<logevents lestart=\"2013-04-02T00:00:00Z\" /></query-continue></api>";
+  private static final String SECOND = "<api><query><logevents>" //
+      + "<item logid=\"2\" title=\"B\" type=\"delete\" action=\"delete\" user=\"U\" " //
+      + "timestamp=\"2013-04-02T00:00:00Z\" comment=\"\" />" //
+      + "<item logid=\"1\" title=\"A\" type=\"delete\" action=\"restore\" user=\"U\" " //
+      + "timestamp=\"2013-04-01T00:00:00Z\" comment=\"\" />" //
+      + "</logevents></query></api>";
+  private static final String FIRST_JSON = "{\"query\":{\"logevents\":[" //
+      + "{\"logid\":3,\"title\":\"C\",\"type\":\"delete\",\"action\":\"delete\"," //
+      + "\"user\":\"U\",\"timestamp\":\"2013-04-03T00:00:00Z\",\"comment\":\"x\"}," //
+      + "{\"logid\":2,\"title\":\"B\",\"type\":\"delete\",\"action\":\"delete\"," //
+      + "\"user\":\"U\",\"timestamp\":\"2013-04-02T00:00:00Z\",\"comment\":\"\"}]}," //
+      + "\"query-continue\":{\"logevents\":{\"lestart\":\"2013-04-02T00:00:00Z\"}}}";
+  private static final String SECOND_JSON = "{\"query\":{\"logevents\":[" //
+      + "{\"logid\":2,\"title\":\"B\",\"type\":\"delete\",\"action\":\"delete\"," //
+      + "\"user\":\"U\",\"timestamp\":\"2013-04-02T00:00:00Z\",\"comment\":\"\"}," //
+      + "{\"logid\":1,\"title\":\"A\",\"type\":\"delete\",\"action\":\"restore\"," //
+      + "\"user\":\"U\",\"timestamp\":\"2013-04-01T00:00:00Z\",\"comment\":\"\"}]}}";
+
+  private final List<String> requests = Collections.synchronizedList(Lists.<String> newArrayList());
+
+  private MediaWikiBot newBot() {
+    return newBot(ResponseFormat.XML);
+  }
+
+  private MediaWikiBot newBot(final ResponseFormat format) {
+    MediaWikiBot bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        boolean second = request.contains("lestart=2013-04-02");
+        if (format == ResponseFormat.JSON) {
+          return second ? SECOND_JSON : FIRST_JSON;
+        }
+        return second ? SECOND : FIRST;
+      }
+    });
+    when(bot.getResponseFormat()).thenReturn(format);
+    return bot;
+  }
+
+  @Before
+  public void before() {
+    requests.clear();
+  }
+
+  @Test
+  public void testContinueWithoutDuplicates() {
+    List<LogItem> items = Lists.newArrayList(new LogEvents(newBot(), LogEvents.DELETE)
+        .iterator());
+    assertEquals(3, items.size());
+    assertEquals("C", items.get(0).getTitle());
+    assertEquals(3, items.get(0).getLogId());
+    assertEquals("2013-04-03T00:00:00Z", items.get(0).getTimestamp());
+    assertEquals("x", items.get(0).getComment());
+    assertEquals("A", items.get(2).getTitle());
+    assertEquals("restore", items.get(2).getAction());
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(1).contains("lestart=2013-04-02T00%3A00%3A00Z"));
+  }
+
+  @Test
+  public void testContinueJson() {
+    List<LogItem> items = Lists.newArrayList(new LogEvents(newBot(ResponseFormat.JSON),
+        LogEvents.DELETE).iterator());
+    assertEquals(3, items.size());
+    assertEquals("C", items.get(0).getTitle());
+    assertEquals(3, items.get(0).getLogId());
+    assertEquals("x", items.get(0).getComment());
+    assertEquals("restore", items.get(2).getAction());
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(0).contains("format=json"));
+    assertTrue(requests.get(1).contains("lestart=2013-04-02T00%3A00%3A00Z"));
+  }
+
+  @Test
+  public void testResumeWithoutDuplicates() {
+    LogEvents events = new LogEvents(newBot(), LogEvents.DELETE);
+    Iterator<LogItem> iterator = events.iterator();
+    iterator.next();
+    iterator.next();
+    QueryCursor cursor = ((LogEvents) iterator).getCursor();
+    assertTrue(cursor.getContinuation(), cursor.getContinuation().contains("lestart="));
+
+    LogEvents resumed = new LogEvents(newBot(), LogEvents.DELETE);
+    resumed.resumeFrom(cursor);
+    List<LogItem> items = Lists.newArrayList(resumed.iterator());
+    assertEquals(1, items.size());
+    assertEquals("A", items.get(0).getTitle());
+    assertTrue(requests.get(1).contains("lestart=2013-04-02T00%3A00%3A00Z"));
+    assertFalse(requests.get(1).contains("lastids"));
+  }
+
+  @Test
+  public void testPageOfOneTimestamp() {
+    final String sameSecond = "<api><query><logevents>" //
+        + "<item logid=\"3\" title=\"C\" type=\"delete\" timestamp=\"2013-04-02T00:00:00Z\" />" //
+        + "<item logid=\"2\" title=\"B\" type=\"delete\" timestamp=\"2013-04-02T00:00:00Z\" />" //
+        + "</logevents></query><query-continue>" //
+        + "<logevents lestart=\"2013-04-02T00:00:00Z\" /></query-continue></api>";
+    final String older = "<api><query><logevents>" //
+        + "<item logid=\"1\" title=\"A\" type=\"delete\" timestamp=\"2013-04-01T00:00:00Z\" />" //
+        + "</logevents></query></api>";
+    MediaWikiBot bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("lestart=2013-04-01T23%3A59%3A59Z")) {
+          return older;
+        }
+        return sameSecond;
+      }
+    });
+    List<LogItem> items = Lists.newArrayList(new LogEvents(bot, 2, LogEvents.DELETE).iterator());
+    assertEquals(3, items.size());
+    assertEquals("A", items.get(2).getTitle());
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void testWindow() {
+    LogEvents events = new LogEvents(newBot(), MediaWiki.parseTimestamp("2013-04-01T00:00:00Z"),
+        MediaWiki.parseTimestamp("2013-04-04T00:00:00Z"), true, LogEvents.DELETE);
+    events.setLimit(2);
+    events.iterator().hasNext();
+    String request = requests.get(0);
+    assertTrue(request, request.contains("ledir=newer"));
+    assertTrue(request, request.contains("lestart=2013-04-01T00%3A00%3A00Z"));
+    assertTrue(request, request.contains("leend=2013-04-04T00%3A00%3A00Z"));
+  }
+
+  @Test
+  public void testSlices() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Iterable<LogItem> sliced = LogEvents.sliced(new BotPool(newBot(), newBot()), executor,
+          MediaWiki.parseTimestamp("2013-04-01T00:00:00Z"),
+          MediaWiki.parseTimestamp("2013-04-04T23:59:59Z"), 4, true, LogEvents.DELETE);
+      Lists.newArrayList(sliced);
+    } finally {
+      executor.shutdownNow();
+    }
+    Set<String> starts = Sets.newTreeSet();
+    for (String request : requests) {
+      starts.add(request.replaceAll(".*lestart=([^&]*).*", "$1"));
+    }
+    assertEquals(ImmutableList.of("2013-04-01T00%3A00%3A00Z", "2013-04-02T00%3A00%3A00Z",
+        "2013-04-03T00%3A00%3A00Z", "2013-04-04T00%3A00%3A00Z"), Lists.newArrayList(starts));
+    assertTrue(requests.toString(), requests.toString().contains(
+        "leend=2013-04-01T23%3A59%3A59Z"));
+  }
+}
@@ -0,0 +1,92 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
+import net.sourceforge.jwbf.mediawiki.bots.BotPool;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PartitionedAllPageTitlesTest {
+
+  private static final List<String> TITLES = ImmutableList.of("1990", "Apple", "Banana",
+      "Cherry", "Date", "Fig", "Grape", "Zucchini", "\u00C4pfel");
+
+  private ExecutorService executor;
+  private BotPool bots;
+
+  @Before
+  public void before() {
+    executor = Executors.newFixedThreadPool(2);
+    bots = new BotPool(newBot(), newBot());
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  private static MediaWikiBot newBot() {
+    return MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        String from = param(request, "apfrom");
+        String to = param(request, "apto");
+        StringBuilder page = new StringBuilder("<api><query><allpages>");
+        for (String title : TITLES) {
+          if ((from == null || title.compareTo(from) >= 0)
+              && (to == null || title.compareTo(to) <= 0)) {
+            page.append("<p pageid=\"1\" ns=\"0\" title=\"" + title + "\" />");
+          }
+        }
+        page.append("</allpages></query></api>");
+        return page.toString();
+      }
+    });
+  }
+
+  private static String param(String request, String name) {
+    Matcher m = Pattern.compile("[?&]" + name + "=([^&]*)").matcher(request);
+    if (m.find()) {
+      try {
+        return URLDecoder.decode(m.group(1), MediaWiki.getCharset());
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testAlphabetSplits() {
+    List<String> result = Lists.newArrayList(new PartitionedAllPageTitles(bots, executor,
+        PartitionedAllPageTitles.alphabetSplits(), true, RedirectFilter.all, MediaWiki.NS_MAIN));
+    assertEquals(TITLES, result);
+  }
+
+  @Test
+  public void testSampleSplits() {
+    List<String> splits = PartitionedAllPageTitles.sampleSplits(TITLES, 3);
+    assertEquals(ImmutableList.of("Cherry", "Grape"), splits);
+    List<String> result = Lists.newArrayList(new PartitionedAllPageTitles(bots, executor,
+        splits, true, RedirectFilter.all, MediaWiki.NS_MAIN));
+    assertEquals(TITLES, result);
+  }
+}
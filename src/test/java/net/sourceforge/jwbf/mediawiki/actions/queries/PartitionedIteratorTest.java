@@ -0,0 +1,123 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+
+public class PartitionedIteratorTest {
+
+  private ExecutorService executor;
+  private List<List<Integer>> partitions;
+
+  @Before
+  public void before() {
+    executor = Executors.newFixedThreadPool(3);
+    partitions = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      partitions.add(Lists.newArrayList(ContiguousSet.create(Range.closedOpen(i * 100,
+          i * 100 + 100), DiscreteDomain.integers())));
+    }
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testOrdered() {
+    List<Integer> result = Lists.newArrayList(new PartitionedIterator<Integer>(partitions,
+        executor, true, 7));
+    assertEquals(Lists.newArrayList(ContiguousSet.create(Range.closedOpen(0, 500),
+        DiscreteDomain.integers())), result);
+  }
+
+  @Test
+  public void testUnordered() {
+    List<Integer> result = Lists.newArrayList(new PartitionedIterator<Integer>(partitions,
+        executor, false, 7));
+    assertEquals(500, result.size());
+    Collections.sort(result);
+    assertEquals(Integer.valueOf(499), result.get(499));
+  }
+
+  @Test
+  public void testFailure() {
+    Iterable<Integer> failing = new Iterable<Integer>() {
+
+      public Iterator<Integer> iterator() {
+        throw new IllegalStateException("fail");
+      }
+    };
+    List<Iterable<Integer>> withFailure = ImmutableList.<Iterable<Integer>> of(
+        partitions.get(0), failing);
+    try {
+      Lists.newArrayList(new PartitionedIterator<Integer>(withFailure, executor, true));
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("fail", e.getMessage());
+    }
+  }
+
+  private static List<Iterable<Integer>> endless(int count) {
+    List<Iterable<Integer>> endless = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      endless.add(Iterables.cycle(i));
+    }
+    return endless;
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    PartitionedIterator<Integer> it = new PartitionedIterator<Integer>(endless(3), executor,
+        false, 2);
+    it.next();
+    it.close();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testAbandon() throws Exception {
+    for (Integer i : Iterables.limit(new Partitioned(endless(3)), 5)) {
+      assertEquals(0, i.intValue());
+    }
+    executor.shutdown();
+    for (int i = 0; i < 50 && !executor.isTerminated(); i++) {
+      System.gc();
+      executor.awaitTermination(100, TimeUnit.MILLISECONDS);
+    }
+    assertTrue(executor.isTerminated());
+  }
+
+  private class Partitioned implements Iterable<Integer> {
+
+    private final List<Iterable<Integer>> partitions;
+
+    Partitioned(List<Iterable<Integer>> partitions) {
+      this.partitions = partitions;
+    }
+
+    public Iterator<Integer> iterator() {
+      return new PartitionedIterator<Integer>(partitions, executor, true, 2);
+    }
+  }
+}
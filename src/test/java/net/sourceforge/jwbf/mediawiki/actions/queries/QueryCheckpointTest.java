@@ -0,0 +1,112 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class QueryCheckpointTest {
+
+  private static final String PAGE_ONE = "<api><query><allpages>" //
+      + "<p pageid=\"1\" ns=\"0\" title=\"A\" />" //
+      + "<p pageid=\"2\" ns=\"0\" title=\"B\" />" //
+      + "</allpages></query>" //
+      + "<query-continue><allpages apcontinue=\"C\" /></query-continue></api>";
+  private static final String PAGE_TWO = "<api><query><allpages>" //
+      + "<p pageid=\"3\" ns=\"0\" title=\"C\" />" //
+      + "<p pageid=\"4\" ns=\"0\" title=\"D\" />" //
+      + "</allpages></query></api>";
+
+  private MediaWikiBot bot;
+  private File file;
+  private int requests = 0;
+
+  @Before
+  public void before() throws IOException {
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests++;
+        if (request.contains("apfrom=C")) {
+          return PAGE_TWO;
+        }
+        return PAGE_ONE;
+      }
+    });
+    file = File.createTempFile("cursor", ".ser");
+    file.delete();
+  }
+
+  @After
+  public void after() {
+    file.delete();
+  }
+
+  @Test
+  public void testCursorRoundTrip() {
+    QueryCheckpoint checkpoint = new QueryCheckpoint(file, 1);
+    assertNull(checkpoint.load());
+    AllPageTitles query = new AllPageTitles(bot, MediaWiki.NS_MAIN);
+    Iterator<String> it = query.iterator();
+    assertEquals("A", it.next());
+    QueryCursor cursor = ((TitleQuery<?>) it).getCursor();
+    assertEquals("allpages", cursor.getModule());
+    assertEquals(1, cursor.getOffset());
+    assertEquals(1, cursor.getCount());
+    assertFalse(cursor.isFinished());
+
+    checkpoint.save(cursor);
+    assertEquals(cursor, checkpoint.load());
+    checkpoint.clear();
+    assertNull(checkpoint.load());
+  }
+
+  @Test
+  public void testResume() {
+    QueryCheckpoint checkpoint = new QueryCheckpoint(file, 1);
+    Iterator<String> it = checkpoint.attach(new AllPageTitles(bot, MediaWiki.NS_MAIN)).iterator();
+    assertEquals("A", it.next());
+    assertEquals("B", it.next());
+    assertEquals("C", it.next());
+
+    Iterable<String> query = checkpoint.attach(new AllPageTitles(bot, MediaWiki.NS_MAIN));
+    List<String> rest = Lists.newArrayList(query);
+    assertEquals(ImmutableList.of("D"), rest);
+    assertTrue(checkpoint.load().isFinished());
+    assertEquals(4, checkpoint.load().getCount());
+
+    requests = 0;
+    assertFalse(checkpoint.attach(new AllPageTitles(bot, MediaWiki.NS_MAIN)).iterator()
+        .hasNext());
+    assertEquals(0, requests);
+  }
+
+  @Test
+  public void testResumeOtherQuery() {
+    QueryCursor cursor = new AllPageTitles(bot, MediaWiki.NS_MAIN).getCursor();
+    try {
+      new AllPageTitles(bot, MediaWiki.NS_TEMPLATE).resumeFrom(cursor);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
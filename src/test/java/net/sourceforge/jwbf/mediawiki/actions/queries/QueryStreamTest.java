@@ -0,0 +1,88 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+
+public class QueryStreamTest {
+
+  private static final Function<Integer, Integer> SQUARE = new Function<Integer, Integer>() {
+
+    public Integer apply(Integer input) {
+      return input * input;
+    }
+  };
+
+  private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+
+    public boolean apply(Integer input) {
+      return input % 2 == 0;
+    }
+  };
+
+  private ExecutorService executor;
+  private List<Integer> items;
+
+  @Before
+  public void before() {
+    executor = Executors.newFixedThreadPool(4);
+    items = Lists.newArrayList(ContiguousSet.create(Range.closed(1, 1000),
+        DiscreteDomain.integers()));
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testSequential() {
+    QueryStream<Integer> stream = QueryStream.of(items, 30);
+    assertFalse(stream.isParallel());
+    List<Integer> result = stream.filter(EVEN).map(SQUARE).toList();
+    assertEquals(500, result.size());
+    assertEquals(Integer.valueOf(4), result.get(0));
+    assertEquals(Integer.valueOf(1000 * 1000), result.get(499));
+  }
+
+  @Test
+  public void testParallelKeepsOrder() {
+    QueryStream<Integer> stream = QueryStream.of(items, 30).parallel(executor, 3);
+    assertTrue(stream.isParallel());
+    List<Integer> result = stream.map(SQUARE).filter(EVEN).toList();
+    List<Integer> expected = QueryStream.of(items, 7).map(SQUARE).filter(EVEN).toList();
+    assertEquals(expected, result);
+  }
+
+  @Test
+  public void testParallelException() {
+    QueryStream<Integer> stream = QueryStream.of(items, 30).parallel(executor);
+    try {
+      stream.map(new Function<Integer, Integer>() {
+
+        public Integer apply(Integer input) {
+          throw new IllegalArgumentException("fail " + input);
+        }
+      }).toList();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("fail 1", e.getMessage());
+    }
+  }
+}
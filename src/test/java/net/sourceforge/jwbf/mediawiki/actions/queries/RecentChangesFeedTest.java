@@ -0,0 +1,167 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import net.sourceforge.jwbf.core.actions.util.ActionException;
+import net.sourceforge.jwbf.core.bots.util.JwbfException;
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+import net.sourceforge.jwbf.mediawiki.contentRep.RecentChange;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+public class RecentChangesFeedTest {
+
+  private static final String FIRST = "<api><query><recentchanges>" //
+      + "<rc type=\"edit\" ns=\"0\" title=\"A\" rcid=\"1\" revid=\"11\" old_revid=\"10\" " //
+      + "user=\"U\" timestamp=\"2013-04-01T00:00:00Z\" comment=\"c\" />" //
+      + "<rc type=\"new\" ns=\"0\" title=\"B\" rcid=\"2\" revid=\"12\" old_revid=\"0\" " //
+      + "user=\"U\" timestamp=\"2013-04-01T00:00:01Z\" comment=\"\" />" //
+      + "</recentchanges></query><query-continue>" //
+      + "<recentchanges rcstart=\"2013-04-01T00:00:02Z\" /></query-continue></api>";
+  private static final String SECOND = "<api><query><recentchanges>" //
+      + "<rc type=\"log\" ns=\"0\" title=\"C\" rcid=\"3\" revid=\"0\" old_revid=\"0\" " //
+      + "user=\"U\" timestamp=\"2013-04-01T00:00:02Z\" comment=\"\" logtype=\"move\" " //
+      + "logaction=\"move\"><move new_ns=\"0\" new_title=\"D\" /></rc>" //
+      + "</recentchanges></query></api>";
+  private static final String REPEATED = "<api><query><recentchanges>" //
+      + "<rc type=\"log\" ns=\"0\" title=\"C\" rcid=\"3\" revid=\"0\" old_revid=\"0\" " //
+      + "user=\"U\" timestamp=\"2013-04-01T00:00:02Z\" comment=\"\" logtype=\"move\" " //
+      + "logaction=\"move\"><move new_ns=\"0\" new_title=\"D\" /></rc>" //
+      + "<rc type=\"edit\" ns=\"0\" title=\"E\" rcid=\"4\" revid=\"13\" old_revid=\"9\" " //
+      + "user=\"U\" timestamp=\"2013-04-01T00:00:02Z\" comment=\"\" />" //
+      + "</recentchanges></query></api>";
+
+  private final List<String> requests = Lists.newArrayList();
+  private MediaWikiBot bot;
+  private boolean failOnContinuation = false;
+
+  @Before
+  public void before() {
+    requests.clear();
+    failOnContinuation = false;
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("rcstart=2013-04-01T00%3A00%3A02Z")) {
+          if (failOnContinuation) {
+            failOnContinuation = false;
+            throw new ActionException("connection reset");
+          }
+          if (requests.size() == 2) {
+            return SECOND;
+          }
+          return REPEATED;
+        }
+        return FIRST;
+      }
+    });
+  }
+
+  @Test
+  public void testPollFollowsContinuationAndSkipsDuplicates() {
+    RecentChangesFeed feed = new RecentChangesFeed(bot, MediaWiki.parseTimestamp(
+        "2013-04-01T00:00:00Z"), MediaWiki.NS_MAIN);
+    BlockingQueue<RecentChange> queue = feed.newQueue(10);
+
+    List<RecentChange> changes = feed.pollOnce();
+    assertEquals(3, changes.size());
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(0).contains("rcstart=2013-04-01T00%3A00%3A00Z"));
+    assertTrue(requests.get(0).contains("rcdir=newer"));
+    assertTrue(requests.get(0).contains("rcnamespace=0"));
+    assertEquals(3, queue.size());
+    RecentChange first = queue.poll();
+    assertEquals("A", first.getTitle());
+    assertEquals(11, first.getRevId());
+    assertEquals(10, first.getOldRevId());
+    queue.poll();
+    RecentChange move = queue.poll();
+    assertEquals(RecentChange.TYPE_LOG, move.getType());
+    assertEquals("D", move.getMoveTarget());
+    assertEquals("2013-04-01T00:00:02Z", feed.getLastTimestamp());
+
+    changes = feed.pollOnce();
+    assertEquals(1, changes.size());
+    assertEquals(4, changes.get(0).getRcId());
+    assertEquals(1, queue.size());
+  }
+
+  @Test
+  public void testAdaptiveInterval() {
+    RecentChangesFeed feed = new RecentChangesFeed(bot, MediaWiki.parseTimestamp(
+        "2013-04-01T00:00:00Z"));
+    feed.setIntervals(100, 800);
+    feed.pollOnce();
+    assertEquals(100, feed.getInterval());
+    feed.pollOnce();
+    assertEquals(100, feed.getInterval());
+    for (int i = 0; i < 4; i++) {
+      feed.pollOnce();
+    }
+    assertEquals(800, feed.getInterval());
+  }
+
+  @Test
+  public void testFailedPollDeliversNothing() {
+    RecentChangesFeed feed = new RecentChangesFeed(bot, MediaWiki.parseTimestamp(
+        "2013-04-01T00:00:00Z"));
+    BlockingQueue<RecentChange> queue = feed.newQueue(10);
+    failOnContinuation = true;
+    try {
+      feed.pollOnce();
+      fail();
+    } catch (ActionException e) {
+      assertEquals("connection reset", e.getMessage());
+    }
+    assertEquals(0, queue.size());
+    assertEquals("2013-04-01T00:00:00Z", feed.getLastTimestamp());
+
+    assertEquals(4, feed.pollOnce().size());
+    assertEquals(4, queue.size());
+    assertEquals("A", queue.poll().getTitle());
+  }
+
+  @Test
+  public void testStopWhileQueueIsFull() throws InterruptedException {
+    final RecentChangesFeed feed = new RecentChangesFeed(bot, MediaWiki.parseTimestamp(
+        "2013-04-01T00:00:00Z"));
+    BlockingQueue<RecentChange> queue = feed.newQueue(1);
+    Thread poller = new Thread(new Runnable() {
+
+      public void run() {
+        try {
+          feed.pollOnce();
+        } catch (JwbfException e) {
+          // interrupted
+        }
+      }
+    });
+    poller.start();
+    while (queue.isEmpty()) {
+      Thread.sleep(10);
+    }
+    // would wait for the lock of the blocked poll
+    feed.stop();
+    assertEquals("2013-04-01T00:00:00Z", feed.getLastTimestamp());
+
+    poller.interrupt();
+    poller.join(10000);
+    assertFalse(poller.isAlive());
+    assertFalse(feed.isRunning());
+    assertEquals("2013-04-01T00:00:00Z", feed.getLastTimestamp());
+  }
+
+}
@@ -0,0 +1,114 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class TitleQueryTest {
+
+  private static final String PAGE_ONE = "<api><query><allpages>" //
+      + "<p pageid=\"1\" ns=\"0\" title=\"A\" />" //
+      + "<p pageid=\"2\" ns=\"0\" title=\"B\" />" //
+      + "</allpages></query>" //
+      + "<query-continue><allpages apcontinue=\"C\" /></query-continue></api>";
+  private static final String EMPTY_PAGE = "<api><query><allpages />" //
+      + "</query><query-continue><allpages apcontinue=\"E\" /></query-continue></api>";
+  private static final String PAGE_THREE = "<api><query><allpages>" //
+      + "<p pageid=\"5\" ns=\"0\" title=\"E\" />" //
+      + "<p pageid=\"6\" ns=\"0\" title=\"F\" />" //
+      + "</allpages></query></api>";
+
+  private final List<String> requests = Lists.newArrayList();
+  private MediaWikiBot bot;
+  private ExecutorService executor;
+
+  @Before
+  public void before() {
+    executor = Executors.newFixedThreadPool(3);
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        if (request.contains("apfrom=C")) {
+          return EMPTY_PAGE;
+        } else if (request.contains("apfrom=E")) {
+          return PAGE_THREE;
+        }
+        return PAGE_ONE;
+      }
+    });
+  }
+
+  @After
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testNextPageSkipsEmptyPage() {
+    AllPageTitles query = new AllPageTitles(bot, MediaWiki.NS_MAIN);
+    assertEquals(ImmutableList.of("A", "B"), query.nextPage());
+    assertEquals(ImmutableList.of("E", "F"), query.nextPage());
+    assertEquals(3, requests.size());
+    assertTrue(query.nextPage().isEmpty());
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void testNextPageAfterResume() {
+    Iterator<String> it = new AllPageTitles(bot, MediaWiki.NS_MAIN).iterator();
+    assertEquals("A", it.next());
+    QueryCursor cursor = ((TitleQuery<?>) it).getCursor();
+
+    AllPageTitles resumed = new AllPageTitles(bot, MediaWiki.NS_MAIN);
+    resumed.resumeFrom(cursor);
+    assertEquals(ImmutableList.of("B"), resumed.nextPage());
+    assertEquals(ImmutableList.of("E", "F"), resumed.nextPage());
+    assertTrue(resumed.nextPage().isEmpty());
+  }
+
+  @Test
+  public void testStreamIteratesAgain() {
+    AllPageTitles query = new AllPageTitles(bot, MediaWiki.NS_MAIN);
+    List<String> expected = ImmutableList.of("A", "B", "E", "F");
+    assertEquals(expected, query.stream().toList());
+    assertEquals(expected, query.stream().toList());
+    assertEquals(6, requests.size());
+  }
+
+  @Test
+  public void testParallelStreamKeepsOrder() {
+    QueryStream<String> stream = new AllPageTitles(bot, MediaWiki.NS_MAIN)
+        .parallelStream(executor);
+    assertTrue(stream.isParallel());
+    List<String> result = stream.map(new Function<String, String>() {
+
+      public String apply(String title) {
+        try {
+          // the first titles finish last
+          Thread.sleep(title.equals("A") || title.equals("E") ? 50 : 1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return title.toLowerCase();
+      }
+    }).toList();
+    assertEquals(ImmutableList.of("a", "b", "e", "f"), result);
+  }
+}
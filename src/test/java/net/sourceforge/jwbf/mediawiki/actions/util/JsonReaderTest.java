@@ -0,0 +1,92 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class JsonReaderTest {
+
+  @Test
+  public void testTokens() {
+    JsonReader reader = new JsonReader(" {\"a\" : [1, -2.5e3, true, null], \"b\":{}} ");
+    reader.beginObject();
+    assertEquals("a", reader.nextName());
+    reader.beginArray();
+    assertEquals(1, reader.nextLong());
+    assertEquals(JsonReader.Token.NUMBER, reader.peek());
+    assertEquals("-2.5e3", reader.nextString());
+    assertTrue(reader.nextBoolean());
+    reader.nextNull();
+    assertFalse(reader.hasNext());
+    reader.endArray();
+    assertEquals("b", reader.nextName());
+    reader.beginObject();
+    reader.endObject();
+    reader.endObject();
+    assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  public void testEscapes() {
+    JsonReader reader = new JsonReader("[\"a\\\"b\\\\c\\/d\\n\\u00e4\\u20ac\"]");
+    reader.beginArray();
+    assertEquals("a\"b\\c/d\n\u00e4\u20ac", reader.nextString());
+    reader.endArray();
+  }
+
+  @Test
+  public void testRepeatedNames() {
+    JsonReader reader = new JsonReader("[{\"title\":1},{\"title\":2},{\"t\\u0069tle\":3}]");
+    reader.beginArray();
+    reader.beginObject();
+    String first = reader.nextName();
+    reader.skipValue();
+    reader.endObject();
+    reader.beginObject();
+    assertSame(first, reader.nextName());
+    reader.skipValue();
+    reader.endObject();
+    reader.beginObject();
+    assertEquals("title", reader.nextName());
+    assertEquals(3, reader.nextLong());
+    reader.endObject();
+    reader.endArray();
+  }
+
+  @Test
+  public void testSkipValue() {
+    JsonReader reader = new JsonReader("{\"a\":{\"b\":[1,{\"c\":[]}]},\"d\":\"e\"}");
+    reader.beginObject();
+    assertEquals("a", reader.nextName());
+    reader.skipValue();
+    assertEquals("d", reader.nextName());
+    assertEquals("e", reader.nextString());
+    reader.endObject();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnterminatedString() {
+    JsonReader reader = new JsonReader("{\"a\":\"b");
+    reader.beginObject();
+    reader.nextName();
+    reader.nextString();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingColon() {
+    JsonReader reader = new JsonReader("{\"a\" 1}");
+    reader.beginObject();
+    reader.nextName();
+    reader.nextLong();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWrongToken() {
+    JsonReader reader = new JsonReader("[1]");
+    reader.beginObject();
+  }
+
+}
@@ -0,0 +1,165 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamReader;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.editing.GetRevision;
+import net.sourceforge.jwbf.mediawiki.actions.meta.GetUserinfo;
+import net.sourceforge.jwbf.mediawiki.actions.meta.Siteinfo;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class MWActionTest {
+
+  private static final String SITEINFO = "<?xml version=\"1.0\"?><api><query>" //
+      + "<general mainpage=\"Main Page\" base=\"http://localhost/wiki/Main_Page\" " //
+      + "sitename=\"Test\" generator=\"MediaWiki 1.20.2\" case=\"first-letter\" />" //
+      + "<namespaces><ns id=\"0\" case=\"first-letter\" content=\"\" xml:space=\"preserve\" />"
+      + "<ns id=\"14\" case=\"first-letter\" canonical=\"Category\" xml:space=\"preserve\">" //
+      + "Category</ns></namespaces>" //
+      + "<interwikimap><iw prefix=\"de\" url=\"http://de.wikipedia.org/wiki/$1\" /></interwikimap>"
+      + "</query></api>";
+  private static final String SITEINFO_JSON = "{\"query\":{\"general\":{" //
+      + "\"mainpage\":\"Main Page\",\"base\":\"http:\\/\\/localhost\\/wiki\\/Main_Page\"," //
+      + "\"sitename\":\"Test\",\"generator\":\"MediaWiki 1.20.2\",\"case\":\"first-letter\"}," //
+      + "\"namespaces\":{\"0\":{\"id\":0,\"case\":\"first-letter\",\"*\":\"\",\"content\":\"\"}," //
+      + "\"14\":{\"id\":14,\"case\":\"first-letter\",\"*\":\"Category\"," //
+      + "\"canonical\":\"Category\"}},\"interwikimap\":[{\"prefix\":\"de\"," //
+      + "\"url\":\"http:\\/\\/de.wikipedia.org\\/wiki\\/$1\"}]}}";
+
+  private static class ParseAction extends MWAction {
+
+    public HttpAction getNextMessage() {
+      return null;
+    }
+
+    void parse(String xml, ElementHandler handler) {
+      parseXml(xml, handler);
+    }
+
+    void parse(String json, JsonHandler handler) {
+      parseJson(json, handler);
+    }
+  }
+
+  @Test
+  public void testParsePassesParents() {
+    final List<String> elements = Lists.newArrayList();
+    new ParseAction().parse("<api><query><pages><page title=\"A\">x</page></pages></query></api>",
+        new ElementHandler() {
+
+          public void startElement(String parent, XMLStreamReader reader) {
+            elements.add(parent + ">" + reader.getLocalName());
+          }
+        });
+    assertEquals(Lists.newArrayList("null>api", "api>query", "query>pages", "pages>page"),
+        elements);
+  }
+
+  @Test(expected = ApiException.class)
+  public void testParseStopsAtError() {
+    new ParseAction().parse("<api><error code=\"readapidenied\" info=\"denied\" /><query>",
+        new ElementHandler() {
+
+          public void startElement(String parent, XMLStreamReader reader) {
+            // nothing
+          }
+        });
+  }
+
+  @Test
+  public void testSiteinfo() {
+    Siteinfo siteinfo = new Siteinfo();
+    siteinfo.processAllReturningText(SITEINFO);
+    assertEquals("Test", siteinfo.getSitename());
+    assertEquals(Version.MW1_20, siteinfo.getVersion());
+    assertEquals("Category", siteinfo.getNamespaces().get(14));
+    assertEquals("", siteinfo.getNamespaces().get(0));
+    assertEquals("http://de.wikipedia.org/wiki/$1", siteinfo.getInterwikis().get("de"));
+  }
+
+  @Test
+  public void testRevision() {
+    GetRevision revision = new GetRevision(Version.MW1_20, "A", GetRevision.CONTENT
+        | GetRevision.USER | GetRevision.FLAGS | GetRevision.IDS);
+    revision.processReturningText("<api><query><pages><page pageid=\"1\" ns=\"0\" title=\"A\">"
+        + "<revisions><rev revid=\"7\" user=\"U\" minor=\"\" comment=\"c\" "
+        + "xml:space=\"preserve\">a &lt;b&gt; &amp; c</rev></revisions></page></pages>"
+        + "</query></api>", revision.getNextMessage());
+    SimpleArticle article = revision.getArticle();
+    assertEquals("a <b> & c", article.getText());
+    assertEquals("7", article.getRevisionId());
+    assertEquals("U", article.getEditor());
+    assertEquals(true, article.isMinorEdit());
+  }
+
+  @Test
+  public void testParseJsonPassesParents() {
+    final List<String> objects = Lists.newArrayList();
+    new ParseAction().parse("{\"query\":{\"allpages\":[{\"ns\":0,\"title\":\"A\"},"
+        + "{\"ns\":0,\"title\":\"B\"}]},\"limits\":{\"allpages\":500}}", new JsonHandler() {
+
+      @Override
+      public void object(String name, String parent, Map<String, String> values) {
+        objects.add(parent + ">" + name + ":" + values.get("title"));
+      }
+    });
+    assertEquals(Lists.newArrayList("query>allpages:A", "query>allpages:B", "null>query:null",
+        "null>limits:null", "null>null:null"), objects);
+  }
+
+  @Test(expected = ApiException.class)
+  public void testParseJsonStopsAtError() {
+    new ParseAction().parse("{\"error\":{\"code\":\"readapidenied\",\"info\":\"denied\"}}",
+        new JsonHandler() {
+        });
+  }
+
+  @Test
+  public void testSiteinfoJson() {
+    Siteinfo siteinfo = new Siteinfo(ResponseFormat.JSON);
+    assertEquals(true, siteinfo.getNextMessage().getRequest().contains("format=json"));
+    siteinfo.processAllReturningText(SITEINFO_JSON);
+    assertEquals("Test", siteinfo.getSitename());
+    assertEquals(Version.MW1_20, siteinfo.getVersion());
+    assertEquals("Category", siteinfo.getNamespaces().get(14));
+    assertEquals("", siteinfo.getNamespaces().get(0));
+    assertEquals("http://de.wikipedia.org/wiki/$1", siteinfo.getInterwikis().get("de"));
+  }
+
+  @Test
+  public void testRevisionJson() {
+    GetRevision revision = new GetRevision(Version.MW1_20, "A", GetRevision.CONTENT
+        | GetRevision.USER | GetRevision.FLAGS | GetRevision.IDS, ResponseFormat.JSON);
+    revision.processReturningText("{\"query\":{\"pages\":{\"1\":{\"pageid\":1,\"ns\":0,"
+        + "\"title\":\"A\",\"revisions\":[{\"revid\":7,\"user\":\"U\",\"minor\":\"\","
+        + "\"comment\":\"c\",\"*\":\"a <b> & c\\n\"}]}}}}", revision.getNextMessage());
+    SimpleArticle article = revision.getArticle();
+    assertEquals("a <b> & c\n", article.getText());
+    assertEquals("7", article.getRevisionId());
+    assertEquals("U", article.getEditor());
+    assertEquals(true, article.isMinorEdit());
+  }
+
+  @Test
+  public void testUserinfoJson() {
+    GetUserinfo userinfo = new GetUserinfo(Version.MW1_20, ResponseFormat.JSON);
+    userinfo.processAllReturningText("{\"query\":{\"userinfo\":{\"id\":1,\"name\":\"U\","
+        + "\"groups\":[\"*\",\"user\"],\"rights\":[\"read\",\"edit\"],"
+        + "\"ratelimits\":{\"edit\":{\"user\":{\"hits\":8,\"seconds\":60}}}}}}");
+    assertEquals("U", userinfo.getUsername());
+    assertEquals(ImmutableSet.of("*", "user"), userinfo.getGroups());
+    assertEquals(ImmutableSet.of("read", "edit"), userinfo.getRights());
+  }
+
+}
@@ -0,0 +1,127 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamReader;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+import org.jdom.Element;
+
+/**
+ * Compares the tree based parsing of {@link MWAction#getRootElement(String)} with the pull parsers
+ * of {@link MWAction#parseXml(String, ElementHandler)} and
+ * {@link MWAction#parseJson(String, JsonHandler)} on a page of 500 log events. Run it with
+ * <code>java -cp ... ParsingBenchmark [iterations]</code>; the allocated bytes are measured on
+ * HotSpot only.
+ */
+public class ParsingBenchmark extends MWAction {
+
+  private static final int JDOM = 0;
+  private static final int STAX = 1;
+  private static final int JSON = 2;
+
+  private static final int ITEMS = 500;
+
+  private int found;
+
+  public HttpAction getNextMessage() {
+    return null;
+  }
+
+  public static void main(String[] args) {
+    int iterations = 2000;
+    if (args.length > 0) {
+      iterations = Integer.parseInt(args[0]);
+    }
+    StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?><api><query><logevents>");
+    StringBuilder json = new StringBuilder("{\"query\":{\"logevents\":[");
+    for (int i = 0; i < ITEMS; i++) {
+      sb.append("<item logid=\"").append(i).append("\" pageid=\"").append(i)
+          .append("\" ns=\"0\" title=\"Title ").append(i)
+          .append("\" type=\"delete\" action=\"delete\" user=\"User\" "
+              + "timestamp=\"2013-04-01T00:00:00Z\" comment=\"spam &amp; more\" />");
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"logid\":").append(i).append(",\"pageid\":").append(i)
+          .append(",\"ns\":0,\"title\":\"Title ").append(i)
+          .append("\",\"type\":\"delete\",\"action\":\"delete\",\"user\":\"User\","
+              + "\"timestamp\":\"2013-04-01T00:00:00Z\",\"comment\":\"spam & more\"}");
+    }
+    sb.append("</logevents></query><query-continue><logevents lestart=\"2013-03-31T00:00:00Z\" />"
+        + "</query-continue></api>");
+    json.append("]},\"query-continue\":{\"logevents\":{\"lestart\":\"2013-03-31T00:00:00Z\"}}}");
+    String xml = sb.toString();
+    System.out.println("xml: " + xml.length() / 1024 + " KiB, json: " + json.length() / 1024
+        + " KiB");
+    ParsingBenchmark benchmark = new ParsingBenchmark();
+    for (int round = 0; round < 3; round++) {
+      benchmark.measure("jdom", xml, iterations, JDOM);
+      benchmark.measure("stax", xml, iterations, STAX);
+      benchmark.measure("json", json.toString(), iterations, JSON);
+    }
+  }
+
+  private void measure(String name, String response, int iterations, int parser) {
+    long bytes = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      found = 0;
+      if (parser == JDOM) {
+        walk(getRootElement(response));
+      } else if (parser == STAX) {
+        parseXml(response, new ElementHandler() {
+
+          public void startElement(String parent, XMLStreamReader reader) {
+            if (reader.getLocalName().equals("item")) {
+              reader.getAttributeValue(null, "title");
+              found++;
+            }
+          }
+        });
+      } else {
+        parseJson(response, new JsonHandler() {
+
+          @Override
+          public void object(String name, String parent, Map<String, String> values) {
+            if ("logevents".equals(name) && "query".equals(parent)) {
+              values.get("title");
+              found++;
+            }
+          }
+        });
+      }
+      if (found != ITEMS) {
+        throw new IllegalStateException(name + " found " + found);
+      }
+    }
+    long micros = (System.nanoTime() - start) / 1000 / iterations;
+    bytes = (allocatedBytes() - bytes) / iterations;
+    System.out.println(name + ": " + micros + " us/response, " + bytes / 1024 + " KiB/response");
+  }
+
+  private void walk(Element element) {
+    for (Object o : element.getChildren()) {
+      Element child = (Element) o;
+      if (child.getName().equals("item")) {
+        child.getAttributeValue("title");
+        found++;
+      } else {
+        walk(child);
+      }
+    }
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread
+          .currentThread().getId());
+    }
+    return 0;
+  }
+
+}
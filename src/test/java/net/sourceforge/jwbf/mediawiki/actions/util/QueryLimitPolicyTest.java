@@ -0,0 +1,71 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import net.sourceforge.jwbf.core.contentRep.Userinfo;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class QueryLimitPolicyTest {
+
+  private static final String MODULE = "allpages";
+
+  @Test
+  public void testMaximumByRights() {
+    Userinfo userinfo = mock(Userinfo.class);
+    when(userinfo.getRights()).thenReturn(ImmutableSet.of("read"));
+    QueryLimitPolicy policy = new QueryLimitPolicy(userinfo);
+    assertFalse(policy.hasHighLimits());
+    assertEquals(QueryLimitPolicy.MAX_LIMIT, policy.getLimit(MODULE));
+
+    when(userinfo.getRights()).thenReturn(
+        ImmutableSet.of("read", QueryLimitPolicy.RIGHT_APIHIGHLIMITS));
+    policy = new QueryLimitPolicy(userinfo);
+    assertTrue(policy.hasHighLimits());
+    assertEquals(QueryLimitPolicy.MAX_LIMIT_HIGH, policy.getLimit(MODULE));
+    assertEquals(QueryLimitPolicy.MAX_CONTENT_LIMIT_HIGH,
+        policy.getLimit(MODULE + QueryLimitPolicy.CONTENT_SUFFIX));
+  }
+
+  @Test
+  public void testAdaptToLatencyAndSize() {
+    QueryLimitPolicy policy = new QueryLimitPolicy(false, 1000, 1000);
+    policy.record(MODULE, 500, 2000, 10);
+    assertEquals(250, policy.getLimit(MODULE));
+    policy.record(MODULE, 250, 10, 2000);
+    assertEquals(125, policy.getLimit(MODULE));
+    policy.record(MODULE, 125, 500, 500);
+    assertEquals(125, policy.getLimit(MODULE));
+    policy.record(MODULE, 125, 10, 10);
+    assertEquals(250, policy.getLimit(MODULE));
+    policy.record(MODULE, 250, 10, 10);
+    policy.record(MODULE, 500, 10, 10);
+    assertEquals(500, policy.getLimit(MODULE));
+  }
+
+  @Test
+  public void testIgnoreOutdatedRecords() {
+    QueryLimitPolicy policy = new QueryLimitPolicy(false, 1000, 1000);
+    policy.record(MODULE, 500, 2000, 10);
+    policy.record(MODULE, 500, 2000, 10);
+    assertEquals(250, policy.getLimit(MODULE));
+  }
+
+  @Test
+  public void testFixedLimit() {
+    QueryLimitPolicy policy = new QueryLimitPolicy(false, 1000, 1000);
+    policy.setLimit(MODULE, 20000);
+    assertEquals(QueryLimitPolicy.MAX_LIMIT, policy.getLimit(MODULE));
+    policy.setLimit(MODULE, 40);
+    policy.record(MODULE, 40, 5000, 10);
+    assertEquals(40, policy.getLimit(MODULE));
+    policy.resetLimit(MODULE);
+    assertEquals(QueryLimitPolicy.MAX_LIMIT, policy.getLimit(MODULE));
+    assertEquals(QueryLimitPolicy.MAX_LIMIT, policy.getLimit("backlinks"));
+  }
+}
@@ -0,0 +1,131 @@
+package net.sourceforge.jwbf.mediawiki.bots;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
+import net.sourceforge.jwbf.mediawiki.actions.editing.PostModifyContent;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BulkWriterTest {
+
+  private MediaWikiBot bot;
+  private PostModifyContent success;
+
+  @Before
+  public void before() {
+    success = mock(PostModifyContent.class);
+    when(success.getResult()).thenReturn("Success");
+    when(success.getToken()).thenReturn("t");
+    when(success.getNewRevisionId()).thenReturn("7");
+    bot = mock(MediaWikiBot.class);
+    when(bot.writeContent(any(SimpleArticle.class), any(String.class))).thenReturn(success);
+  }
+
+  private static SimpleArticle article(String title) {
+    SimpleArticle article = new SimpleArticle(title);
+    article.setText("text");
+    return article;
+  }
+
+  @Test
+  public void testWritesAndReusesToken() throws Exception {
+    BulkWriter writer = new BulkWriter(new BotPool(bot), 10, 1000);
+    List<Future<BulkWriter.Result>> results = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      results.add(writer.submit(article("A" + i)));
+    }
+    writer.shutdown();
+    assertTrue(writer.awaitTermination(10, TimeUnit.SECONDS));
+    for (Future<BulkWriter.Result> result : results) {
+      assertTrue(result.get().isSuccess());
+      assertEquals("7", result.get().getRevisionId());
+    }
+    verify(bot, times(1)).writeContent(any(SimpleArticle.class), (String) isNull());
+    verify(bot, times(4)).writeContent(any(SimpleArticle.class), eq("t"));
+  }
+
+  @Test
+  public void testRetriesAndReportsFailures() throws Exception {
+    SimpleArticle limited = article("Limited");
+    SimpleArticle protectedPage = article("Protected");
+    when(bot.writeContent(eq(limited), any(String.class))) //
+        .thenThrow(new ApiException("ratelimited", "slow down")) //
+        .thenReturn(success);
+    when(bot.writeContent(eq(protectedPage), any(String.class))) //
+        .thenThrow(new ApiException("protectedpage", "protected"));
+    BulkWriter writer = new BulkWriter(new BotPool(bot), 10, 1000);
+    writer.setRetryPause(1);
+
+    assertTrue(writer.submit(limited).get().isSuccess());
+    BulkWriter.Result failed = writer.submit(protectedPage).get();
+    assertFalse(failed.isSuccess());
+    assertEquals("protectedpage", failed.getFailure());
+    verify(bot, times(2)).writeContent(eq(limited), any(String.class));
+    writer.shutdown();
+  }
+
+  @Test
+  public void testShutdownNow() throws Exception {
+    BulkWriter writer = new BulkWriter(new BotPool(bot), 10, 0.5);
+    List<Future<BulkWriter.Result>> results = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      results.add(writer.submit(article("A" + i)));
+    }
+    List<SimpleArticle> unwritten = writer.shutdownNow();
+    assertTrue(unwritten.size() >= 3);
+    assertTrue(writer.awaitTermination(10, TimeUnit.SECONDS));
+    int cancelled = 0;
+    for (Future<BulkWriter.Result> result : results) {
+      if (result.isCancelled()) {
+        cancelled++;
+      } else {
+        assertTrue(result.get().isSuccess());
+      }
+    }
+    assertEquals(unwritten.size(), cancelled);
+  }
+
+  @Test
+  public void testFailsEditsWhenWritersStopped() throws Exception {
+    when(bot.writeContent(any(SimpleArticle.class), any(String.class))) //
+        .thenThrow(new AssertionError("broken"));
+    BulkWriter writer = new BulkWriter(new BotPool(bot), 1, 1000);
+    Future<BulkWriter.Result> first = writer.submit(article("A"));
+    assertTrue(writer.awaitTermination(10, TimeUnit.SECONDS));
+    assertFailed(first);
+    // no writer is left, so the edit does not wait in the queue
+    assertFailed(writer.submit(article("B")));
+    assertFailed(writer.submit(article("C")));
+    assertEquals(0, writer.getQueueSize());
+  }
+
+  private static void assertFailed(Future<BulkWriter.Result> result) throws Exception {
+    try {
+      result.get(10, TimeUnit.SECONDS);
+      fail("edit must fail");
+    } catch (ExecutionException e) {
+      // expected
+    }
+  }
+
+}
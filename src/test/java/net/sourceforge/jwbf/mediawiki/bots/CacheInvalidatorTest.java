@@ -0,0 +1,99 @@
+package net.sourceforge.jwbf.mediawiki.bots;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import net.sourceforge.jwbf.mediawiki.MockBots;
+import net.sourceforge.jwbf.mediawiki.contentRep.RecentChange;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+public class CacheInvalidatorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<String> requests = Lists.newArrayList();
+  private MediaWikiBot bot;
+  private File file;
+
+  @Before
+  public void before() {
+    requests.clear();
+    file = new File(folder.getRoot(), "watermark");
+    bot = MockBots.answering(new Function<String, String>() {
+
+      public String apply(String request) {
+        requests.add(request);
+        return "<api><query><recentchanges /></query></api>";
+      }
+    });
+    when(bot.invalidateCache("A")).thenReturn(true);
+  }
+
+  private static RecentChange change(String type, String title, String timestamp) {
+    RecentChange change = new RecentChange();
+    change.setType(type);
+    change.setTitle(title);
+    change.setTimestamp(timestamp);
+    return change;
+  }
+
+  @Test
+  public void testInvalidatesChangedTitles() {
+    CacheInvalidator invalidator = new CacheInvalidator(bot, file);
+    RecentChange move = change(RecentChange.TYPE_LOG, "B", "2013-04-01T00:00:01Z");
+    move.setMoveTarget("C");
+    invalidator.onChange(change(RecentChange.TYPE_EDIT, "A", "2013-04-01T00:00:00Z"));
+    invalidator.onChange(move);
+
+    verify(bot).invalidateCache("A");
+    verify(bot).invalidateCache("B");
+    verify(bot).invalidateCache("C");
+    verify(bot, never()).readData("A");
+    assertEquals("2013-04-01T00:00:01Z", invalidator.getWatermark());
+  }
+
+  @Test
+  public void testRefresh() {
+    CacheInvalidator invalidator = new CacheInvalidator(bot, file);
+    invalidator.setRefresh(true);
+    invalidator.onChange(change(RecentChange.TYPE_EDIT, "A", "2013-04-01T00:00:00Z"));
+    invalidator.onChange(change(RecentChange.TYPE_EDIT, "B", "2013-04-01T00:00:01Z"));
+    invalidator.onChange(change(RecentChange.TYPE_LOG, "A", "2013-04-01T00:00:02Z"));
+
+    verify(bot).readData("A");
+    verify(bot, never()).readData("B");
+  }
+
+  @Test
+  public void testResumesFromWatermark() {
+    CacheInvalidator invalidator = new CacheInvalidator(bot, file, 0);
+    assertNull(invalidator.getWatermark());
+    invalidator.newFeed(new Date(0)).pollOnce();
+    assertTrue(requests.get(0).contains("rcstart=1970-01-01T00%3A00%3A00Z"));
+
+    invalidator.onChange(change(RecentChange.TYPE_EDIT, "A", "2013-04-01T00:00:00Z"));
+    assertTrue(file.exists());
+
+    invalidator = new CacheInvalidator(bot, file);
+    assertEquals("2013-04-01T00:00:00Z", invalidator.getWatermark());
+    invalidator.newFeed(new Date()).pollOnce();
+    assertTrue(requests.get(1).contains("rcstart=2013-04-01T00%3A00%3A00Z"));
+  }
+
+}
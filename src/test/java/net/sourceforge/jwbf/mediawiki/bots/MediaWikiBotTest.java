@@ -1,14 +1,31 @@
 package net.sourceforge.jwbf.mediawiki.bots;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import net.sourceforge.jwbf.core.actions.HttpActionClient;
+import net.sourceforge.jwbf.core.bots.util.TieredCache;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.editing.GetRevision;
 import net.sourceforge.jwbf.mediawiki.actions.meta.GetVersion;
+import net.sourceforge.jwbf.mediawiki.actions.queries.GetPageInfo;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class MediaWikiBotTest {
 
@@ -23,5 +40,154 @@ public class MediaWikiBotTest {
     assertEquals(Version.UNKNOWN, version);
   }
 
+  @Test(expected = NullPointerException.class)
+  public void testNullResponseFormat() {
+    bot = new MediaWikiBot(mock(HttpActionClient.class));
+    bot.setResponseFormat(null);
+  }
+
+  @Test
+  public void testReadDataUsesCache() {
+    HttpActionClient client = newClientWithRevisions();
+    bot = new MediaWikiBot(client);
+    TieredCache cache = new TieredCache(10, TieredCache.UNLIMITED, 1, TimeUnit.HOURS);
+    assertFalse(bot.hasCacheHandler());
+    bot.setCacheHandler(cache);
+    assertTrue(bot.hasCacheHandler());
+
+    SimpleArticle first = bot.readData("A", GetRevision.CONTENT);
+    first.setText("changed");
+    SimpleArticle second = bot.readData("A", GetRevision.CONTENT);
+    assertEquals("A", second.getTitle());
+    assertEquals("a", second.getText());
+    verify(client, times(1)).performAction(Mockito.isA(GetRevision.class));
+
+    assertEquals("", second.getRevisionId());
+
+    // one entry per title, with all properties
+    assertEquals("7", bot.readData("A", GetRevision.CONTENT | GetRevision.IDS).getRevisionId());
+    assertEquals("U", bot.readData("A", GetRevision.USER).getEditor());
+    verify(client, times(1)).performAction(Mockito.isA(GetRevision.class));
+    bot.readData("A", GetRevision.CONTENT | GetRevision.FIRST);
+    verify(client, times(2)).performAction(Mockito.isA(GetRevision.class));
+
+    bot.setCacheHandler(null);
+    bot.readData("A", GetRevision.CONTENT);
+    verify(client, times(3)).performAction(Mockito.isA(GetRevision.class));
+  }
+
+  @Test
+  public void testInvalidatesEntriesOfPreviousRuns() {
+    HttpActionClient client = newClientWithRevisions();
+    TieredCache cache = new TieredCache(10, TieredCache.UNLIMITED, 1, TimeUnit.HOURS);
+    SimpleArticle old = new SimpleArticle("old", "A");
+    old.setRevisionId("6");
+    cache.put(old);
+
+    bot = new MediaWikiBot(client);
+    bot.setCacheHandler(cache);
+    assertEquals("old", bot.readData("A", GetRevision.CONTENT | GetRevision.TIMESTAMP).getText());
+    assertTrue(bot.invalidateCache("A"));
+    assertEquals("a", bot.readData("A", GetRevision.CONTENT | GetRevision.TIMESTAMP).getText());
+    verify(client, times(1)).performAction(Mockito.isA(GetRevision.class));
+  }
+
+  @Test
+  public void testRevalidateCache() {
+    HttpActionClient client = newClientWithRevisions();
+    when(client.performAction(Mockito.isA(GetPageInfo.class))).thenAnswer(new Answer<String>() {
+
+      public String answer(InvocationOnMock invocation) {
+        GetPageInfo info = (GetPageInfo) invocation.getArguments()[0];
+        String xml = "<api><query><pages>"
+            + "<page pageid=\"1\" ns=\"0\" title=\"A\" lastrevid=\"7\" />"
+            + "<page pageid=\"2\" ns=\"0\" title=\"B\" lastrevid=\"8\" />"
+            + "<page ns=\"0\" title=\"C\" missing=\"\" />" + "</pages></query></api>";
+        return info.processReturningText(xml, info.getNextMessage());
+      }
+    });
+    bot = new MediaWikiBot(client);
+    bot.setCacheHandler(new TieredCache(10, TieredCache.UNLIMITED, 1, TimeUnit.HOURS));
+    bot.readData("A", GetRevision.CONTENT);
+    bot.readData("B");
+    bot.readData("C");
+
+    assertEquals(ImmutableSet.of("B", "C"), bot.revalidateCache(ImmutableList.of("A", "B", "C",
+        "D")));
+    verify(client, times(1)).performAction(Mockito.isA(GetPageInfo.class));
+    verify(client, times(3)).performAction(Mockito.isA(GetRevision.class));
+
+    bot.readData("A", GetRevision.CONTENT);
+    verify(client, times(3)).performAction(Mockito.isA(GetRevision.class));
+    bot.readData("B");
+    verify(client, times(4)).performAction(Mockito.isA(GetRevision.class));
+  }
+
+  @Test
+  public void testInvalidateCache() {
+    HttpActionClient client = newClientWithRevisions();
+    bot = new MediaWikiBot(client);
+    assertFalse(bot.invalidateCache("A"));
+    bot.setCacheHandler(new TieredCache(10, TieredCache.UNLIMITED, 1, TimeUnit.HOURS));
+    bot.readData("A");
+    assertTrue(bot.invalidateCache("A"));
+    assertFalse(bot.invalidateCache("A"));
+    bot.readData("A");
+    verify(client, times(2)).performAction(Mockito.isA(GetRevision.class));
+  }
+
+  @Test
+  public void testExists() {
+    HttpActionClient client = newClientWithRevisions();
+    when(client.performAction(Mockito.isA(GetPageInfo.class))).thenAnswer(new Answer<String>() {
+
+      public String answer(InvocationOnMock invocation) {
+        GetPageInfo info = (GetPageInfo) invocation.getArguments()[0];
+        String xml = "<api><query><normalized><n from=\"a\" to=\"A\" /></normalized><pages>"
+            + "<page pageid=\"1\" ns=\"0\" title=\"A\" lastrevid=\"7\" />"
+            + "<page ns=\"0\" title=\"B\" missing=\"\" />"
+            + "<page title=\"C|\" invalid=\"\" />" + "</pages>"
+            + "<interwiki><i title=\"en:D\" iw=\"en\" /></interwiki></query></api>";
+        return info.processReturningText(xml, info.getNextMessage());
+      }
+    });
+    bot = new MediaWikiBot(client);
+    Map<String, Boolean> exists = bot.exists(ImmutableList.of("a", "B", "C|", "en:D", "E"));
+    assertEquals(ImmutableList.of("a", "B", "C|", "en:D", "E"),
+        ImmutableList.copyOf(exists.keySet()));
+    assertEquals(ImmutableList.of(true, false, false, false, false),
+        ImmutableList.copyOf(exists.values()));
+
+    assertFalse(bot.exists("B"));
+    verify(client, times(1)).performAction(Mockito.isA(GetPageInfo.class));
+    bot.invalidateCache("B");
+    assertFalse(bot.exists("B"));
+    verify(client, times(2)).performAction(Mockito.isA(GetPageInfo.class));
+
+    bot.setMissingTitlesCache(0, 1, TimeUnit.MINUTES);
+    assertFalse(bot.exists("B"));
+    assertFalse(bot.exists("B"));
+    verify(client, times(4)).performAction(Mockito.isA(GetPageInfo.class));
+  }
+
+  /**
+   * @return a client which returns revision 7 with the text "a" for every title
+   */
+  private static HttpActionClient newClientWithRevisions() {
+    HttpActionClient client = mock(HttpActionClient.class);
+    when(client.performAction(Mockito.any(GetVersion.class))).thenReturn("");
+    when(client.performAction(Mockito.isA(GetRevision.class))).thenAnswer(new Answer<String>() {
+
+      public String answer(InvocationOnMock invocation) {
+        GetRevision revision = (GetRevision) invocation.getArguments()[0];
+        String xml = "<api><query><pages><page pageid=\"1\" ns=\"0\" title=\"A\">"
+            + "<revisions><rev revid=\"7\" user=\"U\" xml:space=\"preserve\">a</rev>"
+            + "</revisions></page></pages></query></api>";
+        return revision.processReturningText(xml, revision.getNextMessage());
+      }
+    });
+    return client;
+  }
+
   // TODO test all other methods with a mock client
 }
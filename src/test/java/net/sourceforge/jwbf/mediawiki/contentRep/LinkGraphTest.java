@@ -0,0 +1,76 @@
+package net.sourceforge.jwbf.mediawiki.contentRep;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class LinkGraphTest {
+
+  private LinkGraph graph;
+
+  @Before
+  public void before() {
+    LinkGraph.Builder builder = new LinkGraph.Builder();
+    builder.addEdge("A", "B");
+    builder.addEdge("A", "C");
+    builder.addEdge("A", "B");
+    builder.addEdge("B", "C");
+    builder.addEdge("C", "A");
+    builder.addNode("D");
+    graph = builder.build();
+  }
+
+  @Test
+  public void testStructure() {
+    assertEquals(4, graph.size());
+    assertEquals(4, graph.edgeCount());
+    int a = graph.getId("A");
+    int c = graph.getId("C");
+    assertEquals(-1, graph.getId("E"));
+    assertEquals("A", graph.getTitle(a));
+    assertEquals(2, graph.outDegree(a));
+    assertEquals(2, graph.inDegree(c));
+    assertEquals(0, graph.inDegree(graph.getId("D")));
+    assertArrayEquals(new int[] { graph.getId("B"), c }, graph.successors(a));
+
+    LinkGraph backlinks = graph.transpose();
+    assertEquals(4, backlinks.edgeCount());
+    assertArrayEquals(new int[] { a, graph.getId("B") }, backlinks.successors(c));
+  }
+
+  @Test
+  public void testPageRank() {
+    double[] ranks = graph.pageRank(0.85, 50);
+    double sum = 0;
+    for (double rank : ranks) {
+      sum += rank;
+    }
+    assertEquals(1.0, sum, 1e-9);
+    assertEquals(ImmutableList.of("C", "A", "B", "D"), graph.top(ranks, 4));
+  }
+
+  @Test
+  public void testSaveLoad() throws IOException {
+    File file = File.createTempFile("links", ".bin");
+    try {
+      graph.save(file);
+      LinkGraph loaded = LinkGraph.load(file);
+      assertEquals(graph.size(), loaded.size());
+      assertEquals(graph.edgeCount(), loaded.edgeCount());
+      for (int i = 0; i < graph.size(); i++) {
+        assertEquals(graph.getTitle(i), loaded.getTitle(i));
+        assertArrayEquals(graph.successors(i), loaded.successors(i));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+}